@@ -0,0 +1,55 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.utilities.MessageUtils;
+
+import org.bukkit.Location;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Chat messages through the message workers, timed until the message reached the
+ * player: the hand-off, a worker picking it up, rendering and delivery.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncMessageBenchmark {
+    // Variables
+    private StandInServer server;
+    private MessageUtils msgU;
+    private StandInPlayer player;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = StandInServer.boot(true);
+        server.configure("async_messages.enabled", true);
+        msgU = server.plugin().getMessageUtils();
+        msgU.start();
+        player = server.join("Reader", new Location(server.world("world"), 0, 64, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        msgU.shutdown();
+        server.configure("async_messages.enabled", false);
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    /** Lookup, placeholder replacement, deserialization and sending, waited out on the calling thread. */
+    @Benchmark
+    public long renderAndDeliver() {
+        long before = player.messages();
+        msgU.chatMessage(player.player(), "received", "%OTHER%", "Steve");
+        while (player.messages() == before) Thread.onSpinWait();
+        return player.messages();
+    }
+}
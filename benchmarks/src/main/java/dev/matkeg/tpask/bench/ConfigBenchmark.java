@@ -0,0 +1,53 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.utilities.ConfigUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/** ConfigUtils lookups, which the request paths do several times per call. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+    // Variables
+    private ConfigUtils conU;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        conU = StandInServer.boot(true).plugin().getConfigUtils();
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    @Benchmark
+    public int getIntClamped() {
+        return conU.getInt("tpa.delay", 1, 0, 60);
+    }
+
+    @Benchmark
+    public int getIntMissing() {
+        return conU.getInt("tpa.does_not_exist", 1, 0, 60);
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return conU.getBoolean("tpa.freeze", true);
+    }
+
+    @Benchmark
+    public boolean getBooleanNested() {
+        return conU.getBoolean("sounds.played_globally.accepted", false);
+    }
+
+    @Benchmark
+    public double getDoubleClamped() {
+        return conU.getDouble("tpa.movement_leeway", 1.0, 0.8, 128.0);
+    }
+}
@@ -0,0 +1,67 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.Component;
+
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.managers.LanguageManager;
+import dev.matkeg.tpask.utilities.MessageUtils;
+
+import org.bukkit.Location;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/** Message construction: lang lookup, coloring, placeholders and legacy deserialization. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+    // Variables
+    private MessageUtils msgU;
+    private LanguageManager langMan;
+    private StandInPlayer player;
+    private String rawMessage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StandInServer server = StandInServer.boot(true);
+        msgU = server.plugin().getMessageUtils();
+        langMan = server.plugin().getLanguageManager();
+        player = server.join("Reader", new Location(server.world("world"), 0, 64, 0));
+        rawMessage = langMan.getColorForMessage("received") + langMan.getUserMessage("received", null);
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    /** Lookup, placeholder replacement and deserialization of a chat message. */
+    @Benchmark
+    public long chatMessage() {
+        msgU.chatMessage(player.player(), "received", "%OTHER%", "Steve");
+        return player.messages();
+    }
+
+    /** Only the legacy deserialization part of the above. */
+    @Benchmark
+    public Component legacyDeserialize() {
+        return LegacyComponentSerializer.legacySection().deserialize(rawMessage.replace("%OTHER%", "Steve"));
+    }
+
+    @Benchmark
+    public String languageLookup() {
+        return langMan.getUserMessage("received", null);
+    }
+
+    @Benchmark
+    public void clickableFromConfig(Blackhole bh) {
+        bh.consume(msgU.clickableFromConfig("accept", "%OTHER%", "Steve"));
+        bh.consume(msgU.clickableFromConfig("deny", "%OTHER%", "Steve"));
+    }
+}
@@ -0,0 +1,54 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.utilities.PlayerUtils;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/** The hunger penalty applied on every teleport. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PenaltyBenchmark {
+    // Variables
+    private PlayerUtils plrU;
+    private StandInPlayer subject;
+    private Location sameWorld, otherWorld;
+
+    @Param({"DISTANCE", "FIXED"})
+    public String penaltyType;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StandInServer server = StandInServer.boot(true);
+        server.configure("hunger_penalty.type", penaltyType);
+        plrU = server.plugin().getPlayerUtils();
+
+        World world = server.world("world");
+        subject = server.join("Hungry", new Location(world, 0, 64, 0));
+        sameWorld = new Location(world, 1200, 70, -800);
+        otherWorld = new Location(server.world("world_nether"), 150, 70, -100);
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    @Benchmark
+    public int sameWorld() {
+        return plrU.applyTeleportPenalty(subject.player(), sameWorld, false);
+    }
+
+    @Benchmark
+    public int crossWorld() {
+        return plrU.applyTeleportPenalty(subject.player(), otherWorld, true);
+    }
+}
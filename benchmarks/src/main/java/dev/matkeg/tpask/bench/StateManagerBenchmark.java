@@ -0,0 +1,92 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.matkeg.tpask.bench.standin.StandInScheduler;
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.managers.StateManager;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/** Request create / accept / expire cycles through StateManager. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateManagerBenchmark {
+    // Variables
+    private StandInServer server;
+    private StandInScheduler scheduler;
+    private StateManager statMan;
+    private StandInPlayer requester, receiver;
+    private Location requesterHome;
+    private long expireTicks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = StandInServer.boot(true);
+        scheduler = server.scheduler();
+        statMan = server.plugin().getStateManager();
+
+        // The teleport task runs on the next tick
+        server.configure("tpa.delay", 0);
+        server.configure("tpa.must_stand_still", false);
+        server.configure("back.enabled", false);
+        expireTicks = server.plugin().getConfigUtils().getInt("tpa.timeout", 20, 5, 180) * 20L;
+
+        World world = server.world("world");
+        requesterHome = new Location(world, 0, 64, 0);
+        requester = server.join("Requester", requesterHome);
+        receiver = server.join("Receiver", new Location(world, 500, 64, 500));
+    }
+
+    @Setup(Level.Invocation)
+    public void resetPlayers() {
+        requester.setLocation(requesterHome);
+        requester.setFood(20, 5f);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearState() {
+        statMan.cancelAll();
+        scheduler.reset();
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    @Benchmark
+    public void createAndAccept(Blackhole bh) {
+        statMan.createTpaRequest(requester.player(), receiver.player());
+        statMan.accept(receiver.uuid());
+        // Run the delayed teleport task
+        scheduler.tick();
+        bh.consume(requester.teleports());
+    }
+
+    @Benchmark
+    public void createAndDeny(Blackhole bh) {
+        statMan.createTpaRequest(requester.player(), receiver.player());
+        statMan.deny(receiver.uuid());
+        bh.consume(receiver.actionBars());
+    }
+
+    @Benchmark
+    public void createAndExpire(Blackhole bh) {
+        statMan.createTpaHereRequest(requester.player(), receiver.player());
+        scheduler.advance(expireTicks);
+        bh.consume(statMan.hasIncoming(receiver.uuid()));
+    }
+
+    @Benchmark
+    public boolean cooldownLookup() {
+        return statMan.onCooldown(requester.uuid());
+    }
+}
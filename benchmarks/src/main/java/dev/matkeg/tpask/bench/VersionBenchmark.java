@@ -0,0 +1,41 @@
+package dev.matkeg.tpask.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.utilities.VersionUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/** Version string comparison, as done by the config compatibility check. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark {
+    // Variables
+    private VersionUtils verU;
+
+    @Param({"1.1.0", "1.21.4-R0.1-SNAPSHOT"})
+    public String version;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        verU = StandInServer.boot(true).plugin().getVersionUtils();
+    }
+
+    /* -------------------- BENCHMARKS -------------------- */
+
+    @Benchmark
+    public boolean isVersionLower() {
+        return verU.isVersionLower(version, "1.1.0");
+    }
+
+    @Benchmark
+    public boolean isVersionEqual() {
+        return verU.isVersionEqual(version, "1.21.4");
+    }
+}
@@ -0,0 +1,129 @@
+package dev.matkeg.tpask.bench.budget;
+
+import dev.matkeg.tpask.bench.standin.StandInScheduler;
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.managers.CommandManager;
+import dev.matkeg.tpask.managers.StateManager;
+
+import org.bukkit.command.Command;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Runs the full /tpa → /tpaccept → teleport → /back cycle many times on the
+ * stand-in server and measures the bytes allocated per cycle. Exits with status 1
+ * when the configured budget is exceeded, so the build can fail on regressions:
+ * <code>mvn -f benchmarks/pom.xml verify -Pallocation-budget</code>
+ * <br><br>
+ * Options: <code>[--budget-bytes=65536] [--warmup=20000] [--cycles=20000]</code>
+ */
+public final class AllocationBudget {
+    // Variables
+    private final StandInScheduler scheduler;
+    private final CommandManager cmdMan;
+    private final StandInPlayer requester, receiver;
+    private final Command tpa, tpaccept, back;
+    private final long cooldownMillis;
+    private long now = System.currentTimeMillis();
+
+    // Constructor
+    private AllocationBudget() {
+        StandInServer server = StandInServer.boot(true);
+        scheduler = server.scheduler();
+        cmdMan = server.plugin().getCommandManager();
+
+        // Teleport on the next tick, and let /back reuse the TPA values
+        server.configure("tpa.delay", 0);
+        server.configure("back.enabled", true);
+        server.configure("back.use_tpa_values", true);
+        cooldownMillis = server.plugin().getConfigUtils().getInt("tpa.cooldown", 60, 0, 900) * 1000L;
+
+        // Step over the cooldown between cycles instead of waiting for it
+        StateManager statMan = server.plugin().getStateManager();
+        statMan.setClock(() -> now);
+
+        World world = server.world("world");
+        requester = server.join("Requester", new Location(world, 0, 64, 0));
+        receiver = server.join("Receiver", new Location(world, 640, 70, -320));
+
+        tpa = server.command("tpa");
+        tpaccept = server.command("tpaccept");
+        back = server.command("back");
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    public static void main(String[] args) {
+        long budget = 65536;
+        int warmup = 20000, cycles = 20000;
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            switch (kv[0]) {
+                case "budget-bytes" -> budget = Long.parseLong(kv[1]);
+                case "warmup" -> warmup = Integer.parseInt(kv[1]);
+                case "cycles" -> cycles = Integer.parseInt(kv[1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        AllocationBudget harness = new AllocationBudget();
+        System.exit(harness.check(budget, warmup, cycles));
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private int check(long budget, int warmup, int cycles) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM cannot measure per-thread allocations.");
+            return 2;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < warmup; i++) cycle();
+
+        long teleportsBefore = requester.teleports();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < cycles; i++) cycle();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Every cycle has to teleport there and back, or the numbers mean nothing
+        long teleports = requester.teleports() - teleportsBefore;
+        if (teleports != 2L * cycles) {
+            System.err.printf(Locale.ROOT, "Expected %d teleports but saw %d, the cycle is broken.%n",
+                    2L * cycles, teleports);
+            return 2;
+        }
+
+        double perCycle = (double) allocated / cycles;
+        System.out.printf(Locale.ROOT, "Allocated %.0f bytes per /tpa → /tpaccept → teleport → /back cycle "
+                + "(budget: %d bytes, %d cycles measured).%n", perCycle, budget, cycles);
+
+        if (perCycle > budget) {
+            System.err.println("Allocation budget exceeded!");
+            return 1;
+        }
+        return 0;
+    }
+
+    private void cycle() {
+        cmdMan.onCommand(requester.player(), tpa, "tpa", new String[] { receiver.name() });
+        cmdMan.onCommand(receiver.player(), tpaccept, "tpaccept", NO_ARGS);
+        scheduler.tick();
+
+        cmdMan.onCommand(requester.player(), back, "back", NO_ARGS);
+        scheduler.tick();
+
+        now += cooldownMillis + 1000L;
+    }
+
+    private static final String[] NO_ARGS = new String[0];
+}
@@ -0,0 +1,230 @@
+package dev.matkeg.tpask.bench.replay;
+
+import dev.matkeg.tpask.bench.standin.StandInScheduler;
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.diagnostics.CommandTrace;
+import dev.matkeg.tpask.managers.CommandManager;
+
+import org.bukkit.command.Command;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.List;
+import java.util.Map;
+import java.io.IOException;
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Feeds a command trace recorded by TPAsk (<code>debug.trace</code> in config.yml) back
+ * through CommandManager on the stand-in server, and reports per-command latency
+ * and tick-time percentiles. Every traced player becomes a stand-in player who
+ * joins on their first appearance; positions and movement are not part of traces.
+ * <br><br>
+ * Usage: <code>java -cp benchmarks.jar dev.matkeg.tpask.bench.replay.TraceReplay
+ * --trace=trace-20250101-120000.tptrace [--speed=max|original] [--set=tpa.delay=0]...</code>
+ * <br><br>
+ * With <code>--speed=original</code> ticks are paced at 50 ms of wall-clock time, as on a
+ * live server. With <code>--speed=max</code> (the default) they run back to back and idle
+ * stretches without commands or scheduled tasks are skipped.
+ */
+public final class TraceReplay {
+    // Variables
+    private final StandInServer server;
+    private final StandInScheduler scheduler;
+    private final CommandManager cmdMan;
+    private final World world;
+    private final Map<Long, StandInPlayer> players = new HashMap<>();
+    private final Map<String, Command> commands = new HashMap<>();
+    private final Map<String, List<Long>> latencies = new LinkedHashMap<>();
+    private final Options options;
+    private long startMillis, baseTick;
+
+    // Constructor
+    TraceReplay(Options options) {
+        this.options = options;
+        this.server = StandInServer.boot(true);
+        this.scheduler = server.scheduler();
+        this.cmdMan = server.plugin().getCommandManager();
+        this.world = server.world("world");
+        options.settings.forEach(server::configure);
+
+        // Run the cooldowns on the trace's clock
+        server.plugin().getStateManager().setClock(() -> startMillis + (scheduler.currentTick() - baseTick) * 50L);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        new TraceReplay(options).run();
+    }
+
+    /** Replays the trace and prints the report. */
+    void run() throws IOException {
+        List<CommandTrace.Entry> entries;
+        try (CommandTrace.Reader reader = new CommandTrace.Reader(options.trace)) {
+            startMillis = reader.start();
+            entries = reader.readAll();
+        }
+        if (entries.isEmpty()) {
+            System.out.println("The trace is empty.");
+            return;
+        }
+
+        baseTick = scheduler.currentTick();
+        List<Long> tickNanos = new ArrayList<>();
+        long skipped = 0, wallStart = System.nanoTime();
+
+        int next = 0;
+        while (next < entries.size()) {
+            long tick = scheduler.currentTick() - baseTick;
+
+            // Nothing to do until the next command, jump straight to it
+            if (options.fast && scheduler.pending() == 0 && next < entries.size()) {
+                long due = entries.get(next).offset() / 50L;
+                if (due > tick) {
+                    skipped += due - tick;
+                    scheduler.advance(due - tick);
+                    tick = due;
+                }
+            }
+
+            long t0 = System.nanoTime();
+            long tickEnd = (tick + 1) * 50L;
+            while (next < entries.size() && entries.get(next).offset() < tickEnd) dispatch(entries.get(next++));
+            scheduler.tick();
+            tickNanos.add(System.nanoTime() - t0);
+
+            if (!options.fast) {
+                long deadline = wallStart + (tick + 1) * 50_000_000L;
+                long wait = deadline - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        
+        // Let pending timeouts and forget tasks run out
+        Map<String, Integer> inFlight = server.plugin().getStateManager().getStorageSizes();
+        scheduler.drain(20L * 60 * 60);
+        report(entries.size(), tickNanos, skipped, wallNanos, inFlight);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void dispatch(CommandTrace.Entry entry) {
+        StandInPlayer sender = player(entry.sender());
+        String[] args = entry.args().clone();
+        for (int i = 0; i < args.length; i++) {
+            if (entry.argPlayers()[i] != 0) args[i] = player(entry.argPlayers()[i]).name();
+            else if (entry.argHashed()[i] != 0) args[i] = hashed(entry.argHashed()[i]);
+        }
+
+        Command cmd = commands.computeIfAbsent(entry.command(), server::command);
+        long t0 = System.nanoTime();
+        cmdMan.onCommand(sender.player(), cmd, entry.command(), args);
+        latencies.computeIfAbsent(entry.command(), c -> new ArrayList<>()).add(System.nanoTime() - t0);
+    }
+
+    // The stand-in for a traced player, joining somewhere in the world on first use
+    private StandInPlayer player(long hash) {
+        StandInPlayer plr = players.get(hash);
+        if (plr != null) return plr;
+
+        int index = players.size();
+        Location loc = new Location(world, (hash >> 40) % 10000, 64, (hash >> 8) % 10000);
+        plr = server.join("Replay" + index, loc);
+        players.put(hash, plr);
+        return plr;
+    }
+
+    // A hashed name (home, warp, offline player, typo) stays opaque; '#' never appears in a player's name
+    private static String hashed(long hash) {
+        return "#" + Long.toHexString(hash);
+    }
+
+    private void report(int commandsRun, List<Long> tickNanos, long skipped, long wallNanos,
+                        Map<String, Integer> inFlight) {
+        long teleports = 0;
+        for (StandInPlayer plr : players.values()) teleports += plr.teleports();
+
+        System.out.println("==================== TPAsk trace replay ====================");
+        System.out.printf(Locale.ROOT, "Trace: %s (%d commands, %d players, %.1f minutes)%n",
+                options.trace.getName(), commandsRun, players.size(),
+                (tickNanos.size() + skipped) * 50 / 60000.0);
+        System.out.printf(Locale.ROOT, "Speed: %s, wall clock: %.2f s%n",
+                options.fast ? "as fast as possible" : "original", wallNanos / 1e9);
+        System.out.println();
+        System.out.println("Command latency (ms):");
+        for (Map.Entry<String, List<Long>> e : latencies.entrySet())
+            System.out.printf(Locale.ROOT, "  %-12s n=%-8d %s%n", e.getKey(), e.getValue().size(), summary(e.getValue()));
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Tick time (ms), %d ticks run, %d idle ticks skipped:%n", tickNanos.size(), skipped);
+        System.out.println("  " + summary(tickNanos));
+        System.out.println();
+        System.out.println("Teleports: " + teleports);
+        System.out.println("StateManager at the end of the replay:   " + inFlight);
+        System.out.println("StateManager after all tasks ran out:   " + server.plugin().getStateManager().getStorageSizes());
+    }
+
+    private static String summary(List<Long> nanos) {
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format(Locale.ROOT, "mean %.4f | p50 %.4f | p95 %.4f | p99 %.4f | p99.9 %.4f | max %.4f",
+                Arrays.stream(sorted).average().orElse(0) / 1e6,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /* ---------------------- OPTIONS --------------------- */
+
+    static final class Options {
+        File trace;
+        boolean fast = true;
+        Map<String, Object> settings = new LinkedHashMap<>();
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+                if (kv.length != 2) throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+                switch (kv[0]) {
+                    case "trace" -> o.trace = new File(kv[1]);
+                    case "speed" -> {
+                        if (!kv[1].equals("max") && !kv[1].equals("original"))
+                            throw new IllegalArgumentException("--speed must be max or original");
+                        o.fast = kv[1].equals("max");
+                    }
+                    case "set" -> {
+                        String[] setting = kv[1].split("=", 2);
+                        if (setting.length != 2) throw new IllegalArgumentException("Expected --set=path=value, got: " + arg);
+                        o.settings.put(setting[0], parseValue(setting[1]));
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + kv[0]);
+                }
+            }
+            if (o.trace == null) throw new IllegalArgumentException("--trace=<file> is required");
+            return o;
+        }
+
+        // Config values as YAML would load them
+        static Object parseValue(String value) {
+            if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) return Boolean.parseBoolean(value);
+            try { return Integer.parseInt(value); } catch (NumberFormatException ignored) {}
+            try { return Double.parseDouble(value); } catch (NumberFormatException ignored) {}
+            return value;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package dev.matkeg.tpask.bench.sim;
+
+import dev.matkeg.tpask.bench.standin.StandInScheduler;
+import dev.matkeg.tpask.bench.standin.StandInServer;
+import dev.matkeg.tpask.bench.standin.StandInPlayer;
+import dev.matkeg.tpask.managers.CommandManager;
+import dev.matkeg.tpask.managers.StateManager;
+
+import org.bukkit.command.Command;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.List;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Drives thousands of synthetic players through TPAsk's commands on the stand-in
+ * server and reports tick times, throughput, allocation rate and the state left
+ * behind in StateManager. Runs on a plain JVM, with a simulated clock (50 ms per tick).
+ * <br><br>
+ * Usage: <code>java -cp benchmarks.jar dev.matkeg.tpask.bench.sim.LoadSimulator 
+ * [--players=2000] [--ticks=12000] [--commands-per-tick=40] [--move-chance=0.02]
+ * [--seed=1] [--mix=tpa:30,tpahere:10,tpaccept:30,tpdeny:10,tpcancel:10,back:10]</code>
+ */
+public final class LoadSimulator {
+    // Variables
+    private final StandInServer server;
+    private final StandInScheduler scheduler;
+    private final CommandManager cmdMan;
+    private final StateManager statMan;
+    private final List<StandInPlayer> players = new ArrayList<>();
+    private final Map<String, Command> commands = new LinkedHashMap<>();
+    private final Map<String, Long> issued = new LinkedHashMap<>();
+    private final String[] mixCommands;
+    private final int[] mixWeights;
+    private final int totalWeight;
+    private final Random random;
+    private final Options options;
+
+    // Constructor
+    LoadSimulator(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+        this.server = StandInServer.boot(true);
+        this.scheduler = server.scheduler();
+        this.cmdMan = server.plugin().getCommandManager();
+        this.statMan = server.plugin().getStateManager();
+
+        // Run the cooldowns on the simulated clock
+        long start = System.currentTimeMillis();
+        statMan.setClock(() -> start + scheduler.currentTick() * 50L);
+
+        // Build the command mix
+        mixCommands = options.mix.keySet().toArray(new String[0]);
+        mixWeights = new int[mixCommands.length];
+        int total = 0;
+        for (int i = 0; i < mixCommands.length; i++) {
+            total += options.mix.get(mixCommands[i]);
+            mixWeights[i] = total;
+            commands.put(mixCommands[i], server.command(mixCommands[i]));
+        }
+        totalWeight = total;
+
+        // Spread the players out over a few worlds
+        World[] worlds = { server.world("world"), server.world("world_nether"), server.world("world_the_end") };
+        for (int i = 0; i < options.players; i++) {
+            World world = worlds[i % worlds.length];
+            Location loc = new Location(world, random.nextInt(20000) - 10000, 64, random.nextInt(20000) - 10000);
+            players.add(server.join("Sim" + i, loc));
+        }
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    public static void main(String[] args) {
+        Options options = Options.parse(args);
+        new LoadSimulator(options).run();
+    }
+
+    /** Runs the configured number of ticks and prints the report. */
+    void run() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up the code paths before measuring
+        for (int i = 0; i < Math.min(options.ticks / 10, 1200); i++) simulateTick();
+
+        long[] tickNanos = new long[options.ticks];
+        long commandsBefore = totalIssued();
+        long allocBefore = threads.getThreadAllocatedBytes(threadId);
+        long wallStart = System.nanoTime();
+
+        for (int i = 0; i < options.ticks; i++) {
+            long t0 = System.nanoTime();
+            simulateTick();
+            tickNanos[i] = System.nanoTime() - t0;
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocBefore;
+        long commandsRun = totalIssued() - commandsBefore;
+
+        // Let pending timeouts and forget tasks run out
+        Map<String, Integer> inFlight = statMan.getStorageSizes();
+        scheduler.drain(20L * 60 * 60);
+        Map<String, Integer> leftover = statMan.getStorageSizes();
+
+        report(tickNanos, wallNanos, allocated, commandsRun, inFlight, leftover);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void simulateTick() {
+        for (int i = 0; i < options.commandsPerTick; i++) {
+            StandInPlayer plr = players.get(random.nextInt(players.size()));
+            String cmd = pickCommand();
+            String[] args = cmd.equals("tpa") || cmd.equals("tpahere")
+                    ? new String[] { players.get(random.nextInt(players.size())).name() }
+                    : new String[0];
+
+            cmdMan.onCommand(plr.player(), commands.get(cmd), cmd, args);
+            issued.merge(cmd, 1L, Long::sum);
+        }
+
+        // Some players walk around, failing must_stand_still
+        if (options.moveChance > 0) {
+            int movers = (int) (players.size() * options.moveChance);
+            for (int i = 0; i < movers; i++)
+                players.get(random.nextInt(players.size())).move(random.nextDouble() * 4 - 2, 0, random.nextDouble() * 4 - 2);
+        }
+
+        scheduler.tick();
+    }
+
+    private String pickCommand() {
+        int roll = random.nextInt(totalWeight);
+        for (int i = 0; i < mixWeights.length; i++) if (roll < mixWeights[i]) return mixCommands[i];
+        return mixCommands[mixCommands.length - 1];
+    }
+
+    private long totalIssued() {
+        long total = 0;
+        for (long count : issued.values()) total += count;
+        return total;
+    }
+
+    private void report(long[] tickNanos, long wallNanos, long allocated, long commandsRun,
+                        Map<String, Integer> inFlight, Map<String, Integer> leftover) {
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        double wallSeconds = wallNanos / 1e9;
+        long teleports = 0, messages = 0;
+        for (StandInPlayer plr : players) { teleports += plr.teleports(); messages += plr.messages() + plr.actionBars(); }
+
+        System.out.println("==================== TPAsk load simulation ====================");
+        System.out.printf(Locale.ROOT, "Players: %d, ticks: %d, commands per tick: %d, seed: %d%n",
+                options.players, options.ticks, options.commandsPerTick, options.seed);
+        System.out.println("Commands issued (incl. warm-up): " + issued);
+        System.out.println();
+        System.out.println("Tick time (ms):");
+        System.out.printf(Locale.ROOT, "  mean %.4f | p50 %.4f | p95 %.4f | p99 %.4f | p99.9 %.4f | max %.4f%n",
+                Arrays.stream(tickNanos).average().orElse(0) / 1e6,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Throughput: %.0f commands/s, %.0f ticks/s (wall clock)%n",
+                commandsRun / wallSeconds, tickNanos.length / wallSeconds);
+        System.out.printf(Locale.ROOT, "Allocation: %.2f MB/s, %.0f bytes/tick, %.0f bytes/command%n",
+                allocated / 1e6 / wallSeconds, (double) allocated / tickNanos.length,
+                commandsRun > 0 ? (double) allocated / commandsRun : 0);
+        System.out.println("Teleports: " + teleports + ", messages and action bars: " + messages);
+        System.out.println();
+        System.out.println("StateManager at the end of the run:     " + inFlight);
+        System.out.println("StateManager after all tasks ran out:   " + leftover);
+        System.out.println("Scheduler tasks left:                   " + scheduler.pending());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /* ---------------------- OPTIONS --------------------- */
+
+    static final class Options {
+        int players = 2000, ticks = 12000, commandsPerTick = 40;
+        double moveChance = 0.02;
+        long seed = 1;
+        Map<String, Integer> mix = parseMix("tpa:30,tpahere:10,tpaccept:30,tpdeny:10,tpcancel:10,back:10");
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+                if (kv.length != 2) throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+                switch (kv[0]) {
+                    case "players" -> o.players = Integer.parseInt(kv[1]);
+                    case "ticks" -> o.ticks = Integer.parseInt(kv[1]);
+                    case "commands-per-tick" -> o.commandsPerTick = Integer.parseInt(kv[1]);
+                    case "move-chance" -> o.moveChance = Double.parseDouble(kv[1]);
+                    case "seed" -> o.seed = Long.parseLong(kv[1]);
+                    case "mix" -> o.mix = parseMix(kv[1]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + kv[0]);
+                }
+            }
+            if (o.players < 2) throw new IllegalArgumentException("At least two players are needed");
+            return o;
+        }
+
+        static Map<String, Integer> parseMix(String spec) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String part : spec.split(",")) {
+                String[] kv = part.split(":");
+                int weight = Integer.parseInt(kv[1].trim());
+                if (weight > 0) mix.put(kv[0].trim().toLowerCase(Locale.ROOT), weight);
+            }
+            if (mix.isEmpty()) throw new IllegalArgumentException("The command mix is empty");
+            return mix;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.Plugin;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+final class StandInCommand extends PluginCommand {
+    // Constructor
+    StandInCommand(String name, Plugin owner) { super(name, owner); }
+}
@@ -0,0 +1,113 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public final class StandInPlayer implements InvocationHandler {
+    // Variables
+    private final StandInServer server;
+    private final UUID uuid;
+    private final String name;
+    private final Player proxy;
+
+    // State
+    private Location location;
+    private boolean online = true, op = false;
+    private int foodLevel = 20;
+    private float saturation = 5f;
+    private long actionBars, teleports;
+    private volatile long messages; // Also counted by the message workers
+
+    // Constructor
+    StandInPlayer(StandInServer server, String name, Location location) {
+        this.server = server;
+        this.name = name;
+        this.uuid = UUID.nameUUIDFromBytes(("StandInPlayer:" + name).getBytes());
+        this.location = location.clone();
+        this.proxy = StandIns.proxy(Player.class, this);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The Bukkit view of this player. */
+    public Player player() { return proxy; }
+
+    public UUID uuid() { return uuid; }
+    public String name() { return name; }
+    public boolean online() { return online; }
+    public long messages() { return messages; }
+    public long actionBars() { return actionBars; }
+    public long teleports() { return teleports; }
+
+    /** Moves the player without teleporting them, like walking would. */
+    public void move(double dx, double dy, double dz) { location.add(dx, dy, dz); }
+
+    public void setLocation(Location loc) { this.location = loc.clone(); }
+    public void setFood(int food, float saturation) { this.foodLevel = food; this.saturation = saturation; }
+    public void setOp(boolean op) { this.op = op; }
+
+    /** Marks the player as disconnected. Use StandInServer#quit to also remove them. */
+    void disconnect() { this.online = false; }
+
+    @Override
+    public Object invoke(Object self, Method method, Object[] args) {
+        if (StandIns.isObjectMethod(method)) return StandIns.objectMethod(self, method, args, uuid);
+
+        switch (method.getName()) {
+            case "getUniqueId": return uuid;
+            case "getName": return name;
+            case "isOnline": case "isValid": case "isConnected": return online;
+            case "isOp": return op;
+            case "hasPermission": return true;
+            case "getServer": return server.server();
+            case "getWorld": return location.getWorld();
+            case "getLocation":
+                if (args != null && args.length == 1 && args[0] instanceof Location target) return copyInto(target);
+                return location.clone();
+
+            case "teleport":
+                teleportTo(args[0]);
+                return method.getReturnType() == boolean.class ? true : null;
+            case "teleportAsync":
+                teleportTo(args[0]);
+                return CompletableFuture.completedFuture(true);
+
+            case "getFoodLevel": return foodLevel;
+            case "setFoodLevel": foodLevel = (Integer) args[0]; return null;
+            case "getSaturation": return saturation;
+            case "setSaturation": saturation = (Float) args[0]; return null;
+            case "addPotionEffect": return true;
+
+            case "sendMessage": case "sendRichMessage": case "sendPlainMessage":
+                messages++;
+                return null;
+            case "sendActionBar":
+                actionBars++;
+                return null;
+
+            default: return StandIns.defaultValue(method);
+        }
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private Location copyInto(Location target) {
+        target.setWorld(location.getWorld());
+        target.setX(location.getX()); target.setY(location.getY()); target.setZ(location.getZ());
+        target.setYaw(location.getYaw()); target.setPitch(location.getPitch());
+        return target;
+    }
+
+    private void teleportTo(Object dest) {
+        if (dest instanceof Entity entity) location = entity.getLocation();
+        else if (dest instanceof Location loc) location = loc.clone();
+        teleports++;
+    }
+}
@@ -0,0 +1,17 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import dev.matkeg.tpask.PluginMain;
+
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+final class StandInPlugin extends PluginMain {
+    // Constructor
+    @SuppressWarnings("removal")
+    StandInPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+}
@@ -0,0 +1,141 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+import java.util.PriorityQueue;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public final class StandInScheduler implements InvocationHandler {
+    // Variables
+    private final BukkitScheduler proxy;
+    private final PriorityQueue<StandInTask> queue = new PriorityQueue<>(
+            Comparator.comparingLong((StandInTask t) -> t.dueTick).thenComparingInt(t -> t.id));
+    private final Map<Integer, StandInTask> tasks = new HashMap<>();
+    private long currentTick = 0;
+    private int nextId = 1;
+    private int cancelledInQueue = 0;
+
+    // Constructor
+    StandInScheduler() {
+        this.proxy = StandIns.proxy(BukkitScheduler.class, this);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The Bukkit view of this scheduler. */
+    public BukkitScheduler scheduler() { return proxy; }
+
+    /** @return The number of ticks run so far. */
+    public long currentTick() { return currentTick; }
+
+    /** @return The number of tasks which are still scheduled. */
+    public int pending() { return tasks.size(); }
+
+    /** Runs one server tick: every task which is due, in scheduling order. */
+    public void tick() {
+        currentTick++;
+        StandInTask next;
+        while ((next = queue.peek()) != null && next.dueTick <= currentTick) {
+            queue.poll();
+            if (next.isCancelled()) { cancelledInQueue--; continue; }
+
+            if (next.period > 0) {
+                next.dueTick = currentTick + next.period;
+                queue.add(next);
+            } else {
+                tasks.remove(next.id);
+            }
+            next.task.run();
+        }
+    }
+
+    /** Runs the given amount of ticks. */
+    public void advance(long ticks) {
+        for (long i = 0; i < ticks; i++) tick();
+    }
+
+    /** Runs ticks until no tasks are left, or until the given limit is reached. */
+    public void drain(long maxTicks) {
+        for (long i = 0; i < maxTicks && !tasks.isEmpty(); i++) tick();
+    }
+
+    /** Cancels every scheduled task. */
+    public void reset() {
+        for (StandInTask t : tasks.values().toArray(new StandInTask[0])) t.cancel();
+        queue.clear();
+        cancelledInQueue = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object self, Method method, Object[] args) {
+        if (StandIns.isObjectMethod(method)) return StandIns.objectMethod(self, method, args, "StandInScheduler");
+
+        String name = method.getName();
+        boolean sync = !name.contains("Async");
+        switch (name) {
+            case "runTask", "runTaskAsynchronously",
+                 "runTaskLater", "runTaskLaterAsynchronously",
+                 "runTaskTimer", "runTaskTimerAsynchronously",
+                 "scheduleSyncDelayedTask", "scheduleSyncRepeatingTask" -> {
+                Plugin owner = (Plugin) args[0];
+                long delay = args.length > 2 ? ((Number) args[2]).longValue() : 0L;
+                long period = args.length > 3 ? ((Number) args[3]).longValue() : -1L;
+
+                // Consumer<BukkitTask> variants receive their own task
+                StandInTask[] holder = new StandInTask[1];
+                Runnable task = args[1] instanceof Consumer<?> consumer
+                        ? () -> ((Consumer<BukkitTask>) consumer).accept(holder[0])
+                        : (Runnable) args[1];
+
+                holder[0] = schedule(owner, task, delay, period, sync);
+                if (method.getReturnType() == int.class) return holder[0].id;
+                return method.getReturnType() == void.class ? null : holder[0];
+            }
+            case "cancelTask" -> {
+                StandInTask t = tasks.get((Integer) args[0]);
+                if (t != null) t.cancel();
+                return null;
+            }
+            case "cancelTasks" -> {
+                reset();
+                return null;
+            }
+            case "isQueued", "isCurrentlyRunning" -> {
+                return tasks.containsKey((Integer) args[0]);
+            }
+            default -> {
+                return StandIns.defaultValue(method);
+            }
+        }
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private StandInTask schedule(Plugin owner, Runnable task, long delay, long period, boolean sync) {
+        // Like Bukkit, a delay of 0 still means "the next tick"
+        StandInTask t = new StandInTask(this, nextId++, owner, task,
+                currentTick + Math.max(1L, delay), period, sync);
+        tasks.put(t.id, t);
+        queue.add(t);
+        return t;
+    }
+
+    void forget(StandInTask task) {
+        tasks.remove(task.id);
+        
+        // Cancelled tasks are skipped when due, purge them once they pile up
+        if (++cancelledInQueue > 64 && cancelledInQueue > queue.size() / 2) {
+            queue.removeIf(StandInTask::isCancelled);
+            cancelledInQueue = 0;
+        }
+    }
+}
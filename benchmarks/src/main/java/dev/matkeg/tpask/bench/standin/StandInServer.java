@@ -0,0 +1,214 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import dev.matkeg.tpask.PluginMain;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * A minimal Bukkit server which lets TPAsk run on a plain JVM. Only the parts
+ * TPAsk touches are modelled; everything else answers with null, 0 or false.
+ * <br><br>
+ * Bukkit only allows one server per JVM, so there is only ever one stand-in.
+ */
+public final class StandInServer implements InvocationHandler {
+    // Singleton
+    private static StandInServer instance;
+
+    // Variables
+    private final Server proxy;
+    private final PluginManager pluginManager;
+    private final ServicesManager servicesManager;
+    private final StandInScheduler scheduler = new StandInScheduler();
+    private final Logger logger = Logger.getLogger("StandInServer");
+    private final Map<UUID, StandInPlayer> players = new LinkedHashMap<>();
+    private final Map<String, StandInPlayer> playersByName = new HashMap<>();
+    private final Collection<Player> onlineView = new ArrayList<>();
+    private final Map<String, StandInWorld> worlds = new LinkedHashMap<>();
+    private final Map<String, PluginCommand> commands = new HashMap<>();
+    private PluginMain plugin;
+
+    // Constructor
+    private StandInServer() {
+        this.proxy = StandIns.proxy(Server.class, this);
+        this.pluginManager = StandIns.proxy(PluginManager.class, (self, method, args) -> 
+                StandIns.isObjectMethod(method) 
+                    ? StandIns.objectMethod(self, method, args, "StandInPluginManager")
+                    : StandIns.defaultValue(method));
+        this.servicesManager = StandIns.proxy(ServicesManager.class, (self, method, args) -> 
+                StandIns.isObjectMethod(method) 
+                    ? StandIns.objectMethod(self, method, args, "StandInServicesManager")
+                    : StandIns.defaultValue(method));
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Boots the stand-in server and a TPAsk instance on top of it, or returns the 
+     * already booted one. The plugin's config is tuned for running without a real 
+     * server: sounds, freeze effects, the audit log and command tracing are turned off,
+     * and messages are rendered and delivered inline, on the calling thread.
+     *
+     * @param quiet Whether TPAsk's and the server's info output should be muted.
+     */
+    public static synchronized StandInServer boot(boolean quiet) {
+        if (instance != null) return instance;
+
+        StandInServer server = new StandInServer();
+        try {
+            // Bukkit.setServer() prints build info which needs a real server
+            Field field = Bukkit.class.getDeclaredField("server");
+            field.setAccessible(true);
+            field.set(null, server.proxy);
+
+            File dataFolder = Files.createTempDirectory("tpask-standin").toFile();
+            PluginDescriptionFile description;
+            try (InputStream in = PluginMain.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+                description = new PluginDescriptionFile(in);
+            }
+
+            @SuppressWarnings("removal")
+            JavaPluginLoader loader = new JavaPluginLoader(server.proxy);
+            server.plugin = new StandInPlugin(loader, description, dataFolder, new File(dataFolder, "TPAsk.jar"));
+        } catch (ReflectiveOperationException | IOException | org.bukkit.plugin.InvalidDescriptionException e) {
+            throw new IllegalStateException("Could not boot the stand-in server", e);
+        }
+
+        if (quiet) {
+            server.logger.setLevel(Level.WARNING);
+            server.plugin.getLogger().setLevel(Level.WARNING);
+        }
+
+        server.plugin.onLoad();
+        server.configure("sounds.enabled", false);
+        for (String key : server.plugin.getConfig().getConfigurationSection("sounds.keys").getKeys(false))
+            server.configure("sounds.keys." + key, "");
+        server.configure("tpa.freeze", false);
+        server.configure("back.freeze", false);
+        server.configure("audit.enabled", false);
+        server.configure("debug.trace.enabled", false);
+        server.configure("async_messages.enabled", false);
+        server.plugin.onEnable();
+
+        server.world("world");
+        instance = server;
+        return server;
+    }
+
+    /** @return The Bukkit view of this server. */
+    public Server server() { return proxy; }
+
+    /** @return The TPAsk instance running on this server. */
+    public PluginMain plugin() { return plugin; }
+
+    /** @return The tick-driven scheduler of this server. */
+    public StandInScheduler scheduler() { return scheduler; }
+
+    /** Sets a value in TPAsk's loaded config.yml. */
+    public void configure(String path, Object value) {
+        plugin.getConfig().set(path, value);
+    }
+
+    /** @return The world with the given name, created if it doesn't exist yet. */
+    public World world(String name) {
+        return worlds.computeIfAbsent(name, StandInWorld::new).world();
+    }
+
+    /** @return The command with the given name, as TPAsk's executor would receive it. */
+    public PluginCommand command(String name) {
+        return commands.computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> new StandInCommand(n, plugin));
+    }
+
+    /** Connects a new player at the given location. */
+    public StandInPlayer join(String name, Location location) {
+        StandInPlayer plr = new StandInPlayer(this, name, location);
+        players.put(plr.uuid(), plr);
+        playersByName.put(name.toLowerCase(Locale.ROOT), plr);
+        onlineView.add(plr.player());
+        return plr;
+    }
+
+    /** Disconnects the given player. */
+    public void quit(StandInPlayer plr) {
+        plr.disconnect();
+        players.remove(plr.uuid());
+        playersByName.remove(plr.name().toLowerCase(Locale.ROOT));
+        onlineView.remove(plr.player());
+    }
+
+    /** @return Every connected player. */
+    public Collection<StandInPlayer> players() {
+        return Collections.unmodifiableCollection(players.values());
+    }
+
+    @Override
+    public Object invoke(Object self, Method method, Object[] args) {
+        if (StandIns.isObjectMethod(method)) return StandIns.objectMethod(self, method, args, "StandInServer");
+
+        switch (method.getName()) {
+            case "getLogger": return logger;
+            case "getName": return "StandIn";
+            case "getVersion": case "getBukkitVersion": return "1.21.4-R0.1-SNAPSHOT";
+            case "getMinecraftVersion": return "1.21.4";
+            case "isPrimaryThread": return true;
+            case "getCurrentTick": return (int) scheduler.currentTick();
+            case "getScheduler": return scheduler.scheduler();
+            case "getPluginManager": return pluginManager;
+            case "getServicesManager": return servicesManager;
+            case "getPluginCommand": return command(stripNamespace((String) args[0]));
+            case "getOnlinePlayers": return Collections.unmodifiableCollection(onlineView);
+            case "getMaxPlayers": return Integer.MAX_VALUE;
+            case "getWorlds": 
+                List<World> list = new ArrayList<>();
+                for (StandInWorld w : worlds.values()) list.add(w.world());
+                return list;
+
+            case "getWorld":
+                if (args[0] instanceof String name) return worlds.containsKey(name) ? world(name) : null;
+                for (StandInWorld w : worlds.values()) if (w.world().getUID().equals(args[0])) return w.world();
+                return null;
+
+            case "getPlayer": case "getPlayerExact": case "getOfflinePlayerIfCached":
+                StandInPlayer plr = args[0] instanceof UUID uuid ? players.get(uuid)
+                        : playersByName.get(((String) args[0]).toLowerCase(Locale.ROOT));
+                return plr != null ? plr.player() : null;
+
+            default: return StandIns.defaultValue(method);
+        }
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private static String stripNamespace(String name) {
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+}
@@ -0,0 +1,43 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.plugin.Plugin;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+final class StandInTask implements BukkitTask {
+    // Variables
+    final int id;
+    final Runnable task;
+    final long period;
+    final boolean sync;
+    long dueTick;
+    private final Plugin owner;
+    private final StandInScheduler scheduler;
+    private boolean cancelled;
+
+    // Constructor
+    StandInTask(StandInScheduler scheduler, int id, Plugin owner, Runnable task,
+                long dueTick, long period, boolean sync) {
+        this.scheduler = scheduler;
+        this.id = id;
+        this.owner = owner;
+        this.task = task;
+        this.dueTick = dueTick;
+        this.period = period;
+        this.sync = sync;
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @Override public int getTaskId() { return id; }
+    @Override public Plugin getOwner() { return owner; }
+    @Override public boolean isSync() { return sync; }
+    @Override public boolean isCancelled() { return cancelled; }
+
+    @Override
+    public void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        scheduler.forget(this);
+    }
+}
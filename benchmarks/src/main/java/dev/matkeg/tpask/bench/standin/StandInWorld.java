@@ -0,0 +1,42 @@
+package dev.matkeg.tpask.bench.standin;
+
+import org.bukkit.World;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public final class StandInWorld implements InvocationHandler {
+    // Variables
+    private final String name;
+    private final UUID uid;
+    private final World proxy;
+
+    // Constructor
+    StandInWorld(String name) {
+        this.name = name;
+        this.uid = UUID.nameUUIDFromBytes(name.getBytes());
+        this.proxy = StandIns.proxy(World.class, this);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The Bukkit view of this world. */
+    public World world() { return proxy; }
+
+    @Override
+    public Object invoke(Object self, Method method, Object[] args) {
+        if (StandIns.isObjectMethod(method)) return StandIns.objectMethod(self, method, args, "World[" + name + "]");
+
+        return switch (method.getName()) {
+            case "getName" -> name;
+            case "getUID" -> uid;
+            // Every chunk counts as loaded, there is no terrain behind the stand-ins
+            case "isChunkLoaded", "isChunkGenerated" -> true;
+            case "getMinHeight" -> -64;
+            case "getMaxHeight" -> 320;
+            default -> StandIns.defaultValue(method);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package dev.matkeg.tpask.bench.standin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+final class StandIns {
+    private StandIns() {}
+
+    /** Creates a proxy of the given Bukkit interface backed by the given handler. */
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StandIns.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    /** 
+     * The value returned by stand-in methods which aren't modelled.
+     * Mirrors what an unset field would hold.
+     */
+    static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == long.class) return 0L;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        return (byte) 0;
+    }
+
+    /** Handles the Object methods every proxy has to answer consistently. */
+    static Object objectMethod(Object proxy, Method method, Object[] args, Object identity) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> identity.hashCode();
+            case "toString" -> identity.toString();
+            default -> null;
+        };
+    }
+
+    static boolean isObjectMethod(Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+}
@@ -0,0 +1,81 @@
+package dev.matkeg.tpask.proxy;
+
+import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.plugin.Plugin;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.google.inject.Inject;
+
+import dev.matkeg.tpask.network.NetworkMessage;
+import dev.matkeg.tpask.network.NetworkRouter;
+import dev.matkeg.tpask.network.NetworkCodec;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.io.IOException;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Routes TPAsk's network messages between the backend servers and moves
+ * players to the server they were teleported to.
+ */
+@Plugin(id = "tpask-proxy", name = "TPAsk Proxy", version = "1.1.0", authors = {"matkeg"},
+        description = "Routes TPAsk requests between the servers of the network.")
+public class TPAskProxy {
+    // Variables
+    private static final MinecraftChannelIdentifier CHANNEL = MinecraftChannelIdentifier.from(NetworkCodec.CHANNEL);
+    private final ProxyServer proxy;
+    private final Logger logger;
+
+    // Constructor
+    @Inject
+    public TPAskProxy(ProxyServer proxy, Logger logger) {
+        this.proxy = proxy;
+        this.logger = logger;
+    }
+
+    /* -------------------- LISTENERS --------------------- */
+
+    @Subscribe
+    public void onInitialize(ProxyInitializeEvent event) {
+        proxy.getChannelRegistrar().register(CHANNEL);
+    }
+
+    @Subscribe
+    public void onPluginMessage(PluginMessageEvent event) {
+        if (!event.getIdentifier().equals(CHANNEL)) return;
+
+        // Never forward the channel to or from clients
+        event.setResult(PluginMessageEvent.ForwardResult.handled());
+        if (!(event.getSource() instanceof ServerConnection from)) return;
+
+        List<NetworkMessage> messages;
+        try {
+            messages = NetworkCodec.decode(event.getData());
+        } catch (IOException e) {
+            logger.warn("Dropped a malformed TPAsk batch from {}: {}", from.getServerInfo().getName(), e.getMessage());
+            return;
+        }
+
+        List<String> servers = new ArrayList<>();
+        for (RegisteredServer server : proxy.getAllServers()) servers.add(server.getServerInfo().getName());
+
+        NetworkRouter.Routes routes = NetworkRouter.route(from.getServerInfo().getName(), messages, servers);
+        routes.deliveries().forEach((name, delivery) -> proxy.getServer(name).ifPresent(server -> {
+            // Servers without players can't receive plugin messages, nobody to find there anyway
+            for (byte[] batch : NetworkCodec.encodeSplit(delivery)) server.sendPluginMessage(CHANNEL, batch);
+        }));
+
+        for (NetworkMessage connect : routes.connects()) {
+            proxy.getPlayer(connect.requester()).ifPresent(player -> 
+                proxy.getServer(connect.server()).ifPresent(server -> 
+                    player.createConnectionRequest(server).fireAndForget()));
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package dev.matkeg.tpask;
 
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+
+import dev.matkeg.tpask.diagnostics.LeakDetector;
 import dev.matkeg.tpask.utilities.*;
 import dev.matkeg.tpask.managers.*;
 
@@ -14,10 +19,39 @@ public class PluginMain extends JavaPlugin {
     private VersionUtils verU;
     private MessageUtils msgU;
     private OutputUtils output;
+    private SchedulerUtils schedU;
     private StateManager statMan;
+    private TeleportQueueManager teleQueue;
+    private PreferenceManager prefMan;
+    private NetworkManager netMan;
+    private AuditManager auditMan;
+    private TraceManager traceMan;
     private RequestManager reqMan;
+    private InboxManager inboxMan;
+    private WarpManager warpMan;
+    private HomeManager homeMan;
+    private RtpManager rtpMan;
+    private CountdownManager countdownMan;
     private CommandManager cmdMan;
+    private ServiceManager servMan;
     private LanguageManager langMan;
+    private ZoneManager zoneMan;
+    private CombatManager combatMan;
+    private EffectManager effectMan;
+    private WorldRuleManager worldRules;
+    private LeakDetector leakDet;
+    
+    // Constructors
+    public PluginMain() { super(); }
+    
+    /** 
+     * Creates the plugin outside of a running server. Only meant
+     * to be used by the stand-ins in the benchmarks module.
+     */
+    @SuppressWarnings("removal")
+    protected PluginMain(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
     
     // Fetchers: Call these in other files to get the initialized modules
     public OutputUtils getOutput() { return output; }
@@ -26,10 +60,27 @@ public class PluginMain extends JavaPlugin {
     public PlayerUtils getPlayerUtils() { return plrU; }
     public VersionUtils getVersionUtils() { return verU; }
     public MessageUtils getMessageUtils() { return msgU; }
+    public SchedulerUtils getSchedulerUtils() { return schedU; }
     public StateManager getStateManager() {return statMan;}
+    public TeleportQueueManager getTeleportQueueManager() { return teleQueue; }
+    public PreferenceManager getPreferenceManager() { return prefMan; }
+    public NetworkManager getNetworkManager() { return netMan; }
+    public AuditManager getAuditManager() { return auditMan; }
+    public TraceManager getTraceManager() { return traceMan; }
     public CommandManager getCommandManager() { return cmdMan; }
     public RequestManager getRequestManager() { return reqMan; }
+    public InboxManager getInboxManager() { return inboxMan; }
+    public WarpManager getWarpManager() { return warpMan; }
+    public HomeManager getHomeManager() { return homeMan; }
+    public RtpManager getRtpManager() { return rtpMan; }
+    public CountdownManager getCountdownManager() { return countdownMan; }
+    public ServiceManager getServiceManager() { return servMan; }
     public LanguageManager getLanguageManager() { return langMan; }
+    public ZoneManager getZoneManager() { return zoneMan; }
+    public CombatManager getCombatManager() { return combatMan; }
+    public EffectManager getEffectManager() { return effectMan; }
+    public WorldRuleManager getWorldRuleManager() { return worldRules; }
+    public LeakDetector getLeakDetector() { return leakDet; }
     
     /* -------------------- OVERRIDES --------------------- */
     
@@ -43,17 +94,34 @@ public class PluginMain extends JavaPlugin {
         verU = new VersionUtils(this);
         colU = new ColorUtils(this);
         conU = new ConfigUtils(this);
+        schedU = new SchedulerUtils(this);
+        leakDet = new LeakDetector(this);
         
         langMan = new LanguageManager(this);
         langMan.saveDefaultPacks();
         
         msgU = new MessageUtils(this);
+        auditMan = new AuditManager(this);
+        traceMan = new TraceManager(this);
+        zoneMan = new ZoneManager(this);
+        combatMan = new CombatManager(this);
+        effectMan = new EffectManager(this);
+        worldRules = new WorldRuleManager(this);
         plrU = new PlayerUtils(this);
         msgU.setPlayerUtils(plrU);
         
+        teleQueue = new TeleportQueueManager(this);
+        prefMan = new PreferenceManager(this);
+        netMan = new NetworkManager(this);
         statMan = new StateManager(this);
         reqMan = new RequestManager(this);
+        inboxMan = new InboxManager(this);
+        warpMan = new WarpManager(this);
+        homeMan = new HomeManager(this);
+        rtpMan = new RtpManager(this);
+        countdownMan = new CountdownManager(this);
         cmdMan = new CommandManager(this);
+        servMan = new ServiceManager(this);
     }
     
     @Override
@@ -61,6 +129,40 @@ public class PluginMain extends JavaPlugin {
         try {
             // Check if the config is compatible;
             conU.checkConfigCompatibility();
+            // Cache the debug settings;
+            output.applyDebugSettings(conU);
+            // Start the message workers;
+            msgU.start();
+            // Start the teleport audit log writer;
+            auditMan.start();
+            // Start recording commands, if enabled;
+            traceMan.start();
+            // Connect to the proxy network, if enabled;
+            netMan.start();
+            getServer().getPluginManager().registerEvents(netMan, this);
+            // Clean up after players as soon as they leave;
+            getServer().getPluginManager().registerEvents(statMan, this);
+            // Load the players' request settings;
+            prefMan.start();
+            getServer().getPluginManager().registerEvents(prefMan, this);
+            // Handle clicks in the /tpa gui inbox;
+            getServer().getPluginManager().registerEvents(inboxMan, this);
+            // Read the server's warps in the background;
+            warpMan.start();
+            // Read the homes of whoever is online, later ones as they log in;
+            homeMan.start();
+            getServer().getPluginManager().registerEvents(homeMan, this);
+            // Track PvP for the combat tag and the arrival grace period;
+            combatMan.start();
+            getServer().getPluginManager().registerEvents(combatMan, this);
+            // Start finding safe random teleport locations;
+            rtpMan.start();
+            // Spawn the teleport particle effects, if enabled;
+            effectMan.start();
+            // Show the request countdown boss bars, if enabled;
+            countdownMan.start();
+            // Let other plugins drive TPAsk;
+            servMan.register();
             // Setup the commands;
             langMan.localizeCommands();
         } catch (Exception e) {
@@ -75,12 +177,38 @@ public class PluginMain extends JavaPlugin {
         cmdMan.initializeCommand("tpahere");
         cmdMan.initializeCommand("tpcancel");
         cmdMan.initializeCommand("tpaccept");
+        cmdMan.initializeCommand("tpaall");
+        cmdMan.initializeCommand("tptoggle");
+        cmdMan.initializeCommand("tpblock");
+        cmdMan.initializeCommand("tptrust");
+        cmdMan.initializeCommand("warp");
+        cmdMan.initializeCommand("setwarp");
+        cmdMan.initializeCommand("delwarp");
+        cmdMan.initializeCommand("home");
+        cmdMan.initializeCommand("sethome");
+        cmdMan.initializeCommand("delhome");
+        cmdMan.initializeCommand("rtp");
         cmdMan.initializeCommand("tpa-reload");
+        cmdMan.initializeCommand("tpa-audit");
     }
     
     @Override
     public void onDisable() { 
+        servMan.unregister();
+        inboxMan.closeAll();
         statMan.cancelAll(); 
+        teleQueue.cancelAll();
+        prefMan.shutdown();
+        warpMan.shutdown();
+        homeMan.shutdown();
+        rtpMan.shutdown();
+        countdownMan.stop();
+        effectMan.stop();
+        netMan.shutdown();
+        msgU.shutdown();
         msgU.cancelAllActionBars();
+        auditMan.shutdown();
+        traceMan.shutdown();
+        output.closeDebugFile();
     }
 }
@@ -0,0 +1,15 @@
+package dev.matkeg.tpask.api;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import java.util.UUID;
+
+/**
+ * A request waiting for an answer, as seen by the TPAskService.
+ *
+ * @param requester The UUID of the player who sent the request.
+ * @param receiver The UUID of the player who has to answer it.
+ * @param type Whether the requester (TPA) or the receiver (TPA Here) would be teleported.
+ * @param bulk Whether the request is part of a /tpaall request.
+ */
+public record PendingRequest(UUID requester, UUID receiver, RequestType type, boolean bulk) {}
@@ -0,0 +1,61 @@
+package dev.matkeg.tpask.api;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * What came of a call to the TPAskService. The players involved are told
+ * about it with the same messages the commands would show.
+ */
+public enum Result {
+    /** The request could be sent (only returned by checks). */
+    OK(true),
+    /** The request was sent. */
+    SENT(true),
+    /** The request was accepted and the teleport is on its way. */
+    ACCEPTED(true),
+    /** The request was denied. */
+    DENIED(true),
+    /** The request was cancelled by its requester. */
+    CANCELLED(true),
+    /** The player is being returned to their previous location. */
+    TELEPORTING(true),
+    /** The request belongs to another server of the network and was passed on. */
+    FORWARDED(true),
+
+    /** One of the players is not online. */
+    NOT_ONLINE(false),
+    /** The requester tried to send a request to themselves. */
+    SELF(false),
+    /** The requester already has an outgoing request. */
+    HAS_OUTGOING(false),
+    /** The requester has an incoming request to answer first. */
+    HAS_INCOMING(false),
+    /** The other player already has a request. */
+    OTHER_BUSY(false),
+    /** The other player has turned their requests off (/tptoggle). */
+    REQUESTS_OFF(false),
+    /** The other player has blocked the requester (/tpblock). */
+    BLOCKED(false),
+    /** The teleport would leave or enter a no-teleport zone. */
+    NO_TELEPORT_ZONE(false),
+    /** One of the players fought another player too recently (combat tag). */
+    IN_COMBAT(false),
+    /** The requester is on a request cooldown. */
+    ON_COOLDOWN(false),
+    /** There is no request to answer or cancel. */
+    NO_REQUEST(false),
+    /** The player has no previous location to return to. */
+    NO_PREVIOUS_LOCATION(false),
+    /** The feature is disabled in config.yml. */
+    DISABLED(false),
+    /** A listener of one of the TPAsk events cancelled it. */
+    CANCELLED_BY_PLUGIN(false);
+
+    // Variables
+    private final boolean success;
+
+    // Constructor
+    Result(boolean success) { this.success = success; }
+
+    /** @return <b>True</b> if the call did what it was asked to. */
+    public boolean isSuccess() { return success; }
+}
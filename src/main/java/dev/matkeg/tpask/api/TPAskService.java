@@ -0,0 +1,83 @@
+package dev.matkeg.tpask.api;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.List;
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Drives TPAsk without going through its commands. Get it from Bukkit's
+ * ServicesManager:
+ * <pre>
+ * TPAskService tpask = Bukkit.getServicesManager().load(TPAskService.class);
+ * </pre>
+ * Actions can be called from any thread. They run on the thread which owns
+ * the acting player (the main thread on Paper), apply the same checks and
+ * show the same messages as the commands, and complete with a Result.
+ */
+public interface TPAskService {
+
+    /**
+     * Sends a request, like /tpa or /tpahere.
+     *
+     * @param requester The player sending the request.
+     * @param receiver The player who has to answer it.
+     * @param type TPA to teleport the requester, TPAHERE to teleport the receiver.
+     */
+    CompletableFuture<Result> request(Player requester, Player receiver, RequestType type);
+
+    /**
+     * Accepts the player's incoming request, like /tpaccept.
+     * @param receiver The player answering the request.
+     */
+    CompletableFuture<Result> accept(Player receiver);
+
+    /**
+     * Denies the player's incoming request, like /tpdeny.
+     * @param receiver The player answering the request.
+     */
+    CompletableFuture<Result> deny(Player receiver);
+
+    /**
+     * Cancels the player's outgoing request, like /tpcancel.
+     * @param requester The player who sent the request.
+     */
+    CompletableFuture<Result> cancel(Player requester);
+
+    /**
+     * Returns the player to where they were before their last teleport, like /back.
+     * @param player The player to return.
+     */
+    CompletableFuture<Result> back(Player player);
+
+    /**
+     * Checks whether a request could be sent right now, without sending it
+     * or telling the players anything.
+     *
+     * @param requester The player who would send the request.
+     * @param receiver The player who would have to answer it.
+     * @param type TPA to teleport the requester, TPAHERE to teleport the receiver.
+     * @return OK, or the first reason the request would be refused.
+     */
+    CompletableFuture<Result> check(Player requester, Player receiver, RequestType type);
+
+    /** @return <b>True</b> if the player has a request to answer. */
+    boolean hasIncoming(UUID player);
+
+    /** @return <b>True</b> if the player has sent a request which is still pending. */
+    boolean hasOutgoing(UUID player);
+
+    /** @return The seconds left of the player's request cooldown, 0 if there is none. */
+    long cooldownRemaining(UUID player);
+
+    /**
+     * Returns the requests between players of this server which are still
+     * waiting for an answer. Safe to call from any thread; the list is a
+     * read-only copy and doesn't change afterwards.
+     */
+    List<PendingRequest> getPendingRequests();
+}
@@ -0,0 +1,29 @@
+package dev.matkeg.tpask.api.event;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.Bukkit;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * The base of every TPAsk event. They are fired on the thread which owns the
+ * players involved, which is the main thread on Paper, and are only created
+ * while something listens to them.
+ */
+public abstract class TpaEvent extends Event implements Cancellable {
+    // Variables
+    private boolean cancelled;
+
+    // Constructor
+    protected TpaEvent() {
+        super(!Bukkit.isPrimaryThread());
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    @Override
+    public boolean isCancelled() { return cancelled; }
+
+    @Override
+    public void setCancelled(boolean cancel) { this.cancelled = cancel; }
+}
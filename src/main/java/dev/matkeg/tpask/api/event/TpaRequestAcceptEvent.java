@@ -0,0 +1,32 @@
+package dev.matkeg.tpask.api.event;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Fired when a receiver accepts a request, before it is taken off the pending
+ * requests. Cancelling it leaves the request pending until it expires.
+ */
+public class TpaRequestAcceptEvent extends TpaRequestEvent {
+    // Handlers
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    // Constructor
+    public TpaRequestAcceptEvent(UUID requesterId, UUID receiverId, RequestType type) {
+        super(requesterId, receiverId, type);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return <b>True</b> if anything listens to this event. */
+    public static boolean hasListeners() { return HANDLERS.getRegisteredListeners().length > 0; }
+
+    public static HandlerList getHandlerList() { return HANDLERS; }
+
+    @Override
+    public HandlerList getHandlers() { return HANDLERS; }
+}
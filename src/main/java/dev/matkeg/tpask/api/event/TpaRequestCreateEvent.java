@@ -0,0 +1,32 @@
+package dev.matkeg.tpask.api.event;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Fired before a request is created. Cancelling it stops the request
+ * without any message, so the listener should explain why.
+ */
+public class TpaRequestCreateEvent extends TpaRequestEvent {
+    // Handlers
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    // Constructor
+    public TpaRequestCreateEvent(UUID requesterId, UUID receiverId, RequestType type) {
+        super(requesterId, receiverId, type);
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return <b>True</b> if anything listens to this event. */
+    public static boolean hasListeners() { return HANDLERS.getRegisteredListeners().length > 0; }
+
+    public static HandlerList getHandlerList() { return HANDLERS; }
+
+    @Override
+    public HandlerList getHandlers() { return HANDLERS; }
+}
@@ -0,0 +1,43 @@
+package dev.matkeg.tpask.api.event;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * An event about a single request between two players on this server.
+ * A /tpaall request counts as one TPA Here request per receiver.
+ */
+public abstract class TpaRequestEvent extends TpaEvent {
+    // Variables
+    private final UUID requesterId, receiverId;
+    private final RequestType type;
+
+    // Constructor
+    protected TpaRequestEvent(UUID requesterId, UUID receiverId, RequestType type) {
+        this.requesterId = requesterId;
+        this.receiverId = receiverId;
+        this.type = type;
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The UUID of the player who sent the request. */
+    public UUID getRequesterId() { return requesterId; }
+
+    /** @return The UUID of the player who received the request. */
+    public UUID getReceiverId() { return receiverId; }
+
+    /** @return The player who sent the request, or null if they are offline. */
+    public Player getRequester() { return Bukkit.getPlayer(requesterId); }
+
+    /** @return The player who received the request, or null if they are offline. */
+    public Player getReceiver() { return Bukkit.getPlayer(receiverId); }
+
+    /** @return Whether the requester (TPA) or the receiver (TPA Here) would be teleported. */
+    public RequestType getType() { return type; }
+}
@@ -0,0 +1,44 @@
+package dev.matkeg.tpask.api.event;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Fired when a request ends without a teleport. Cancelling a denial or a
+ * cancellation leaves the request pending; a /tpaall request is asked about
+ * once per receiver. Expiries and requests ended because a player left are
+ * only reported; cancelling them has no effect.
+ */
+public class TpaRequestResolveEvent extends TpaRequestEvent {
+    // Handlers
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    // Enums
+    public enum Resolution { DENY, CANCEL, EXPIRE, DISCONNECT }
+
+    // Variables
+    private final Resolution resolution;
+
+    // Constructor
+    public TpaRequestResolveEvent(UUID requesterId, UUID receiverId, RequestType type, Resolution resolution) {
+        super(requesterId, receiverId, type);
+        this.resolution = resolution;
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return How the request ended. */
+    public Resolution getResolution() { return resolution; }
+
+    /** @return <b>True</b> if anything listens to this event. */
+    public static boolean hasListeners() { return HANDLERS.getRegisteredListeners().length > 0; }
+
+    public static HandlerList getHandlerList() { return HANDLERS; }
+
+    @Override
+    public HandlerList getHandlers() { return HANDLERS; }
+}
@@ -0,0 +1,64 @@
+package dev.matkeg.tpask.api.event;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+
+import org.bukkit.event.HandlerList;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Fired right before TPAsk teleports a player, after the delay and the queue.
+ * The destination can be changed; cancelling the event skips the teleport
+ * and its hunger penalty without any message.
+ */
+public class TpaTeleportEvent extends TpaEvent {
+    // Handlers
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    // Variables
+    private final Player player;
+    private final TeleportReason reason;
+    private final Location from;
+    private Location destination;
+
+    // Constructor
+    public TpaTeleportEvent(Player player, TeleportReason reason, Location from, Location destination) {
+        this.player = player;
+        this.reason = reason;
+        this.from = from;
+        this.destination = destination;
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The player who is about to be teleported. */
+    public Player getPlayer() { return player; }
+
+    /** @return What caused the teleport. */
+    public TeleportReason getReason() { return reason; }
+
+    /** @return A copy of where the player is teleported from. */
+    public Location getFrom() { return from.clone(); }
+
+    /** @return Where the player will be teleported to. */
+    public Location getDestination() { return destination; }
+
+    /**
+     * Changes where the player will be teleported to.
+     * @param destination The new destination, which must have a world.
+     */
+    public void setDestination(Location destination) {
+        if (destination == null || destination.getWorld() == null)
+            throw new IllegalArgumentException("The destination must have a world");
+        this.destination = destination;
+    }
+
+    /** @return <b>True</b> if anything listens to this event. */
+    public static boolean hasListeners() { return HANDLERS.getRegisteredListeners().length > 0; }
+
+    public static HandlerList getHandlerList() { return HANDLERS; }
+
+    @Override
+    public HandlerList getHandlers() { return HANDLERS; }
+}
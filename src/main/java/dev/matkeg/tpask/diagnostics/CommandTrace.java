@@ -0,0 +1,210 @@
+package dev.matkeg.tpask.diagnostics;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * The binary format of the command trace files written by the TraceManager.
+ * <br><br>
+ * A file starts with a header (magic, version, start time in epoch millis) and
+ * is followed by one record per command:
+ * <pre>
+ * varlong  millis since the previous record
+ * long     anonymized sender
+ * varint   command (string table reference)
+ * varint   argument count
+ *   byte     0 = literal (varint string table reference), 1 = player (long),
+ *            2 = hashed literal (long)
+ * </pre>
+ * Strings are interned per file: a reference equal to the current table size
+ * is followed by the UTF string itself, which then gets that index. Players are
+ * stored as salted hashes of their UUIDs, so a trace contains no names or UUIDs.
+ * Other arguments which could be names (homes, warps, offline players, typos)
+ * are stored as salted hashes of their text.
+ */
+public final class CommandTrace {
+    // Format
+    public static final int MAGIC = 0x54505452; // "TPTR"
+    public static final int VERSION = 2;
+    public static final String FILE_SUFFIX = ".tptrace";
+    private static final byte ARG_LITERAL = 0, ARG_PLAYER = 1, ARG_HASHED = 2;
+
+    private CommandTrace() {}
+
+    /**
+     * A single recorded command.
+     *
+     * @param offset Millis since the start of the trace.
+     * @param sender The anonymized sender.
+     * @param command The invoked command's name.
+     * @param args The arguments, with the player and hashed arguments set to null.
+     * @param argPlayers The anonymized players, 0 elsewhere.
+     * @param argHashed The hashed literals, 0 elsewhere.
+     */
+    public record Entry(long offset, long sender, String command, String[] args, long[] argPlayers, long[] argHashed) {}
+
+    /* ---------------------- WRITER ---------------------- */
+
+    /** Writes a single trace file. Not thread-safe. */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final long start;
+        private long last;
+
+        public Writer(File file, long start) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+            this.start = this.last = start;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(start);
+        }
+
+        /**
+         * Appends a command to the trace.
+         *
+         * @param time When the command was run (epoch millis).
+         * @param sender The anonymized sender.
+         * @param command The invoked command's name.
+         * @param args The arguments; ignored where argPlayers or argHashed is set.
+         * @param argPlayers The anonymized players, 0 elsewhere.
+         * @param argHashed The hashed literals, 0 elsewhere.
+         */
+        public void write(long time, long sender, String command, String[] args, long[] argPlayers,
+                          long[] argHashed) throws IOException {
+            writeVarLong(Math.max(0, time - last));
+            last = Math.max(last, time);
+
+            out.writeLong(sender);
+            writeString(command);
+            writeVarLong(args.length);
+            for (int i = 0; i < args.length; i++) {
+                if (argPlayers[i] != 0) {
+                    out.writeByte(ARG_PLAYER);
+                    out.writeLong(argPlayers[i]);
+                } else if (argHashed[i] != 0) {
+                    out.writeByte(ARG_HASHED);
+                    out.writeLong(argHashed[i]);
+                } else {
+                    out.writeByte(ARG_LITERAL);
+                    writeString(args[i]);
+                }
+            }
+        }
+
+        /** @return The bytes written so far (including the buffered ones). */
+        public int size() { return out.size(); }
+
+        /** @return The start time of this trace (epoch millis). */
+        public long start() { return start; }
+
+        public void flush() throws IOException { out.flush(); }
+
+        @Override
+        public void close() throws IOException { out.close(); }
+
+        private void writeString(String s) throws IOException {
+            Integer ref = strings.get(s);
+            if (ref != null) { writeVarLong(ref); return; }
+
+            writeVarLong(strings.size());
+            out.writeUTF(s);
+            strings.put(s, strings.size());
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /* ---------------------- READER ---------------------- */
+
+    /** Reads a single trace file, record by record. */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final long start;
+        private long offset;
+
+        public Reader(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+            if (in.readInt() != MAGIC) { in.close(); throw new IOException(file + " is not a command trace"); }
+
+            int version = in.readUnsignedByte();
+            if (version != VERSION) { in.close(); throw new IOException("Unsupported trace version " + version + ": " + file); }
+            this.start = in.readLong();
+        }
+
+        /** @return The start time of this trace (epoch millis). */
+        public long start() { return start; }
+
+        /** @return The next entry, or null at the end of the file. */
+        public Entry next() throws IOException {
+            long delta;
+            try { delta = readVarLong(); } catch (EOFException e) { return null; }
+            offset += delta;
+
+            long sender = in.readLong();
+            String command = readString();
+            int count = (int) readVarLong();
+            String[] args = new String[count];
+            long[] argPlayers = new long[count], argHashed = new long[count];
+            for (int i = 0; i < count; i++) {
+                byte kind = in.readByte();
+                if (kind == ARG_PLAYER) argPlayers[i] = in.readLong();
+                else if (kind == ARG_HASHED) argHashed[i] = in.readLong();
+                else args[i] = readString();
+            }
+            return new Entry(offset, sender, command, args, argPlayers, argHashed);
+        }
+
+        /** Reads every remaining entry. A record cut short by a crash ends the list. */
+        public List<Entry> readAll() throws IOException {
+            List<Entry> entries = new ArrayList<>();
+            try {
+                for (Entry e = next(); e != null; e = next()) entries.add(e);
+            } catch (EOFException ignored) {}
+            return entries;
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+
+        private String readString() throws IOException {
+            int ref = (int) readVarLong();
+            if (ref < strings.size()) return strings.get(ref);
+            if (ref != strings.size()) throw new IOException("Corrupt string table reference " + ref);
+
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varlong");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package dev.matkeg.tpask.diagnostics;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+
+import dev.matkeg.tpask.utilities.OutputUtils.DebugChannel;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Field;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.IdentityHashMap;
+import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Looks for players TPAsk still holds on to after they left (debug.leaks).
+ * <br><br>
+ * When a player quits, the Player object and every Location TPAsk keeps for
+ * them are remembered through weak references, so the check itself keeps
+ * nothing alive. Some seconds later everything reachable from the plugin's
+ * modules is walked again, and each of them still found is reported together
+ * with the path it was reached through.
+ * <br><br>
+ * The walk follows fields of TPAsk's own classes (lambdas included), the
+ * contents of maps, collections and arrays, and the tasks handed to the
+ * scheduler. Anything else, e.g. Bukkit's own objects, is not entered.
+ */
+public class LeakDetector {
+    // Modules
+    private final PluginMain plugin;
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+    private final SchedulerUtils schedU;
+
+    // Limits and defaults
+    private int delayDef = 10, delayMin = 1, delayMax = 300;
+    private static final int MAX_OBJECTS = 200_000;
+    private static final String OWN_PACKAGE = "dev.matkeg.tpask.";
+
+    // Constructor
+    public LeakDetector(PluginMain plugin) {
+        this.plugin = plugin;
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.schedU = plugin.getSchedulerUtils();
+    }
+
+    // An object on the walk, the path it was reached through and whether it belongs to the watched player
+    private record Node(Object obj, String path, boolean owned) {}
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Starts watching the given player, who is leaving. Must be called
+     * before their state is cleaned up, so their Locations can still be
+     * found. Does nothing unless debug.leaks is enabled.
+     *
+     * @param player The player who is leaving the server.
+     */
+    public void watch(Player player) {
+        if (!output.isDebugEnabled(DebugChannel.LEAKS)) return;
+
+        String name = player.getName();
+        List<WeakReference<Object>> watched = new ArrayList<>();
+        watched.add(new WeakReference<>(player));
+        for (Location loc : locationsOf(player)) watched.add(new WeakReference<>(loc));
+
+        int seconds = conU.getInt("debug.leak_check_after", delayDef, delayMin, delayMax);
+        schedU.runLater(() -> check(name, watched, seconds), seconds * 20L);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // Every Location held next to the player (or their UUID), or inside something which is
+    private List<Location> locationsOf(Player player) {
+        UUID plrId = player.getUniqueId();
+        List<Location> found = new ArrayList<>();
+        walk((node, children) -> {
+            if (node.owned() && node.obj() instanceof Location loc) found.add(loc);
+            if (node.owned() || children == null) return node.owned();
+            for (Object child : children)
+                if (child == player || plrId.equals(child)) return true;
+            return false;
+        });
+        return found;
+    }
+
+    private void check(String name, List<WeakReference<Object>> watched, int seconds) {
+        Map<Object, Boolean> alive = new IdentityHashMap<>();
+        for (WeakReference<Object> ref : watched) {
+            Object obj = ref.get();
+            if (obj != null) alive.put(obj, Boolean.TRUE);
+        }
+
+        int[] leaks = { 0 };
+        if (!alive.isEmpty()) {
+            walk((node, children) -> {
+                if (alive.remove(node.obj()) != null) {
+                    leaks[0]++;
+                    String kind = node.obj() instanceof Player ? "Player" : "Location";
+                    output.debugWarn(DebugChannel.LEAKS, () -> name + "'s " + kind
+                            + " is still reachable " + seconds + "s after they left: " + node.path());
+                }
+                return false;
+            });
+        }
+        if (leaks[0] == 0) output.debug(DebugChannel.LEAKS,
+                () -> "Nothing of " + name + "'s is reachable from TPAsk " + seconds + "s after they left.");
+    }
+
+    // Called for every object on the walk with its children (null for leaves), returns whether they are owned
+    private interface Visitor {
+        boolean visit(Node node, List<Object> children);
+    }
+
+    // Walks everything reachable from the plugin's modules, breadth first
+    private void walk(Visitor visitor) {
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(new Node(plugin, "PluginMain", false));
+        seen.put(plugin, Boolean.TRUE);
+
+        while (!queue.isEmpty() && seen.size() < MAX_OBJECTS) {
+            Node node = queue.poll();
+            List<String> names = new ArrayList<>();
+            List<Object> children = children(node.obj(), names);
+            boolean owned = visitor.visit(node, children);
+            if (children == null) continue;
+
+            for (int i = 0; i < children.size(); i++) {
+                Object child = children.get(i);
+                if (child == null || seen.put(child, Boolean.TRUE) != null) continue;
+                queue.add(new Node(child, node.path() + names.get(i), owned));
+            }
+        }
+    }
+
+    // The objects the walk goes on to, or null if it stops here
+    private List<Object> children(Object obj, List<String> names) {
+        List<Object> children = new ArrayList<>();
+        try {
+            if (obj instanceof Map<?, ?> map) {
+                // Entries are copied, so each one is a node of its own (owned if keyed by the player)
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    children.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+                    names.add("[" + describeKey(entry.getKey()) + "]");
+                }
+            } else if (obj instanceof SimpleImmutableEntry<?, ?> entry) {
+                children.add(entry.getKey()); names.add(".key");
+                children.add(entry.getValue()); names.add("");
+            } else if (obj instanceof Collection<?> collection) {
+                int i = 0;
+                for (Object element : collection) { children.add(element); names.add("[" + i++ + "]"); }
+            } else if (obj instanceof Object[] array) {
+                for (int i = 0; i < array.length; i++) { children.add(array[i]); names.add("[" + i + "]"); }
+            } else if (isOwn(obj.getClass())) {
+                addFields(obj, children, names, false);
+            } else if (obj instanceof BukkitTask || obj instanceof ScheduledTask) {
+                addFields(obj, children, names, true);
+            } else return null;
+        } catch (RuntimeException e) {
+            // Changed while being walked, or not accessible; skip what's left of it
+        }
+        return children;
+    }
+
+    // Adds the object's instance fields, only those holding TPAsk's objects for foreign classes
+    private void addFields(Object obj, List<Object> children, List<String> names, boolean ownValuesOnly) {
+        for (Class<?> cls = obj.getClass(); cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            // Stop at Bukkit's classes, e.g. JavaPlugin
+            if (!ownValuesOnly && !isOwn(cls)) break;
+
+            for (Field field : cls.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) continue;
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(obj);
+                    if (value == null || (ownValuesOnly && !isOwn(value.getClass()))) continue;
+                    children.add(value);
+                    names.add("." + field.getName());
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    // Not accessible, skip it
+                }
+            }
+        }
+    }
+
+    private static boolean isOwn(Class<?> cls) {
+        return cls.getName().startsWith(OWN_PACKAGE);
+    }
+
+    private static String describeKey(Object key) {
+        if (key instanceof Player plr) return plr.getName();
+        if (key instanceof UUID || key instanceof String || key instanceof Enum<?>) return key.toString();
+        return "?";
+    }
+}
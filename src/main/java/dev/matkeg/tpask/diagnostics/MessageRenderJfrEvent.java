@@ -0,0 +1,24 @@
+package dev.matkeg.tpask.diagnostics;
+
+import jdk.jfr.StackTrace;
+import jdk.jfr.Description;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+@Name("dev.matkeg.tpask.MessageRender")
+@Label("TPAsk Message Render")
+@Category({"TPAsk", "Messages"})
+@Description("A localized message was looked up, colored and deserialized into a component.")
+@StackTrace(false)
+public final class MessageRenderJfrEvent extends Event {
+    // Fields
+    @Label("Message Key")
+    public String key;
+
+    @Label("Length")
+    @Description("Length of the raw message string after placeholder replacement.")
+    public int length;
+}
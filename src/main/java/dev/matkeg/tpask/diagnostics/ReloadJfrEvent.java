@@ -0,0 +1,23 @@
+package dev.matkeg.tpask.diagnostics;
+
+import jdk.jfr.StackTrace;
+import jdk.jfr.Description;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+@Name("dev.matkeg.tpask.Reload")
+@Label("TPAsk Reload")
+@Category({"TPAsk", "Configuration"})
+@Description("The configuration file or the language and color files were reloaded.")
+@StackTrace(false)
+public final class ReloadJfrEvent extends Event {
+    // Fields
+    @Label("Target")
+    public String target;
+
+    @Label("Language Pack")
+    public String languagePack;
+}
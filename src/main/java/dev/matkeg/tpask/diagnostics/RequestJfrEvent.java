@@ -0,0 +1,71 @@
+package dev.matkeg.tpask.diagnostics;
+
+import jdk.jfr.StackTrace;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+@Name("dev.matkeg.tpask.Request")
+@Label("TPAsk Request")
+@Category({"TPAsk", "Requests"})
+@Description("A TPA request was created, accepted, denied, canceled or expired.")
+@StackTrace(false)
+public final class RequestJfrEvent extends Event {
+    // Fields
+    @Label("Action")
+    String action;
+
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Requester")
+    String requester;
+
+    @Label("Receiver")
+    String receiver;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Commits a request lifecycle event if a recording is capturing it.
+     * Does nothing (and allocates nothing worth mentioning) otherwise.
+     *
+     * @param action The lifecycle step, e.g. "CREATE" or "EXPIRE".
+     * @param requestType The type of the request, may be null.
+     * @param requester The requester's name.
+     * @param receiver The receiver's name.
+     */
+    public static void emit(String action, Object requestType, String requester, String receiver) {
+        RequestJfrEvent event = new RequestJfrEvent();
+        if (!event.shouldCommit()) return;
+
+        event.action = action;
+        event.requestType = requestType != null ? requestType.toString() : null;
+        event.requester = requester;
+        event.receiver = receiver;
+        event.commit();
+    }
+
+    /**
+     * Commits the lifecycle event of a /tpaall request, which has a number of receivers
+     * instead of one; the receiver is only written out once the event is recorded.
+     *
+     * @param action The lifecycle step, e.g. "CREATE" or "EXPIRE".
+     * @param requestType The type of the request, may be null.
+     * @param requester The requester's name.
+     * @param receivers How many players received the request.
+     */
+    public static void emitBulk(String action, Object requestType, String requester, int receivers) {
+        RequestJfrEvent event = new RequestJfrEvent();
+        if (!event.shouldCommit()) return;
+
+        event.action = action;
+        event.requestType = requestType != null ? requestType.toString() : null;
+        event.requester = requester;
+        event.receiver = receivers + " players";
+        event.commit();
+    }
+}
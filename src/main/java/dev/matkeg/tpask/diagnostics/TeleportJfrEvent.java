@@ -0,0 +1,84 @@
+package dev.matkeg.tpask.diagnostics;
+
+import jdk.jfr.StackTrace;
+import jdk.jfr.Description;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+@Name("dev.matkeg.tpask.Teleport")
+@Label("TPAsk Teleport")
+@Category({"TPAsk", "Teleports"})
+@Description("A teleport performed (or aborted) by TPAsk. The duration covers the "
+           + "synchronous teleport call, including any chunk loading it waited for.")
+@StackTrace(false)
+public final class TeleportJfrEvent extends Event {
+    // Outcomes
+    public static final String COMPLETE = "COMPLETE";
+    public static final String ABORT = "ABORT";
+
+    // Fields
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Subject")
+    String subject;
+
+    @Label("From World")
+    String fromWorld;
+
+    @Label("To World")
+    String toWorld;
+
+    @Label("Distance")
+    @Description("Distance in blocks, or -1 for cross-world teleports.")
+    double distance;
+
+    @Label("Cross World")
+    boolean crossWorld;
+
+    @Label("Destination Chunk Loaded")
+    @Description("Whether the destination chunk was already loaded before teleporting.")
+    boolean destinationChunkLoaded;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Fills in the teleport's details. */
+    public void describe(String subject, String fromWorld, String toWorld,
+            double distance, boolean crossWorld, boolean destinationChunkLoaded) {
+        this.subject = subject;
+        this.fromWorld = fromWorld;
+        this.toWorld = toWorld;
+        this.distance = distance;
+        this.crossWorld = crossWorld;
+        this.destinationChunkLoaded = destinationChunkLoaded;
+    }
+
+    /** Ends the event and commits it with the given outcome. */
+    public void finish(String outcome, String reason) {
+        this.outcome = outcome;
+        this.reason = reason;
+        this.commit();
+    }
+
+    /**
+     * Commits an instant abort event for a teleport which never reached
+     * the actual teleport call (e.g. the player moved during the delay).
+     *
+     * @param subject The name of the player who would have been teleported.
+     * @param reason Why the teleport was aborted.
+     */
+    public static void abort(String subject, String reason) {
+        TeleportJfrEvent event = new TeleportJfrEvent();
+        if (!event.shouldCommit()) return;
+
+        event.subject = subject;
+        event.distance = -1;
+        event.finish(ABORT, reason);
+    }
+}
@@ -0,0 +1,450 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.MappedByteBuffer;
+import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.List;
+import java.util.UUID;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public class AuditManager {
+    // Modules
+    private final PluginMain plugin;
+    private final ConfigUtils conU;
+    private final OutputUtils output;
+    private final SchedulerUtils schedU;
+    private final LanguageManager langMan;
+
+    // Formatting
+    private static final DateTimeFormatter ENTRY_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+    private static final String SEGMENT_PREFIX = "audit-", SEGMENT_SUFFIX = ".csv";
+
+    // Variables
+    private final File folder;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(65536);
+    private volatile boolean enabled = false;
+    private volatile Thread writerThread; // null while stopped
+    private Thread retired; // A writer told to stop by a reload, which its successor waits for
+
+    // Writer state (only touched by the writer thread)
+    private Writer segment;
+    private LocalDate segmentDate;
+    private int segmentIndex;
+    private long segmentSize, maxSegmentSize;
+    private int retentionDays;
+
+    // Constructor
+    public AuditManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.langMan = plugin.getLanguageManager();
+        this.folder = new File(plugin.getDataFolder(), "audit");
+    }
+
+    // A single teleport, copied out on the main thread and formatted by the writer
+    private record Entry(long time, TeleportReason reason, UUID subject, String name,
+                         String fromWorld, double fromX, double fromY, double fromZ,
+                         String toWorld, double toX, double toY, double toZ,
+                         double distance, int foodLost) {}
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Starts the background writer, if the audit log is enabled in config.yml. */
+    public synchronized void start() {
+        enabled = conU.getBoolean("audit.enabled", true);
+        maxSegmentSize = conU.getInt("audit.max_segment_size_kb", 8192, 64, 1048576) * 1024L;
+        retentionDays = conU.getInt("audit.retention_days", 180, 0, 36500);
+        if (!enabled || writerThread != null) return;
+
+        Thread previous = retired;
+        retired = null;
+        Thread thread = new Thread(() -> drain(previous), "TPAsk-Audit");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    /** Writes out the queued entries and stops the background writer. */
+    public synchronized void shutdown() {
+        Thread thread = stopWriter();
+        if (thread == null) thread = retired;
+        if (thread == null) return;
+        try { thread.join(5000L); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Applies changes to the audit entries of config.yml. The old writer is
+     * only told to stop; the new one waits for it, not the calling thread.
+     */
+    public synchronized void reload() {
+        Thread stopped = stopWriter();
+        if (stopped != null) retired = stopped;
+        start();
+    }
+
+    /**
+     * Records a teleport in the audit log. Only copies the values
+     * out of the given objects; all I/O happens on the writer thread.
+     *
+     * @param subject The player who got teleported.
+     * @param reason What caused the teleport.
+     * @param from Where the player was teleported from.
+     * @param to Where the player was teleported to.
+     * @param foodLost How many food points the hunger penalty took.
+     */
+    public void record(Player subject, TeleportReason reason, Location from, Location to, int foodLost) {
+        if (!enabled || from == null || to == null) return;
+
+        boolean sameWorld = from.getWorld() != null && from.getWorld().equals(to.getWorld());
+        Entry entry = new Entry(System.currentTimeMillis(), reason,
+                subject.getUniqueId(), subject.getName(),
+                worldName(from), from.getX(), from.getY(), from.getZ(),
+                worldName(to), to.getX(), to.getY(), to.getZ(),
+                sameWorld ? from.distance(to) : -1, foodLost);
+
+        if (!queue.offer(entry)) output.warn("The teleport audit queue is full, an entry was dropped.");
+    }
+
+    /**
+     * Handles the /tpa-audit command: looks up the latest teleports of a
+     * player in all audit segments since the given time. The segments are
+     * scanned on an asynchronous thread and the results are sent back on
+     * the main thread.
+     *
+     * @param invoker The player who ran the command.
+     * @param cmd The invoked command's name.
+     * @param args The player's name and an optional "since" argument
+     *             (e.g. 12h, 7d, 2w or 2025-01-31).
+     */
+    public void query(Player invoker, String cmd, String[] args) {
+        MessageUtils msgU = plugin.getMessageUtils();
+        if (args.length < 1 || args.length > 2) {
+            msgU.userMessage(invoker, "usage_help_audit", "%COMMAND%", cmd);
+            return;
+        }
+
+        Long since = args.length == 2 ? parseSince(args[1]) : Long.valueOf(0L);
+        if (since == null) {
+            msgU.userMessage(invoker, "usage_help_audit", "%COMMAND%", cmd);
+            return;
+        }
+
+        // Prefer matching by UUID, fall back to the recorded name
+        String name = args[0];
+        OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(name);
+        UUID uuid = cached != null ? cached.getUniqueId() : null;
+        int limit = conU.getInt("audit.query_results", 10, 1, 100);
+
+        msgU.chatMessage(invoker, "audit_searching", "%OTHER%", name);
+        schedU.runAsync(() -> {
+            List<String> results;
+            try {
+                results = scan(uuid, name, since, limit);
+            } catch (IOException e) {
+                output.error("Could not read the teleport audit log:", e.getMessage());
+                results = List.of();
+            }
+
+            List<String> found = results;
+            schedU.run(() -> {
+                if (!invoker.isOnline()) return;
+                if (found.isEmpty()) {
+                    msgU.chatMessage(invoker, "audit_no_results", "%OTHER%", name);
+                    return;
+                }
+                // Through the same queue as the header, so the lines can't overtake it
+                msgU.chatMessage(invoker, "audit_header", "%OTHER%", name);
+                for (String line : found) msgU.chatMessage(invoker, "audit_entry", "%ENTRY%", line);
+            });
+        });
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private static String worldName(Location loc) {
+        return loc.getWorld() != null ? loc.getWorld().getName().replace(',', '_') : "?";
+    }
+
+    // Parses "30m", "12h", "7d", "2w" or an ISO date into epoch millis
+    private static Long parseSince(String arg) {
+        try {
+            if (arg.matches("\\d{4}-\\d{2}-\\d{2}"))
+                return LocalDate.parse(arg).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+            long amount = Long.parseLong(arg.substring(0, arg.length() - 1));
+            long unit = switch (Character.toLowerCase(arg.charAt(arg.length() - 1))) {
+                case 'm' -> 60_000L;
+                case 'h' -> 3_600_000L;
+                case 'd' -> 86_400_000L;
+                case 'w' -> 604_800_000L;
+                default -> -1L;
+            };
+            return unit > 0 && amount >= 0 ? System.currentTimeMillis() - amount * unit : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /* ------------------- WRITER THREAD ------------------ */
+
+    // Tells the writer to write out what is queued and stop, without waiting for it
+    private Thread stopWriter() {
+        enabled = false;
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) thread.interrupt();
+        return thread;
+    }
+
+    private void drain(Thread previous) {
+        // The writer state belongs to the previous writer until it closed its segment
+        while (previous != null && previous.isAlive()) {
+            try { previous.join(); } catch (InterruptedException e) { /* Told to stop as well, finish up below */ }
+        }
+
+        Thread self = Thread.currentThread();
+        while (writerThread == self || (writerThread == null && !queue.isEmpty())) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry == null) continue;
+
+                write(entry);
+                // Flush once the burst has been written out
+                if (queue.isEmpty() && segment != null) segment.flush();
+            } catch (InterruptedException e) {
+                Entry entry;
+                while ((entry = queue.poll()) != null) writeQuietly(entry);
+                break;
+            } catch (IOException e) {
+                output.error("Could not write to the teleport audit log:", e.getMessage());
+            }
+        }
+        closeSegment();
+    }
+
+    private void writeQuietly(Entry entry) {
+        try { write(entry); } catch (IOException e) {
+            output.error("Could not write to the teleport audit log:", e.getMessage());
+        }
+    }
+
+    private void write(Entry e) throws IOException {
+        LocalDate date = Instant.ofEpochMilli(e.time()).atZone(ZoneId.systemDefault()).toLocalDate();
+        if (segment == null || !date.equals(segmentDate) || segmentSize >= maxSegmentSize) rotate(date);
+
+        String line = String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%.2f,%.2f,%.2f,%s,%.2f,%.2f,%.2f,%.2f,%d%n",
+                e.time(), e.reason(), e.subject(), e.name(),
+                e.fromWorld(), e.fromX(), e.fromY(), e.fromZ(),
+                e.toWorld(), e.toX(), e.toY(), e.toZ(), e.distance(), e.foodLost());
+
+        segment.write(line);
+        segmentSize += utf8Length(line);
+    }
+
+    // The line's size in the file, which is what rotation compares; world names may be more than ASCII
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) bytes++;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else bytes += 3;
+        }
+        return bytes;
+    }
+
+    private void rotate(LocalDate date) throws IOException {
+        closeSegment();
+        if (!folder.exists() && !folder.mkdirs())
+            throw new IOException("Could not create the audit folder: " + folder);
+
+        // Continue a day's last segment, or start a new one if it's full
+        if (!date.equals(segmentDate)) {
+            segmentDate = date;
+            segmentIndex = 0;
+            while (segmentFile(date, segmentIndex + 1).exists()) segmentIndex++;
+            deleteExpiredSegments();
+        }
+
+        File file = segmentFile(date, segmentIndex);
+        if (file.length() >= maxSegmentSize) file = segmentFile(date, ++segmentIndex);
+
+        segmentSize = file.length();
+        segment = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try { segment.close(); } catch (IOException e) {
+            output.error("Could not close the teleport audit log:", e.getMessage());
+        }
+        segment = null;
+    }
+
+    private File segmentFile(LocalDate date, int index) {
+        return new File(folder, SEGMENT_PREFIX + date + (index > 0 ? "." + index : "") + SEGMENT_SUFFIX);
+    }
+
+    private void deleteExpiredSegments() {
+        if (retentionDays <= 0) return;
+
+        LocalDate oldest = LocalDate.now().minusDays(retentionDays);
+        for (File file : listSegments()) {
+            LocalDate date = segmentDate(file);
+            if (date != null && date.isBefore(oldest) && !file.delete())
+                output.warn("Could not delete the expired audit segment", file.getName());
+        }
+    }
+
+    /* -------------------- QUERY THREAD ------------------ */
+
+    private File[] listSegments() {
+        File[] files = folder.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new File[0];
+
+        // Names sort chronologically (audit-<date>[.<index>].csv)
+        Arrays.sort(files, (a, b) -> {
+            int byDate = a.getName().substring(0, 16).compareTo(b.getName().substring(0, 16));
+            return byDate != 0 ? byDate : Integer.compare(segmentIndex(a), segmentIndex(b));
+        });
+        return files;
+    }
+
+    private static LocalDate segmentDate(File file) {
+        try {
+            return LocalDate.parse(file.getName().substring(SEGMENT_PREFIX.length(), SEGMENT_PREFIX.length() + 10));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int segmentIndex(File file) {
+        String name = file.getName();
+        String rest = name.substring(SEGMENT_PREFIX.length() + 10, name.length() - SEGMENT_SUFFIX.length());
+        try { return rest.isEmpty() ? 0 : Integer.parseInt(rest.substring(1)); }
+        catch (NumberFormatException e) { return 0; }
+    }
+
+    private List<String> scan(UUID uuid, String name, long since, int limit) throws IOException {
+        LocalDate sinceDate = Instant.ofEpochMilli(since).atZone(ZoneId.systemDefault()).toLocalDate();
+        byte[] needle = (uuid != null ? uuid.toString() : name.toLowerCase(Locale.ROOT))
+                .getBytes(StandardCharsets.UTF_8);
+        int field = uuid != null ? 2 : 3;
+
+        // Keep only the latest matches
+        ArrayDeque<String> latest = new ArrayDeque<>(limit);
+        for (File file : listSegments()) {
+            LocalDate date = segmentDate(file);
+            if (date == null || date.isBefore(sinceDate)) continue;
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size == 0) continue;
+
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int start = 0, limitPos = buf.limit();
+                while (start < limitPos) {
+                    int end = start;
+                    while (end < limitPos && buf.get(end) != '\n') end++;
+
+                    if (matches(buf, start, end, field, needle, uuid == null)
+                            && parseTime(buf, start, end) >= since) {
+                        if (latest.size() == limit) latest.pollFirst();
+                        latest.addLast(formatEntry(decode(buf, start, end)));
+                    }
+                    start = end + 1;
+                }
+            }
+        }
+        return new ArrayList<>(latest);
+    }
+
+    // Compares the given CSV field of a line without decoding it
+    private static boolean matches(MappedByteBuffer buf, int start, int end, int field,
+                                   byte[] needle, boolean ignoreCase) {
+        int pos = start;
+        for (int commas = 0; commas < field; pos++) {
+            if (pos >= end) return false;
+            if (buf.get(pos) == ',') commas++;
+        }
+        if (pos + needle.length >= end || buf.get(pos + needle.length) != ',') return false;
+
+        for (int i = 0; i < needle.length; i++) {
+            byte b = buf.get(pos + i);
+            if (ignoreCase && b >= 'A' && b <= 'Z') b += 32;
+            if (b != needle[i]) return false;
+        }
+        return true;
+    }
+
+    private static long parseTime(MappedByteBuffer buf, int start, int end) {
+        long time = 0;
+        for (int pos = start; pos < end; pos++) {
+            byte b = buf.get(pos);
+            if (b == ',') break;
+            time = time * 10 + (b - '0');
+        }
+        return time;
+    }
+
+    private static String decode(MappedByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    // Fills in the language pack's entry line, each part in its color from colors.yml
+    private String formatEntry(String line) {
+        String[] f = line.split(",");
+        if (f.length < 14) return line;
+
+        String text = langMan.getColorForString("audit.text");
+        String time = ENTRY_TIME.format(Instant.ofEpochMilli(Long.parseLong(f[0])));
+        String distance = f[12].startsWith("-")
+                ? langMan.getLocalizedString("audit.cross_world", "cross-world")
+                : langMan.getLocalizedString("audit.distance", "%BLOCKS% blocks").replace("%BLOCKS%", f[12]);
+
+        return text + langMan.getLocalizedString("audit.entry", "%TIME% %REASON% %FROM% → %TO% %DISTANCE%, -%FOOD% food")
+                .replace("%TIME%", langMan.getColorForString("audit.time") + time + text)
+                .replace("%REASON%", langMan.getColorForString("audit.reason") + f[1] + text)
+                .replace("%FROM%", langMan.getColorForString("audit.location") + f[4] + " (" + f[5] + ", " + f[6] + ", " + f[7] + ")" + text)
+                .replace("%TO%", langMan.getColorForString("audit.location") + f[8] + " (" + f[9] + ", " + f[10] + ", " + f[11] + ")" + text)
+                .replace("%DISTANCE%", distance)
+                .replace("%FOOD%", f[13]);
+    }
+}
@@ -0,0 +1,166 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Entity;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Combat tag and arrival grace period (combat section of config.yml).
+ * <br><br>
+ * Players hurt by, or hurting, another player can't send or accept requests,
+ * use /back and the like for a while, and teleports they are waiting for are
+ * called off. Players who just arrived somewhere can't be hurt by other
+ * players for a moment, unless they attack first.
+ * <br><br>
+ * The damage listener runs for every hit on the server, mobs included, so it
+ * returns right away for anything but players and never allocates: every
+ * online player has one holder of two timestamps, created when they join,
+ * and the settings are cached in fields on (re)load.
+ */
+public class CombatManager implements Listener {
+    // Modules
+    private final ConfigUtils conU;
+
+    // Limits and defaults
+    private int tagDef = 10, tagMin = 1, tagMax = 300;
+    private int graceDef = 3, graceMin = 0, graceMax = 60;
+
+    // Constructor
+    public CombatManager(PluginMain plugin) {
+        this.conU = plugin.getConfigUtils();
+        reload();
+    }
+
+    // A player's timestamps, in milliseconds; only ever overwritten
+    private static final class Stamps {
+        volatile long lastPvp = Long.MIN_VALUE / 2;
+        volatile long graceUntil;
+    }
+
+    // Storage
+    private final Map<UUID, Stamps> stamps = new ConcurrentHashMap<>();
+
+    // Settings
+    private volatile boolean enabled;
+    private volatile long tagMillis, graceMillis;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Gives everyone already online their timestamps, e.g. after a reload. */
+    public void start() {
+        for (Player plr : Bukkit.getOnlinePlayers()) stamps.putIfAbsent(plr.getUniqueId(), new Stamps());
+    }
+
+    /** Reads the settings from config.yml again. */
+    public void reload() {
+        enabled = conU.getBoolean("combat.enabled", false);
+        tagMillis = conU.getInt("combat.tag_seconds", tagDef, tagMin, tagMax) * 1000L;
+        graceMillis = conU.getInt("combat.grace_seconds", graceDef, graceMin, graceMax) * 1000L;
+    }
+
+    /**
+     * Checks whether the player took part in PvP within the combat tag.
+     * @param plrId The UUID of the player.
+     * @return <b>True</b> if they can't teleport right now.
+     */
+    public boolean inCombat(UUID plrId) {
+        return combatRemaining(plrId) > 0;
+    }
+
+    /**
+     * Returns how long the player's combat tag still lasts.
+     * @param plrId The UUID of the player.
+     * @return The remaining seconds, rounded up, or 0 if they aren't tagged.
+     */
+    public long combatRemaining(UUID plrId) {
+        if (!enabled) return 0;
+        Stamps s = stamps.get(plrId);
+        if (s == null) return 0;
+
+        long left = s.lastPvp + tagMillis - System.currentTimeMillis();
+        return left > 0 ? (left + 999) / 1000 : 0;
+    }
+
+    /**
+     * Checks whether the player took part in PvP since the given moment,
+     * e.g. while waiting for a teleport.
+     *
+     * @param plrId The UUID of the player.
+     * @param since The moment, from System.currentTimeMillis().
+     * @return <b>True</b> if the teleport should be called off.
+     */
+    public boolean foughtSince(UUID plrId, long since) {
+        if (!enabled) return false;
+        Stamps s = stamps.get(plrId);
+        return s != null && s.lastPvp >= since;
+    }
+
+    /**
+     * Protects the player, who just arrived, from other players for the grace period.
+     * @param plr The teleported player.
+     */
+    public void startGrace(Player plr) {
+        if (!enabled || graceMillis == 0) return;
+        Stamps s = stamps.get(plr.getUniqueId());
+        if (s != null) s.graceUntil = System.currentTimeMillis() + graceMillis;
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        stamps.putIfAbsent(event.getPlayer().getUniqueId(), new Stamps());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        stamps.remove(event.getPlayer().getUniqueId());
+    }
+
+    // Runs for every hit on the server: no allocations, and out early for anything that isn't PvP
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onDamage(EntityDamageByEntityEvent event) {
+        if (!enabled || !(event.getEntity() instanceof Player victim)) return;
+        Player attacker = attackerOf(event.getDamager());
+        if (attacker == null || attacker == victim) return;
+
+        Stamps victimStamps = stamps.get(victim.getUniqueId());
+        Stamps attackerStamps = stamps.get(attacker.getUniqueId());
+        if (victimStamps == null || attackerStamps == null) return;
+
+        long now = System.currentTimeMillis();
+        if (now < victimStamps.graceUntil) {
+            event.setCancelled(true);
+            return;
+        }
+
+        // Attacking ends one's own grace period
+        attackerStamps.graceUntil = 0;
+        victimStamps.lastPvp = now;
+        attackerStamps.lastPvp = now;
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // The player behind the damage, directly or through a projectile they shot
+    private static Player attackerOf(Entity damager) {
+        if (damager instanceof Player plr) return plr;
+        if (damager instanceof Projectile projectile && projectile.getShooter() instanceof Player shooter) return shooter;
+        return null;
+    }
+}
@@ -2,30 +2,60 @@ package dev.matkeg.tpask.managers;
 
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.Command;
 import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
 
 import dev.matkeg.tpask.PluginMain;
 import dev.matkeg.tpask.utilities.*;
 
+import java.util.List;
+
 /* --------------------------- MAIN --------------------------- */
-public class CommandManager implements CommandExecutor {
+public class CommandManager implements CommandExecutor, TabCompleter {
     // Modules
     private final PluginMain plugin;
     private final ConfigUtils conU;
     private final OutputUtils output;
+    private final MessageUtils msgU;
     private final StateManager statMan;
+    private final AuditManager auditMan;
+    private final TraceManager traceMan;
     private final RequestManager reqMan;
+    private final PreferenceManager prefMan;
+    private final InboxManager inboxMan;
+    private final WarpManager warpMan;
+    private final HomeManager homeMan;
+    private final RtpManager rtpMan;
+    private final CountdownManager countdownMan;
+    private final ZoneManager zoneMan;
+    private final CombatManager combatMan;
+    private final EffectManager effectMan;
+    private final WorldRuleManager worldRules;
     private final LanguageManager langMan;
 
     // Constructor
     public CommandManager(PluginMain plugin) {
         this.plugin = plugin;
         this.output = plugin.getOutput();
+        this.msgU = plugin.getMessageUtils();
         this.conU = plugin.getConfigUtils();
         this.reqMan = plugin.getRequestManager();
+        this.prefMan = plugin.getPreferenceManager();
+        this.inboxMan = plugin.getInboxManager();
+        this.warpMan = plugin.getWarpManager();
+        this.homeMan = plugin.getHomeManager();
+        this.rtpMan = plugin.getRtpManager();
+        this.countdownMan = plugin.getCountdownManager();
+        this.zoneMan = plugin.getZoneManager();
+        this.combatMan = plugin.getCombatManager();
+        this.effectMan = plugin.getEffectManager();
+        this.worldRules = plugin.getWorldRuleManager();
         this.statMan = plugin.getStateManager();
+        this.auditMan = plugin.getAuditManager();
+        this.traceMan = plugin.getTraceManager();
         this.langMan = plugin.getLanguageManager();
     }
     
@@ -43,12 +73,25 @@ public class CommandManager implements CommandExecutor {
         String invokedCmd = cmd.getName().toLowerCase();
         Player plr = (Player) sender;
         
+        // Record the invocation for offline replays (opt-in)
+        if (traceMan.isRecording()) traceMan.record(plr, invokedCmd, args);
+        
         // Switch based on the invoked cmd
         switch (invokedCmd) {
             case "tpa": case "tpahere":  
+                // "/tpa gui" opens the inbox, unless someone online is actually called that
+                if ("tpa".equals(invokedCmd) && args.length == 1 && args[0].equalsIgnoreCase("gui")
+                        && Bukkit.getPlayerExact(args[0]) == null) {
+                    inboxMan.open(plr);
+                    return true;
+                }
+                
                 // We cannot use statMan here direcly, we need to check the all
                 // sorts of things, and thus we use reqMan's handleRequestChecks.
                 return reqMan.handleRequestChecks(plr, invokedCmd, args);
+                
+            case "tpaall":
+                return reqMan.handleBulkRequest(plr, invokedCmd, args);
 
             case "tpaccept": 
                 statMan.accept(plr.getUniqueId());
@@ -66,15 +109,85 @@ public class CommandManager implements CommandExecutor {
                 statMan.back(plr);
                 return true;
                 
+            case "tptoggle":
+                prefMan.toggle(plr);
+                return true;
+                
+            case "tpblock":
+                prefMan.block(plr, invokedCmd, args);
+                return true;
+                
+            case "tptrust":
+                prefMan.trust(plr, invokedCmd, args);
+                return true;
+                
+            case "warp":
+                warpMan.warp(plr, invokedCmd, args);
+                return true;
+                
+            case "setwarp":
+                warpMan.setWarp(plr, invokedCmd, args);
+                return true;
+                
+            case "delwarp":
+                warpMan.deleteWarp(plr, invokedCmd, args);
+                return true;
+                
+            case "home":
+                homeMan.home(plr, invokedCmd, args);
+                return true;
+                
+            case "sethome":
+                homeMan.setHome(plr, invokedCmd, args);
+                return true;
+                
+            case "delhome":
+                homeMan.deleteHome(plr, invokedCmd, args);
+                return true;
+                
+            case "rtp":
+                rtpMan.randomTeleport(plr, invokedCmd);
+                return true;
+                
             case "tpa-reload":
                 conU.reloadConfig(plr);
                 langMan.reloadManager();
+                msgU.clearMessageCache();
+                msgU.start();
+                inboxMan.clearCache();
+                rtpMan.reload();
+                countdownMan.reload();
+                effectMan.reload();
+                zoneMan.reload();
+                combatMan.reload();
+                worldRules.reload();
+                auditMan.reload();
+                traceMan.reload();
+                return true;
+                
+            case "tpa-audit":
+                auditMan.query(plr, invokedCmd, args);
                 return true;
                 
             default: return false;
         }
     }
     
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command cmd, String label, String[] args) {
+        // Warp and home names are completed by their managers, everything else keeps Bukkit's player names
+        switch (cmd.getName().toLowerCase()) {
+            case "warp": case "delwarp":
+                return args.length == 1 ? warpMan.complete(args[0]) : List.of();
+            case "home": case "delhome":
+                if (!(sender instanceof Player plr)) return List.of();
+                return args.length == 1 ? homeMan.complete(plr, args[0]) : List.of();
+            case "setwarp": case "sethome":
+                return List.of();
+            default: return null;
+        }
+    }
+    
     /* ---------------------- APIs ------------------------ */
     
     /**
@@ -83,7 +196,9 @@ public class CommandManager implements CommandExecutor {
      */
     public void initializeCommand(String cmd) {
         PluginCommand command = plugin.getCommand(cmd);
-        if (command != null) command.setExecutor(this);
-        else output.error("Command '"+cmd+"' missing from plugin.yml");
+        if (command != null) {
+            command.setExecutor(this);
+            command.setTabCompleter(this);
+        } else output.error("Command '"+cmd+"' missing from plugin.yml");
     }
 }
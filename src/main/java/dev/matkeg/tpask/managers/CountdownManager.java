@@ -0,0 +1,184 @@
+package dev.matkeg.tpask.managers;
+
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.managers.StateManager.PendingVisitor;
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Boss bars counting down the time left on pending requests (boss_bar
+ * section of config.yml), shown to both the requester and the receiver.
+ * <br><br>
+ * A single ticker walks the pending requests and updates every bar, so there
+ * is no task per bar. A bar's progress is only changed when it would look
+ * different, i.e. once it moved by a pixel of the bar, and its title is
+ * rendered once, when it is handed out. Bars of ended requests are hidden
+ * and kept for reuse.
+ */
+public class CountdownManager {
+    // Modules
+    private final ConfigUtils conU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+
+    // Limits and defaults
+    private int periodDef = 2, periodMin = 1, periodMax = 20;
+    private static final int STEPS = 182; // The boss bar's width in pixels
+    private static final int MAX_POOLED = 256;
+
+    // Constructor
+    public CountdownManager(PluginMain plugin) {
+        this.conU = plugin.getConfigUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+    }
+
+    // A bar being shown to one player
+    private static final class Shown {
+        BossBar bar;
+        Player viewer;
+        UUID other;        // null for the requester of a /tpaall request
+        boolean incoming;
+        int step;
+        long generation;
+    }
+
+    // Storage; only touched by the ticker (and start/stop on the same thread)
+    private final Map<UUID, Shown> shown = new HashMap<>();
+    private final ArrayDeque<BossBar> pool = new ArrayDeque<>();
+    private final PendingVisitor visitor = this::visit;
+    private long generation, now;
+    private BossBar.Color color = BossBar.Color.YELLOW;
+    private Task ticker;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Starts the ticker, if boss bars are enabled. */
+    public void start() {
+        if (ticker != null || !conU.getBoolean("boss_bar.enabled", false)) return;
+
+        try {
+            color = BossBar.Color.valueOf(conU.getString("boss_bar.color", "YELLOW").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            color = BossBar.Color.YELLOW;
+        }
+        long period = conU.getInt("boss_bar.update_interval", periodDef, periodMin, periodMax);
+        ticker = schedU.runTimer(task -> tick(), period, period);
+    }
+
+    /** Stops the ticker and hides every bar. */
+    public void stop() {
+        if (ticker != null) ticker.cancel();
+        ticker = null;
+        for (Shown s : shown.values()) s.viewer.hideBossBar(s.bar);
+        shown.clear();
+        pool.clear();
+    }
+
+    /** Applies changed settings; titles may have changed as well, so the bars start over. */
+    public void reload() {
+        if (ticker == null) {
+            start();
+            return;
+        }
+        // Hide the bars on the ticker's thread, which owns them
+        Task old = ticker;
+        ticker = null;
+        old.cancel();
+        schedU.run(() -> { stop(); start(); });
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void tick() {
+        generation++;
+        now = System.currentTimeMillis();
+        statMan.forEachPending(visitor);
+
+        // Whatever wasn't visited belongs to a request which ended
+        for (Iterator<Shown> it = shown.values().iterator(); it.hasNext();) {
+            Shown s = it.next();
+            if (s.generation == generation) continue;
+            it.remove();
+            release(s);
+        }
+    }
+
+    private void visit(UUID requester, UUID receiver, boolean bulk, long sentAt, long expiresAt) {
+        long total = Math.max(1, expiresAt - sentAt);
+        float progress = Math.max(0f, Math.min(1f, (expiresAt - now) / (float) total));
+        update(receiver, requester, true, progress);
+        update(requester, bulk ? null : receiver, false, progress);
+    }
+
+    // Shows or updates the viewer's bar, changing its progress only when it would look different
+    private void update(UUID viewerId, UUID otherId, boolean incoming, float progress) {
+        Shown s = shown.get(viewerId);
+        if (s != null && s.generation == generation) return; // A /tpaall requester, already updated
+
+        if (s != null && (s.incoming != incoming || !Objects.equals(s.other, otherId))) {
+            shown.remove(viewerId);
+            release(s);
+            s = null;
+        }
+        if (s == null) {
+            s = acquire(viewerId, otherId, incoming, progress);
+            if (s == null) return;
+            shown.put(viewerId, s);
+        }
+        s.generation = generation;
+
+        int step = Math.round(progress * STEPS);
+        if (step != s.step) {
+            s.step = step;
+            s.bar.progress(step / (float) STEPS);
+        }
+    }
+
+    // Takes a bar from the pool (or makes one), titles it and shows it to the viewer
+    private Shown acquire(UUID viewerId, UUID otherId, boolean incoming, float progress) {
+        Player viewer = Bukkit.getPlayer(viewerId);
+        if (viewer == null) return null;
+
+        String key = incoming ? "bossbar_incoming" : otherId != null ? "bossbar_outgoing" : "bossbar_bulk";
+        Player other = otherId != null ? Bukkit.getPlayer(otherId) : null;
+        Component title = msgU.renderMessage(key, "%OTHER%", other != null ? other.getName() : "?");
+        if (title == null) title = Component.empty();
+
+        Shown s = new Shown();
+        s.viewer = viewer;
+        s.other = otherId;
+        s.incoming = incoming;
+        s.step = Math.round(progress * STEPS);
+
+        BossBar bar = pool.poll();
+        if (bar == null) bar = BossBar.bossBar(title, s.step / (float) STEPS, color, BossBar.Overlay.PROGRESS);
+        else bar.name(title).progress(s.step / (float) STEPS).color(color);
+        s.bar = bar;
+
+        viewer.showBossBar(bar);
+        return s;
+    }
+
+    private void release(Shown s) {
+        s.viewer.hideBossBar(s.bar);
+        if (pool.size() < MAX_POOLED) pool.push(s.bar);
+    }
+}
@@ -0,0 +1,213 @@
+package dev.matkeg.tpask.managers;
+
+import com.destroystokyo.paper.ParticleBuilder;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Particle;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Particle effects around players waiting out a teleport delay, and where
+ * they arrive (effects section of config.yml).
+ * <br><br>
+ * A single ticker spawns every effect, up to a budget per run: arrivals
+ * first, then the warm-ups in turns, so a mass teleport is spread over
+ * several runs instead of flooding everyone with particle packets. Particles
+ * are only sent to players within the view radius, and nothing is spawned
+ * while the server is slower than max_mspt.
+ */
+public class EffectManager {
+    // Modules
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+    private final SchedulerUtils schedU;
+
+    // Limits and defaults
+    private int periodDef = 4, periodMin = 1, periodMax = 20;
+    private int radiusDef = 32, radiusMin = 8, radiusMax = 128;
+    private int budgetDef = 20, budgetMin = 1, budgetMax = 500;
+    private int countDef = 12, countMin = 1, countMax = 200;
+    private double msptDef = 45.0, msptMin = 10.0, msptMax = 1000.0;
+    private static final int QUEUED_RUNS = 4; // How many runs' worth of arrivals may wait
+
+    // Constructor
+    public EffectManager(PluginMain plugin) {
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.schedU = plugin.getSchedulerUtils();
+    }
+
+    // One effect on one player; spawns itself on the player's thread
+    private final class Effect implements Runnable {
+        final Player player;
+        final ParticleBuilder particles;
+        final long endsAt; // 0 for an arrival, which is spawned once
+
+        Effect(Player player, ParticleBuilder particles, long endsAt) {
+            this.player = player;
+            this.particles = particles;
+            this.endsAt = endsAt;
+        }
+
+        @Override
+        public void run() {
+            if (!player.isValid()) return;
+            particles.location(player.getLocation().add(0, 1, 0)).receivers(radius, true).spawn();
+        }
+    }
+
+    // Storage; registrations come from any thread, the turns are only touched by the ticker
+    private final Map<UUID, Effect> warmups = new ConcurrentHashMap<>();
+    private final Queue<Effect> newWarmups = new ConcurrentLinkedQueue<>();
+    private final Queue<Effect> arrivals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedArrivals = new AtomicInteger();
+    private final ArrayDeque<Effect> turns = new ArrayDeque<>();
+    private Task ticker;
+
+    // Settings
+    private volatile boolean enabled;
+    private volatile Particle warmupParticle, arrivalParticle;
+    private volatile int warmupCount, arrivalCount, radius, budget;
+    private volatile double maxMspt;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Reads the settings and starts the ticker, if effects are enabled. */
+    public void start() {
+        enabled = conU.getBoolean("effects.enabled", false);
+        if (!enabled || ticker != null) return;
+
+        warmupParticle = particle("effects.warmup.particle", Particle.PORTAL);
+        arrivalParticle = particle("effects.arrival.particle", Particle.REVERSE_PORTAL);
+        warmupCount = conU.getInt("effects.warmup.count", countDef, countMin, countMax);
+        arrivalCount = conU.getInt("effects.arrival.count", 40, countMin, countMax);
+        radius = conU.getInt("effects.view_radius", radiusDef, radiusMin, radiusMax);
+        budget = conU.getInt("effects.max_per_run", budgetDef, budgetMin, budgetMax);
+        maxMspt = conU.getDouble("effects.max_mspt", msptDef, msptMin, msptMax);
+
+        long period = conU.getInt("effects.update_interval", periodDef, periodMin, periodMax);
+        ticker = schedU.runTimer(task -> tick(), period, period);
+    }
+
+    /** Stops the ticker and forgets every effect. */
+    public void stop() {
+        enabled = false;
+        if (ticker != null) ticker.cancel();
+        ticker = null;
+        warmups.clear();
+        newWarmups.clear();
+        arrivals.clear();
+        queuedArrivals.set(0);
+        turns.clear();
+    }
+
+    /** Applies changed settings. */
+    public void reload() {
+        Task old = ticker;
+        if (old == null) {
+            start();
+            return;
+        }
+        // The turns belong to the ticker's thread
+        ticker = null;
+        old.cancel();
+        schedU.run(() -> { stop(); start(); });
+    }
+
+    /**
+     * Surrounds the player with the warm-up effect until their teleport is due.
+     *
+     * @param plr The player waiting to be teleported.
+     * @param delayTicks The teleport's delay in ticks.
+     */
+    public void warmup(Player plr, long delayTicks) {
+        if (!enabled || plr == null || delayTicks <= 0) return;
+        Effect effect = new Effect(plr, builder(warmupParticle, warmupCount),
+                System.currentTimeMillis() + delayTicks * 50);
+        warmups.put(plr.getUniqueId(), effect); // Replaces an earlier warm-up
+        newWarmups.add(effect);
+    }
+
+    /**
+     * Plays the arrival effect where the player just arrived. Arrivals which
+     * don't fit the next few runs are dropped.
+     *
+     * @param plr The teleported player.
+     */
+    public void arrival(Player plr) {
+        if (!enabled || plr == null) return;
+        warmups.remove(plr.getUniqueId());
+        if (queuedArrivals.incrementAndGet() > budget * QUEUED_RUNS) {
+            queuedArrivals.decrementAndGet();
+            return;
+        }
+        arrivals.add(new Effect(plr, builder(arrivalParticle, arrivalCount), 0));
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void tick() {
+        for (Effect e; (e = newWarmups.poll()) != null;) turns.add(e);
+
+        // A struggling server gets no particles; late arrivals aren't worth showing anymore
+        if (Bukkit.getAverageTickTime() > maxMspt) {
+            queuedArrivals.addAndGet(-drain(arrivals));
+            return;
+        }
+
+        int left = budget;
+        for (Effect e; left > 0 && (e = arrivals.poll()) != null; left--) {
+            queuedArrivals.decrementAndGet();
+            schedU.run(e.player, e);
+        }
+
+        // Warm-ups take turns, so each gets its share when there are more than the budget
+        long now = System.currentTimeMillis();
+        for (int n = turns.size(); left > 0 && n > 0; n--) {
+            Effect e = turns.poll();
+            if (e.endsAt <= now || !e.player.isValid() || warmups.get(e.player.getUniqueId()) != e) {
+                warmups.remove(e.player.getUniqueId(), e);
+                continue;
+            }
+            schedU.run(e.player, e);
+            turns.add(e);
+            left--;
+        }
+    }
+
+    private static int drain(Queue<Effect> queue) {
+        int n = 0;
+        while (queue.poll() != null) n++;
+        return n;
+    }
+
+    private static ParticleBuilder builder(Particle particle, int count) {
+        return particle.builder().count(count).offset(0.4, 0.8, 0.4).extra(0.05);
+    }
+
+    // Only particles without extra data (colors, blocks, items) can be configured
+    private Particle particle(String path, Particle def) {
+        String name = conU.getString(path, def.name());
+        try {
+            Particle particle = Particle.valueOf(name.toUpperCase(Locale.ROOT));
+            if (particle.getDataType() == Void.class) return particle;
+        } catch (IllegalArgumentException ignored) {}
+
+        output.warn("The particle '" + name + "' at " + path + " can't be used, using " + def.name() + " instead.");
+        return def;
+    }
+}
@@ -0,0 +1,426 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.Files;
+import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.File;
+import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.Locale;
+import java.util.List;
+import java.util.UUID;
+import java.util.Set;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Every player's own homes: /sethome, /home and /delhome. Going home uses the
+ * same delay, freeze, must_stand_still and hunger penalty as an accepted TPA
+ * request.
+ * <br><br>
+ * Each player's homes are a small binary file in plugins/TPAsk/homes, read
+ * while they log in (on the login thread, never the main one) and dropped
+ * again when they leave, so memory follows the online players. Changes are
+ * handed to a background writer, which always writes the latest homes of
+ * each player it has been given.
+ */
+public class HomeManager implements Listener {
+    // Modules
+    private final PluginMain plugin;
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+
+    // Limits and defaults
+    private int limitDef = 1, limitMin = 0, limitMax = 1000;
+    private static final String DEFAULT_NAME = "home";
+    private static final String LIMIT_PERMISSION = "tpask.homes.";
+
+    // Format
+    private static final int MAGIC = 0x5450484D; // "TPHM"
+    private static final int VERSION = 1;
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    // Constructor
+    public HomeManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+    }
+
+    // A home; the world is kept by UUID so homes in worlds which load later still work
+    private record Home(String name, UUID world, double x, double y, double z, float yaw, float pitch) {
+        Location toLocation() {
+            World w = Bukkit.getWorld(world);
+            return w != null ? new Location(w, x, y, z, yaw, pitch) : null;
+        }
+    }
+
+    // Storage
+
+    // player -> their homes by lower-cased name (online players only, replaced as a whole)
+    private final Map<UUID, Map<String, Home>> homes = new ConcurrentHashMap<>();
+    // player -> homes waiting to be written
+    private final Map<UUID, Map<String, Home>> pending = new ConcurrentHashMap<>();
+    // players whose file couldn't be read; they can't change their homes, so the file is never overwritten
+    private final Set<UUID> failed = ConcurrentHashMap.newKeySet();
+    // players whose homes are being read in the background
+    private final Set<UUID> loading = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean writerScheduled = new AtomicBoolean();
+    private final Object fileLock = new Object();
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Loads the homes of everyone already online, e.g. after a reload. */
+    public void start() {
+        for (Player plr : Bukkit.getOnlinePlayers()) loadLater(plr.getUniqueId());
+    }
+
+    /** Writes everything still waiting, on the calling thread. */
+    public void shutdown() {
+        flush();
+        homes.clear();
+    }
+
+    /**
+     * Handles /home: teleports the player to the named home, to their only
+     * home, or lists their homes.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Nothing, or the home's name.
+     */
+    public void home(Player plr, String cmd, String[] args) {
+        Map<String, Home> own = usableHomes(plr, cmd);
+        if (own == null) return;
+        if (args.length > 1) {
+            msgU.userMessage(plr, "usage_help_home", "%COMMAND%", cmd);
+            return;
+        }
+
+        Home home;
+        if (args.length == 1) home = own.get(args[0].toLowerCase(Locale.ROOT));
+        else if (own.size() == 1) home = own.values().iterator().next();
+        else home = own.get(DEFAULT_NAME);
+
+        if (home == null) {
+            if (own.isEmpty()) {
+                msgU.userMessage(plr, "home_none");
+            } else if (args.length == 0) {
+                msgU.chatMessage(plr, "home_list", "%LIST%", String.join(", ", names(own)));
+            } else {
+                plrU.playPresetSound(plr, "error");
+                msgU.userMessage(plr, "home_unknown", "%HOME%", args[0]);
+            }
+            return;
+        }
+        Location dest = home.toLocation();
+        if (dest == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "home_world_missing", "%HOME%", home.name());
+            return;
+        }
+
+        msgU.userMessage(plr, "home_teleporting", "%HOME%", home.name());
+        plrU.playPresetSound(plr, "accepted");
+        statMan.teleportLater(plr, dest, TeleportReason.HOME);
+    }
+
+    /**
+     * Handles /sethome: creates the named home at the player's location,
+     * or moves it there if it exists.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Nothing (for "home"), or the home's name.
+     */
+    public void setHome(Player plr, String cmd, String[] args) {
+        Map<String, Home> own = usableHomes(plr, cmd);
+        if (own == null) return;
+        String name = args.length == 0 ? DEFAULT_NAME : args[0];
+        if (args.length > 1 || !VALID_NAME.matcher(name).matches()) {
+            msgU.userMessage(plr, "usage_help_sethome", "%COMMAND%", cmd);
+            return;
+        }
+
+        String key = name.toLowerCase(Locale.ROOT);
+        boolean existed = own.containsKey(key);
+        int limit = limitOf(plr);
+        if (!existed && own.size() >= limit) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "home_limit_reached", "%COUNT%", String.valueOf(limit));
+            return;
+        }
+
+        Location loc = plr.getLocation();
+        Home home = new Home(name, loc.getWorld().getUID(), loc.getX(), loc.getY(), loc.getZ(),
+                loc.getYaw(), loc.getPitch());
+        Map<String, Home> changed = new TreeMap<>(own);
+        changed.put(key, home);
+        store(plr.getUniqueId(), changed);
+
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, existed ? "home_moved" : "home_set", "%HOME%", name);
+    }
+
+    /**
+     * Handles /delhome: deletes the named home.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Nothing (for "home"), or the home's name.
+     */
+    public void deleteHome(Player plr, String cmd, String[] args) {
+        Map<String, Home> own = usableHomes(plr, cmd);
+        if (own == null) return;
+        if (args.length > 1) {
+            msgU.userMessage(plr, "usage_help_home", "%COMMAND%", cmd);
+            return;
+        }
+
+        String name = args.length == 0 ? DEFAULT_NAME : args[0];
+        Home removed = own.get(name.toLowerCase(Locale.ROOT));
+        if (removed == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "home_unknown", "%HOME%", name);
+            return;
+        }
+        Map<String, Home> changed = new TreeMap<>(own);
+        changed.remove(name.toLowerCase(Locale.ROOT));
+        store(plr.getUniqueId(), changed);
+
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, "home_deleted", "%HOME%", removed.name());
+    }
+
+    /**
+     * Returns the names of the player's homes starting with the given prefix, for tab completion.
+     *
+     * @param plr The player typing the command.
+     * @param prefix What has been typed so far (case-insensitive).
+     * @return The matching names, in alphabetical order.
+     */
+    public List<String> complete(Player plr, String prefix) {
+        Map<String, Home> own = homes.get(plr.getUniqueId());
+        if (own == null) return List.of();
+
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Home> entry : own.entrySet())
+            if (entry.getKey().startsWith(key)) names.add(entry.getValue().name());
+        return names;
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    // Already off the main thread, so the file can be read right here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        load(event.getUniqueId());
+    }
+
+    // The login can still be refused after the homes were read
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) forget(event.getPlayer().getUniqueId());
+    }
+
+    // A relog's old session quits after the new one's pre-login, taking the homes just read with it
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        UUID plrId = event.getPlayer().getUniqueId();
+        if (!homes.containsKey(plrId)) loadLater(plrId);
+    }
+
+    // Changes were handed to the writer when they were made, so there is nothing to save here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        forget(event.getPlayer().getUniqueId());
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // The player's homes, or null after telling them why they can't be used
+    private Map<String, Home> usableHomes(Player plr, String cmd) {
+        if (!conU.getBoolean("homes.enabled", true)) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "cmd_disabled", "%COMMAND%", cmd);
+            return null;
+        }
+        UUID plrId = plr.getUniqueId();
+        Map<String, Home> own = homes.get(plrId);
+        if (own != null) return own;
+
+        // Try reading the file (again), for the next attempt
+        if (failed.contains(plrId)) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "home_unavailable");
+        } else msgU.userMessage(plr, "home_loading");
+        loadLater(plrId);
+        return null;
+    }
+
+    // Reads the player's homes in the background, unless that is already happening
+    private void loadLater(UUID plrId) {
+        if (!loading.add(plrId)) return;
+        schedU.runAsync(() -> {
+            try {
+                load(plrId);
+                // They may have left while their homes were read
+                if (Bukkit.getPlayer(plrId) == null) forget(plrId);
+            } finally {
+                loading.remove(plrId);
+            }
+        });
+    }
+    
+    private void forget(UUID plrId) {
+        homes.remove(plrId);
+        failed.remove(plrId);
+    }
+
+    // tpask.homes.unlimited, or the highest tpask.homes.<number> the player has, or the configured default
+    private int limitOf(Player plr) {
+        if (plr.hasPermission(LIMIT_PERMISSION + "unlimited")) return Integer.MAX_VALUE;
+
+        int limit = conU.getInt("homes.default_limit", limitDef, limitMin, limitMax);
+        for (PermissionAttachmentInfo perm : plr.getEffectivePermissions()) {
+            String name = perm.getPermission();
+            if (!perm.getValue() || !name.startsWith(LIMIT_PERMISSION)) continue;
+            try {
+                limit = Math.max(limit, Integer.parseInt(name.substring(LIMIT_PERMISSION.length())));
+            } catch (NumberFormatException e) {
+                // Not a limit, e.g. a wildcard
+            }
+        }
+        return limit;
+    }
+
+    private static List<String> names(Map<String, Home> own) {
+        List<String> names = new ArrayList<>(own.size());
+        for (Home home : own.values()) names.add(home.name());
+        return names;
+    }
+
+    // Replaces the player's homes and hands them to the writer
+    private void store(UUID plrId, Map<String, Home> changed) {
+        Map<String, Home> snapshot = Map.copyOf(changed);
+        homes.put(plrId, new TreeMap<>(snapshot));
+        pending.put(plrId, snapshot);
+        if (writerScheduled.compareAndSet(false, true)) schedU.runAsync(this::flush);
+    }
+
+    // A file which can't be read leaves the player without homes (not with none), until a read succeeds
+    private void load(UUID plrId) {
+        Map<String, Home> loaded;
+        synchronized (fileLock) {
+            // Homes still waiting for the writer are newer than the file
+            Map<String, Home> waiting = pending.get(plrId);
+            try {
+                loaded = waiting != null ? waiting : read(file(plrId));
+            } catch (IOException e) {
+                output.error("Could not read the homes of " + plrId + ":", e.getMessage());
+                failed.add(plrId);
+                return;
+            }
+        }
+        failed.remove(plrId);
+        homes.put(plrId, new TreeMap<>(loaded));
+    }
+
+    // Writes every player's latest homes; changes made meanwhile schedule another run
+    private void flush() {
+        writerScheduled.set(false);
+        synchronized (fileLock) {
+            for (UUID plrId : pending.keySet()) {
+                Map<String, Home> snapshot = pending.remove(plrId);
+                if (snapshot == null) continue;
+                try {
+                    write(file(plrId), snapshot);
+                } catch (IOException e) {
+                    output.error("Could not save the homes of " + plrId + ":", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private File file(UUID plrId) {
+        return new File(new File(plugin.getDataFolder(), "homes"), plrId + ".dat");
+    }
+
+    private static Map<String, Home> read(File file) throws IOException {
+        if (!file.exists()) return Map.of();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a homes file");
+            if (in.readInt() != VERSION) throw new IOException("unsupported version");
+
+            int count = in.readInt();
+            Map<String, Home> read = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                Home home = new Home(in.readUTF(), new UUID(in.readLong(), in.readLong()),
+                        in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                read.put(home.name().toLowerCase(Locale.ROOT), home);
+            }
+            return read;
+        }
+    }
+
+    // Players without homes leave no file behind; others get a temporary file first, then the real one
+    private static void write(File file, Map<String, Home> own) throws IOException {
+        if (own.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(own.size());
+            for (Home h : own.values()) {
+                out.writeUTF(h.name());
+                out.writeLong(h.world().getMostSignificantBits());
+                out.writeLong(h.world().getLeastSignificantBits());
+                out.writeDouble(h.x()); out.writeDouble(h.y()); out.writeDouble(h.z());
+                out.writeFloat(h.yaw()); out.writeFloat(h.pitch());
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,328 @@
+package dev.matkeg.tpask.managers;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.entity.Player;
+import org.bukkit.Material;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.api.PendingRequest;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * The /tpa gui inbox: the player's pending requests with accept, deny and
+ * cancel buttons above a page of online players to send requests to.
+ * <br><br>
+ * Player heads are kept in a bounded LRU cache and buttons are rendered once,
+ * so opening the menu mostly copies cached items. A head whose profile has no
+ * textures yet is shown plain, while the profile is completed in the
+ * background; open inboxes are redrawn once it is.
+ */
+public class InboxManager implements Listener {
+    // Modules
+    private final PluginMain plugin;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+    private final RequestManager reqMan;
+    private final LanguageManager langMan;
+
+    // Limits and defaults
+    private int cacheDef = 256, cacheMin = 16, cacheMax = 4096;
+
+    // Layout: requests on top, a page of players below and navigation at the bottom
+    private static final int SIZE = 54, PER_PAGE = 36, FIRST_PLAYER = 9;
+    private static final int INCOMING = 0, ACCEPT = 1, DENY = 2, NOTHING = 4, OUTGOING = 7, CANCEL = 8;
+    private static final int PREVIOUS = 45, CLOSE = 49, NEXT = 53;
+
+    // Constructor
+    public InboxManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+        this.reqMan = plugin.getRequestManager();
+        this.langMan = plugin.getLanguageManager();
+    }
+
+    // What clicking a slot does
+    private enum Action { ACCEPT, DENY, CANCEL, REQUEST, PREVIOUS, NEXT, CLOSE }
+
+    // An open inbox, handed back by Bukkit on every click
+    private static final class Inbox implements InventoryHolder {
+        private final Action[] actions = new Action[SIZE];
+        private final UUID[] players = new UUID[SIZE];
+        private Inventory inventory;
+        private int page;
+
+        @Override
+        public Inventory getInventory() { return inventory; }
+    }
+
+    // Storage
+
+    // player -> their head, least recently used first; guarded by itself
+    private final Map<UUID, ItemStack> heads = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, ItemStack> eldest) {
+            return size() > conU.getInt("gui.head_cache_size", cacheDef, cacheMin, cacheMax);
+        }
+    };
+    // players whose profiles are being completed in the background
+    private final Set<UUID> resolving = ConcurrentHashMap.newKeySet();
+    // viewer -> their open inbox
+    private final Map<UUID, Inbox> open = new ConcurrentHashMap<>();
+    // language key -> rendered button
+    private final Map<String, ItemStack> buttons = new ConcurrentHashMap<>();
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Opens the inbox for the given player.
+     * @param viewer The player who ran /tpa gui.
+     */
+    public void open(Player viewer) {
+        if (!conU.getBoolean("gui.enabled", true)) {
+            plrU.playPresetSound(viewer, "error");
+            msgU.userMessage(viewer, "cmd_disabled", "%COMMAND%", "tpa gui");
+            return;
+        }
+
+        Inbox inbox = new Inbox();
+        inbox.inventory = Bukkit.createInventory(inbox, SIZE, plain(local("title"), NamedTextColor.DARK_GRAY));
+        render(viewer, inbox);
+        viewer.openInventory(inbox.inventory);
+        open.put(viewer.getUniqueId(), inbox);
+    }
+
+    /** Forgets the cached heads and buttons. Used when the language files reload. */
+    public void clearCache() {
+        synchronized (heads) { heads.clear(); }
+        buttons.clear();
+    }
+
+    /** Closes every open inbox, so no menu outlives the plugin. */
+    public void closeAll() {
+        for (UUID viewerId : open.keySet()) {
+            Player viewer = Bukkit.getPlayer(viewerId);
+            if (plrU.isValid(viewer)) viewer.closeInventory();
+        }
+        open.clear();
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @EventHandler
+    public void onClick(InventoryClickEvent event) {
+        if (!(event.getInventory().getHolder(false) instanceof Inbox inbox)) return;
+        event.setCancelled(true);
+
+        int slot = event.getRawSlot();
+        if (!(event.getWhoClicked() instanceof Player viewer) || slot < 0 || slot >= SIZE) return;
+        Action action = inbox.actions[slot];
+        if (action == null) return;
+
+        UUID viewerId = viewer.getUniqueId();
+        switch (action) {
+            case PREVIOUS -> { inbox.page--; render(viewer, inbox); }
+            case NEXT -> { inbox.page++; render(viewer, inbox); }
+            case CLOSE -> viewer.closeInventory();
+            case ACCEPT -> { viewer.closeInventory(); statMan.accept(viewerId); }
+            case DENY -> { viewer.closeInventory(); statMan.deny(viewerId); }
+            case CANCEL -> { viewer.closeInventory(); statMan.cancel(viewerId); }
+            case REQUEST -> {
+                // Shift-click asks them to come here instead
+                Player target = Bukkit.getPlayer(inbox.players[slot]);
+                viewer.closeInventory();
+                reqMan.sendRequest(viewer, target, event.isShiftClick());
+            }
+        }
+    }
+
+    @EventHandler
+    public void onDrag(InventoryDragEvent event) {
+        if (event.getInventory().getHolder(false) instanceof Inbox) event.setCancelled(true);
+    }
+
+    @EventHandler
+    public void onClose(InventoryCloseEvent event) {
+        if (event.getInventory().getHolder(false) instanceof Inbox inbox)
+            open.remove(event.getPlayer().getUniqueId(), inbox);
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        open.remove(event.getPlayer().getUniqueId());
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // Fills the inbox with the viewer's current requests and a page of players
+    private void render(Player viewer, Inbox inbox) {
+        UUID viewerId = viewer.getUniqueId();
+        inbox.inventory.clear();
+        Arrays.fill(inbox.actions, null);
+        Arrays.fill(inbox.players, null);
+
+        // The request they received
+        boolean hasIncoming = statMan.hasIncoming(viewerId);
+        if (hasIncoming) {
+            PendingRequest in = statMan.getIncomingRequest(viewerId);
+            Player requester = in != null ? Bukkit.getPlayer(in.requester()) : null;
+            set(inbox, INCOMING, requester != null
+                    ? labelled(head(requester), local("incoming").replace("%OTHER%", requester.getName()))
+                    : button("incoming_remote", Material.PAPER, NamedTextColor.YELLOW), null, null);
+            set(inbox, ACCEPT, button("accept", Material.LIME_DYE, NamedTextColor.GREEN), Action.ACCEPT, null);
+            set(inbox, DENY, button("deny", Material.RED_DYE, NamedTextColor.RED), Action.DENY, null);
+        }
+
+        // The request they sent
+        boolean hasOutgoing = statMan.hasOutgoing(viewerId);
+        if (hasOutgoing) {
+            Set<UUID> receivers = statMan.getOutgoingReceivers(viewerId);
+            Player receiver = receivers.size() == 1 ? Bukkit.getPlayer(receivers.iterator().next()) : null;
+            ItemStack item;
+            if (receiver != null) item = labelled(head(receiver), local("outgoing").replace("%OTHER%", receiver.getName()));
+            else if (receivers.size() > 1) item = item(Material.PAPER,
+                    local("outgoing_bulk").replace("%COUNT%", String.valueOf(receivers.size())), NamedTextColor.YELLOW, null);
+            else item = button("outgoing_remote", Material.PAPER, NamedTextColor.YELLOW);
+            set(inbox, OUTGOING, item, null, null);
+            set(inbox, CANCEL, button("cancel", Material.BARRIER, NamedTextColor.GRAY), Action.CANCEL, null);
+        }
+
+        if (!hasIncoming && !hasOutgoing)
+            set(inbox, NOTHING, button("no_requests", Material.GRAY_DYE, NamedTextColor.GRAY), null, null);
+
+        // A page of everyone else, by name
+        List<Player> others = new ArrayList<>(Bukkit.getOnlinePlayers());
+        others.removeIf(plr -> plr.equals(viewer) || !plrU.isValid(plr));
+        others.sort((a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+
+        int pages = Math.max(1, (others.size() + PER_PAGE - 1) / PER_PAGE);
+        inbox.page = Math.max(0, Math.min(inbox.page, pages - 1));
+        int from = inbox.page * PER_PAGE, to = Math.min(others.size(), from + PER_PAGE);
+        for (int i = from; i < to; i++) {
+            Player plr = others.get(i);
+            set(inbox, FIRST_PLAYER + i - from, head(plr), Action.REQUEST, plr.getUniqueId());
+        }
+
+        if (inbox.page > 0) set(inbox, PREVIOUS, button("previous", Material.ARROW, NamedTextColor.WHITE), Action.PREVIOUS, null);
+        if (inbox.page < pages - 1) set(inbox, NEXT, button("next", Material.ARROW, NamedTextColor.WHITE), Action.NEXT, null);
+        set(inbox, CLOSE, button("close", Material.OAK_DOOR, NamedTextColor.WHITE), Action.CLOSE, null);
+    }
+
+    private void set(Inbox inbox, int slot, ItemStack item, Action action, UUID player) {
+        inbox.inventory.setItem(slot, item); // The inventory keeps its own copy
+        inbox.actions[slot] = action;
+        inbox.players[slot] = player;
+    }
+
+    // The player's cached head, or a plain one while their profile is completed
+    private ItemStack head(Player plr) {
+        UUID plrId = plr.getUniqueId();
+        synchronized (heads) {
+            ItemStack cached = heads.get(plrId);
+            if (cached != null) return cached;
+        }
+
+        // Online players usually have their textures from logging in
+        PlayerProfile profile = plr.getPlayerProfile();
+        if (profile.hasTextures()) {
+            ItemStack head = buildHead(profile, plr.getName());
+            synchronized (heads) { heads.put(plrId, head); }
+            return head;
+        }
+
+        resolveLater(plrId, profile, plr.getName());
+        return buildHead(null, plr.getName());
+    }
+
+    // Completes the profile off the server's threads, then redraws the open inboxes
+    private void resolveLater(UUID plrId, PlayerProfile profile, String name) {
+        if (!resolving.add(plrId)) return;
+
+        schedU.runAsync(() -> {
+            try {
+                // A profile which can't be completed keeps the plain head, so it isn't looked up again
+                boolean complete = profile.complete(true) && profile.hasTextures();
+                ItemStack head = buildHead(complete ? profile : null, name);
+                synchronized (heads) { heads.put(plrId, head); }
+                if (complete) redrawOpen();
+            } finally {
+                resolving.remove(plrId);
+            }
+        });
+    }
+
+    private void redrawOpen() {
+        for (Map.Entry<UUID, Inbox> entry : open.entrySet()) {
+            Player viewer = Bukkit.getPlayer(entry.getKey());
+            Inbox inbox = entry.getValue();
+            if (!plrU.isValid(viewer)) continue;
+            schedU.run(viewer, () -> { if (open.get(viewer.getUniqueId()) == inbox) render(viewer, inbox); });
+        }
+    }
+
+    private ItemStack buildHead(PlayerProfile profile, String name) {
+        ItemStack head = item(Material.PLAYER_HEAD, name, NamedTextColor.YELLOW, local("player_lore"));
+        if (profile != null) head.editMeta(SkullMeta.class, meta -> meta.setPlayerProfile(profile));
+        return head;
+    }
+
+    private ItemStack button(String key, Material material, NamedTextColor color) {
+        return buttons.computeIfAbsent(key, k -> item(material, local(k), color, null));
+    }
+
+    // A copy of the item under another name
+    private ItemStack labelled(ItemStack base, String name) {
+        ItemStack copy = base.clone();
+        copy.editMeta(meta -> meta.displayName(plain(name, NamedTextColor.YELLOW)));
+        return copy;
+    }
+
+    private ItemStack item(Material material, String name, NamedTextColor color, String lore) {
+        ItemStack item = new ItemStack(material);
+        item.editMeta(meta -> {
+            meta.displayName(plain(name, color));
+            if (lore != null) meta.lore(List.of(plain(lore, NamedTextColor.GRAY)));
+        });
+        return item;
+    }
+
+    private static Component plain(String text, NamedTextColor color) {
+        return Component.text(text, color).decoration(TextDecoration.ITALIC, false);
+    }
+
+    private String local(String key) {
+        return langMan.getLocalizedString("gui." + key, null);
+    }
+}
@@ -4,6 +4,7 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.command.PluginCommand;
 
+import dev.matkeg.tpask.diagnostics.ReloadJfrEvent;
 import dev.matkeg.tpask.utilities.OutputUtils;
 import dev.matkeg.tpask.utilities.ConfigUtils;
 import dev.matkeg.tpask.PluginMain;
@@ -18,10 +19,11 @@ public class LanguageManager {
     private final OutputUtils output;
     private final ConfigUtils conU;
     
-    // Variables
-    private FileConfiguration langFile;
-    private FileConfiguration colorFile;
-    private String langSetting;
+    // Variables; fully loaded files are published in one write, and never cleared,
+    // so the message workers always read a complete file
+    private volatile FileConfiguration langFile;
+    private volatile FileConfiguration colorFile;
+    private volatile String langSetting;
     
     // Constructor
     public LanguageManager(PluginMain plugin) {
@@ -32,12 +34,22 @@ public class LanguageManager {
     
     /* --------------------- FUNCTIONS -------------------- */
    
-    private synchronized void loadLangFile() {
+    private FileConfiguration langFile() {
+        FileConfiguration file = langFile;
+        return file != null ? file : loadLangFile(false);
+    }
+    
+    private FileConfiguration colorFile() {
+        FileConfiguration file = colorFile;
+        return file != null ? file : loadColorsFile(false);
+    }
+    
+    private synchronized FileConfiguration loadLangFile(boolean reload) {
         // Check if the lang file is already loaded
-        if (langFile != null) return;
+        if (!reload && langFile != null) return langFile;
         
         // Load language from config.yml
-        langSetting = conU.getString("language", "en_us").toLowerCase();
+        String langSetting = conU.getString("language", "en_us").toLowerCase();
         File langFilePath = new File(plugin.getDataFolder(), "languages/" + langSetting + ".yml");
 
         // If the lang file doesn't exist, fallback to en_US
@@ -53,27 +65,33 @@ public class LanguageManager {
             }
         }
         
-        // Load the language file, and set the langFile variable;
-        langFile = YamlConfiguration.loadConfiguration(langFilePath);
+        // Load the language file, then publish it
+        FileConfiguration file = YamlConfiguration.loadConfiguration(langFilePath);
+        this.langSetting = langSetting;
+        langFile = file;
+        return file;
     }
     
-    private synchronized void loadColorsFile() {
+    private synchronized FileConfiguration loadColorsFile(boolean reload) {
         // Check if the colorFile is already loaded
-        if (colorFile != null) return;
+        if (!reload && colorFile != null) return colorFile;
 
         // Path to colors.yml
         File colorFilePath = new File(plugin.getDataFolder(), "colors.yml");
 
+        FileConfiguration file;
         if (colorFilePath.exists()) {
             // Load the actual file
-            colorFile = YamlConfiguration.loadConfiguration(colorFilePath);
+            file = YamlConfiguration.loadConfiguration(colorFilePath);
         } else {
             // Warn about missing file
             output.error("No color map file found.");
 
             // Use an empty yml config.
-            colorFile = new YamlConfiguration();
+            file = new YamlConfiguration();
         }
+        colorFile = file;
+        return file;
     }
 
     /* ----------------------- APIs ----------------------- */
@@ -92,14 +110,22 @@ public class LanguageManager {
 
     }
     
-    /** Clears the private variables. Used when the config reloads. */
+    /**
+     * Loads the language and colors files again. Used when the config reloads;
+     * readers keep using the old files until the new ones are complete.
+     */
     public synchronized void reloadManager() {
-        this.langFile = null;
-        this.colorFile = null;
-        this.langSetting = null;
+        ReloadJfrEvent event = new ReloadJfrEvent();
+        event.begin();
         
-        this.loadLangFile();
-        this.loadColorsFile();
+        this.loadLangFile(true);
+        this.loadColorsFile(true);
+        
+        if (event.shouldCommit()) {
+            event.target = "LANGUAGE";
+            event.languagePack = langSetting;
+            event.commit();
+        }
     }
     
     /**
@@ -164,11 +190,8 @@ public class LanguageManager {
      * @see src/main/resources/languages/*
      */
     public String getLocalizedString(String key, String def) {
-        // Get the lang file;
-        this.loadLangFile();
-
         // Return the localized string, fallback to def if missing
-        return langFile.getString(key, def != null ? def :
+        return langFile().getString(key, def != null ? def :
             key.toUpperCase()+"::MISSING_LANG_FILE_ENTRY");
     }
     
@@ -182,11 +205,8 @@ public class LanguageManager {
      * 
      */
     public String getUserMessage(String key, String def) {
-        // Get the lang file;
-        this.loadLangFile();
-
         // Return the localized string, fallback to def if missing
-        return langFile.getString("messages." + key, def != null ? def :
+        return langFile().getString("messages." + key, def != null ? def :
             "messages." + key.toUpperCase()+"::MISSING_LANG_MSG_ENTRY");
     }
     
@@ -197,11 +217,8 @@ public class LanguageManager {
      * @return A string with the color code or §r
      */
     public String getColorForString(String path) {
-        // Get the colors file;
-        this.loadColorsFile();
-        
         // Return the color code string, or "§r" to reset.
-        return colorFile.getString(path, "§r");
+        return colorFile().getString(path, "§r");
     }
     
     /**
@@ -211,10 +228,7 @@ public class LanguageManager {
      * @return A string with the color code or §r
      */
     public String getColorForMessage(String key) {
-        // Get the colors file;
-        this.loadColorsFile();
-        
         // Return the color code string, or "§r" to reset.
-        return colorFile.getString("messages." + key, "§r");
+        return colorFile().getString("messages." + key, "§r");
     }
 }
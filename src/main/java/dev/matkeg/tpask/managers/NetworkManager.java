@@ -0,0 +1,476 @@
+package dev.matkeg.tpask.managers;
+
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.network.NetworkMessage.Type;
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+import dev.matkeg.tpask.api.event.TpaRequestAcceptEvent;
+import dev.matkeg.tpask.api.Result;
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.OutputUtils.DebugChannel;
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.network.*;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+import java.io.IOException;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Handles requests between players on different servers of a proxy network.
+ * Outgoing messages are collected during a tick and sent as one batch on the next.
+ */
+public class NetworkManager implements Listener {
+    // Modules
+    private final PluginMain plugin;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final OutputUtils output;
+    private final SchedulerUtils schedU;
+    private final LanguageManager langMan;
+
+    // Limits and defaults
+    private int timeDef = 20, timeMin = 5, timeMax = 180;
+    private int lookupDef = 40, lookupMin = 10, lookupMax = 200;
+    private int arrivalDef = 30, arrivalMin = 5, arrivalMax = 120;
+    private static final int MAX_OUTBOX = 4096;
+
+    // Variables
+    private NetworkTransport transport;
+    private boolean enabled = false;
+    private Task flushTask;
+
+    // Constructor
+    public NetworkManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.langMan = plugin.getLanguageManager();
+    }
+
+    // A request sent to another server (which is empty until the receiver is found)
+    private record Outgoing(String receiverName, boolean here, String server, Task timeout) {}
+    // A request from another server
+    private record Incoming(NetworkMessage request, Task timeout) {}
+    // A player expected to join this server and be teleported
+    private record Arrival(UUID target, boolean here, Task expiry) {}
+
+    // Storage
+
+    // Messages waiting for the next batch
+    private final List<NetworkMessage> outbox = new ArrayList<>();
+    // requester -> request sent to another server
+    private final Map<UUID, Outgoing> outgoing = new HashMap<>();
+    // receiver -> request from another server
+    private final Map<UUID, Incoming> incoming = new HashMap<>();
+    // arriving player -> who they will be teleported to
+    private final Map<UUID, Arrival> arrivals = new HashMap<>();
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Connects to the network with the plugin messaging transport, if enabled in config.yml. */
+    public synchronized void start() {
+        if (!conU.getBoolean("network.enabled", false)) return;
+        start(new PluginMessageTransport(plugin));
+    }
+
+    /**
+     * Connects to the network with the given transport, e.g. a loopback one.
+     * @param transport The transport which carries the batches.
+     */
+    public synchronized void start(NetworkTransport transport) {
+        if (enabled) shutdown();
+
+        this.transport = transport;
+        transport.start(this::receive);
+        enabled = true;
+    }
+
+    /** Disconnects from the network and forgets every cross-server request. */
+    public synchronized void shutdown() {
+        if (!enabled) return;
+        enabled = false;
+
+        flush();
+        transport.shutdown();
+        if (flushTask != null) flushTask.cancel();
+        flushTask = null;
+        outbox.clear();
+
+        for (Outgoing o : outgoing.values()) o.timeout().cancel();
+        for (Incoming i : incoming.values()) i.timeout().cancel();
+        for (Arrival a : arrivals.values()) a.expiry().cancel();
+        outgoing.clear(); incoming.clear(); arrivals.clear();
+    }
+
+    /** @return <b>True</b> if requests can be sent to other servers. */
+    public synchronized boolean isEnabled() { return enabled; }
+
+    /** @return <b>True</b> if the player received a request from another server. */
+    public synchronized boolean hasIncoming(UUID receiver) { return incoming.containsKey(receiver); }
+
+    /** @return <b>True</b> if the player sent a request to another server. */
+    public synchronized boolean hasOutgoing(UUID requester) { return outgoing.containsKey(requester); }
+
+    /**
+     * Asks the other servers for the given player and sends them the request.
+     * The requester is told whether it reached anyone once a server answers,
+     * or once the lookup times out.
+     *
+     * @param requester The requesting player; must be able to send a request.
+     * @param receiverName The name of the player on another server.
+     * @param here Whether this is a TPA Here request.
+     */
+    public synchronized void sendRequest(Player requester, String receiverName, boolean here) {
+        UUID reqUUID = requester.getUniqueId();
+        Task lookup = schedU.runLater(() -> lookupFailed(reqUUID),
+                conU.getInt("network.lookup_timeout", lookupDef, lookupMin, lookupMax));
+        outgoing.put(reqUUID, new Outgoing(receiverName, here, "", lookup));
+        plugin.getStateManager().startCooldown(reqUUID);
+
+        queue(new NetworkMessage(Type.REQUEST, "", reqUUID, requester.getName(), null, receiverName, here));
+        msgU.userMessage(requester, "network_searching", "%OTHER%", receiverName);
+        printDebug(() -> requester.getName() + " is looking for " + receiverName + " on the network");
+    }
+
+    /**
+     * Accepts the player's request from another server, if they have one. The
+     * combat tag and the accept event apply like they do to local requests, and
+     * a player leaving for another server waits out the TPA delay first.
+     *
+     * @return FORWARDED, why the request couldn't be accepted, or null if the player has no cross-server request.
+     */
+    public synchronized Result accept(Player receiver) {
+        Incoming in = receiver != null ? incoming.get(receiver.getUniqueId()) : null;
+        if (in == null) return null;
+
+        NetworkMessage req = in.request();
+        StateManager statMan = plugin.getStateManager();
+        if (statMan.refuseInCombat(receiver, receiver.getUniqueId())) return Result.IN_COMBAT;
+        if (TpaRequestAcceptEvent.hasListeners() && !new TpaRequestAcceptEvent(req.requester(),
+                receiver.getUniqueId(), req.here() ? RequestType.TPAHERE : RequestType.TPA).callEvent())
+            return Result.CANCELLED_BY_PLUGIN;
+
+        // Claim the request
+        if (!incoming.remove(receiver.getUniqueId(), in)) return Result.NO_REQUEST;
+        in.timeout().cancel();
+        queue(new NetworkMessage(Type.ACCEPT, req.server(), req.requester(), req.requesterName(),
+                receiver.getUniqueId(), receiver.getName(), req.here()));
+
+        plrU.playPresetSound(receiver, "accepted");
+        msgU.userMessage(receiver, "accepted", "%OTHER%", req.requesterName());
+
+        if (req.here()) {
+            // The receiver goes to the requester's server, once the delay is over
+            statMan.connectLater(receiver, () -> {
+                msgU.chatMessage(receiver, "network_switching", "%OTHER%", req.requesterName());
+                queue(new NetworkMessage(Type.CONNECT, req.server(), receiver.getUniqueId(), receiver.getName(),
+                        null, null, true));
+            });
+        } else {
+            // The requester comes here
+            expectArrival(req.requester(), receiver.getUniqueId(), false);
+        }
+        return Result.FORWARDED;
+    }
+
+    /**
+     * Denies the player's request from another server, if they have one.
+     * @return FORWARDED, or null if the player has no cross-server request.
+     */
+    public synchronized Result deny(Player receiver) {
+        Incoming in = receiver != null ? incoming.remove(receiver.getUniqueId()) : null;
+        if (in == null) return null;
+        in.timeout().cancel();
+
+        NetworkMessage req = in.request();
+        queue(new NetworkMessage(Type.DENY, req.server(), req.requester(), req.requesterName(),
+                receiver.getUniqueId(), receiver.getName(), req.here()));
+
+        plrU.playPresetSound(receiver, "denied");
+        msgU.userMessage(receiver, "denied", "%OTHER%", req.requesterName());
+        return Result.FORWARDED;
+    }
+
+    /**
+     * Cancels the player's request to another server, if they have one.
+     * @return FORWARDED, or null if the player has no cross-server request.
+     */
+    public synchronized Result cancel(Player requester) {
+        Outgoing out = requester != null ? outgoing.remove(requester.getUniqueId()) : null;
+        if (out == null) return null;
+        out.timeout().cancel();
+
+        queue(new NetworkMessage(Type.CANCEL, out.server(), requester.getUniqueId(), requester.getName(),
+                null, out.receiverName(), out.here()));
+
+        plrU.playPresetSound(requester, "canceled");
+        msgU.userMessage(requester, "canceled_self", "%OTHER%", out.receiverName());
+        return Result.FORWARDED;
+    }
+
+    /**
+     * Withdraws the player's cross-server requests once they left, so the player
+     * on the other server isn't left waiting. Their requester is told it expired.
+     *
+     * @param playerId The UUID of the player who left.
+     * @param playerName Their name.
+     */
+    public synchronized void playerLeft(UUID playerId, String playerName) {
+        Outgoing out = outgoing.remove(playerId);
+        if (out != null) {
+            out.timeout().cancel();
+            queue(new NetworkMessage(Type.CANCEL, out.server(), playerId, playerName,
+                    null, out.receiverName(), out.here()));
+        }
+
+        Incoming in = incoming.remove(playerId);
+        if (in != null) {
+            in.timeout().cancel();
+            NetworkMessage req = in.request();
+            queue(new NetworkMessage(Type.EXPIRE, req.server(), req.requester(), req.requesterName(),
+                    playerId, playerName, req.here()));
+        }
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        Player subject = event.getPlayer();
+        Arrival arrival;
+        synchronized (this) {
+            arrival = arrivals.remove(subject.getUniqueId());
+        }
+        if (arrival == null) return;
+        arrival.expiry().cancel();
+
+        // Give the client a moment to finish joining
+        schedU.runLater(subject, () -> {
+            Player target = Bukkit.getPlayer(arrival.target());
+            if (!plrU.areValid(subject, target)) {
+                msgU.userMessage(subject, "error_disconnect_self", "%OTHER%",
+                        plrU.getName(target, langMan.getLocalizedString("player_noun", "Player")));
+                return;
+            }
+
+            boolean penalty = conU.getBoolean("hunger_penalty.enabled", true);
+            TeleportReason reason = arrival.here() ? TeleportReason.TPAHERE : TeleportReason.TPA;
+            plugin.getTeleportQueueManager().submit(subject, target, () -> {
+                if (plrU.areValid(subject, target)) plrU.teleport(subject, target, penalty, reason);
+            });
+        }, 5L);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void printDebug(Supplier<String> msg) {
+        output.debug(DebugChannel.REQUESTS, msg);
+    }
+
+    private synchronized void queue(NetworkMessage msg) {
+        if (!enabled) return;
+        if (outbox.size() >= MAX_OUTBOX) {
+            output.warn("The network outbox is full, a", msg.type(), "message was dropped.");
+            return;
+        }
+
+        outbox.add(msg);
+        if (flushTask == null) flushTask = schedU.run(this::flushTick);
+    }
+
+    private synchronized void flushTick() {
+        flushTask = null;
+        if (!flush() && enabled) {
+            // Nobody online to carry the batch, try again later
+            flushTask = schedU.runLater(this::flushTick, 20L);
+        }
+    }
+
+    // Sends everything in the outbox, in as few batches as fit through a player's connection
+    private synchronized boolean flush() {
+        while (!outbox.isEmpty()) {
+            NetworkCodec.Batch batch = NetworkCodec.encodeFirst(outbox);
+            if (!transport.send(batch.payload())) return false;
+            outbox.subList(0, batch.count()).clear();
+        }
+        return true;
+    }
+
+    private void receive(byte[] batch) {
+        List<NetworkMessage> messages;
+        try {
+            messages = NetworkCodec.decode(batch);
+        } catch (IOException e) {
+            output.warn("Received a malformed network batch:", e.getMessage());
+            return;
+        }
+        for (NetworkMessage msg : messages) handle(msg);
+    }
+
+    private synchronized void handle(NetworkMessage msg) {
+        switch (msg.type()) {
+            case REQUEST -> handleRequest(msg);
+            case DELIVERED, BUSY, ACCEPT, DENY, EXPIRE -> handleAnswer(msg);
+            case CANCEL -> handleCancel(msg);
+            case CONNECT -> {} // Only meant for the proxy
+        }
+    }
+
+    // Receiver side: someone on another server is looking for one of our players
+    private void handleRequest(NetworkMessage req) {
+        Player receiver = Bukkit.getPlayerExact(req.receiverName());
+        if (!plrU.isValid(receiver)) return; // Not here, another server will answer
+
+        UUID recUUID = receiver.getUniqueId();
+        StateManager statMan = plugin.getStateManager();
+        PreferenceManager prefMan = plugin.getPreferenceManager();
+        // Refusals look like a busy receiver, so nobody can tell they were blocked
+        if (statMan.hasIncoming(recUUID) || statMan.hasOutgoing(recUUID)
+                || prefMan.refusal(recUUID, req.requester()) != null) {
+            queue(new NetworkMessage(Type.BUSY, req.server(), req.requester(), req.requesterName(),
+                    recUUID, receiver.getName(), req.here()));
+            return;
+        }
+
+        Task timeout = schedU.runLater(() -> expire(recUUID),
+                conU.getInt("tpa.timeout", timeDef, timeMin, timeMax) * 20L);
+        incoming.put(recUUID, new Incoming(req, timeout));
+        queue(new NetworkMessage(Type.DELIVERED, req.server(), req.requester(), req.requesterName(),
+                recUUID, receiver.getName(), req.here()));
+
+        // Same messages as a local request
+        Component accept = msgU.clickableFromConfig("accept", "%OTHER%", req.requesterName());
+        Component deny = msgU.clickableFromConfig("deny", "%OTHER%", req.requesterName());
+        Component acceptAndDeny = Component.empty();
+        if (accept != null) acceptAndDeny = accept;
+        if (deny != null) acceptAndDeny = acceptAndDeny.append(Component.text(" ")).append(deny);
+        msgU.chatMessage(receiver, req.here() ? "here_received" : "received", "%OTHER%", req.requesterName(), acceptAndDeny);
+        plrU.playPresetSound(receiver, "received");
+
+        // Trusted requesters are accepted right away (/tptrust)
+        if (prefMan.trusts(recUUID, req.requester())) accept(receiver);
+    }
+
+    // Requester side: the receiver's server answered
+    private void handleAnswer(NetworkMessage ans) {
+        Player requester = Bukkit.getPlayer(ans.requester());
+        Outgoing out = outgoing.get(ans.requester());
+        if (out == null) return; // Canceled or timed out meanwhile
+
+        out.timeout().cancel();
+        if (ans.type() == Type.DELIVERED) {
+            // Fall back to forgetting the request a bit after the receiver's timeout
+            long ticks = conU.getInt("tpa.timeout", timeDef, timeMin, timeMax) * 20L + 200L;
+            outgoing.put(ans.requester(), new Outgoing(out.receiverName(), out.here(), ans.server(),
+                    schedU.runLater(() -> forgetOutgoing(ans.requester()), ticks)));
+
+            Component cancel = msgU.clickableFromConfig("cancel", "%OTHER%", ans.receiverName());
+            msgU.chatMessage(requester, ans.here() ? "here_sent" : "sent", "%OTHER%", ans.receiverName(), cancel);
+            plrU.playPresetSound(requester, "sent");
+            return;
+        }
+
+        outgoing.remove(ans.requester());
+        switch (ans.type()) {
+            case BUSY -> {
+                plrU.playPresetSound(requester, "error");
+                msgU.userMessage(requester, "other_is_busy", "%OTHER%", ans.receiverName());
+            }
+            case DENY -> {
+                plrU.playPresetSound(requester, "denied");
+                msgU.userMessage(requester, "denied_self", "%OTHER%", ans.receiverName());
+            }
+            case EXPIRE -> {
+                plrU.playPresetSound(requester, "timedout");
+                msgU.userMessage(requester, "expired_self", "%OTHER%", ans.receiverName());
+            }
+            case ACCEPT -> {
+                plrU.playPresetSound(requester, "accepted");
+                msgU.userMessage(requester, "accepted_self", "%OTHER%", ans.receiverName());
+
+                if (ans.here()) {
+                    // The receiver is coming here
+                    expectArrival(ans.receiver(), ans.requester(), true);
+                } else if (plrU.isValid(requester)) {
+                    // The requester goes to the receiver's server, once the delay is over
+                    plugin.getStateManager().connectLater(requester, () -> {
+                        msgU.chatMessage(requester, "network_switching", "%OTHER%", ans.receiverName());
+                        queue(new NetworkMessage(Type.CONNECT, ans.server(), ans.requester(), ans.requesterName(),
+                                null, null, false));
+                    });
+                }
+            }
+            default -> {}
+        }
+    }
+
+    // Receiver side: the requester canceled
+    private void handleCancel(NetworkMessage msg) {
+        Player receiver = Bukkit.getPlayerExact(msg.receiverName());
+        if (receiver == null) return;
+
+        Incoming in = incoming.get(receiver.getUniqueId());
+        if (in == null || !in.request().requester().equals(msg.requester())) return;
+
+        incoming.remove(receiver.getUniqueId());
+        in.timeout().cancel();
+        plrU.playPresetSound(receiver, "canceled");
+        msgU.userMessage(receiver, "canceled", "%OTHER%", msg.requesterName());
+    }
+
+    private synchronized void lookupFailed(UUID requesterId) {
+        Outgoing out = outgoing.remove(requesterId);
+        if (out == null) return;
+
+        Player requester = Bukkit.getPlayer(requesterId);
+        plrU.playPresetSound(requester, "error");
+        msgU.userMessage(requester, "not_online", "%OTHER%", out.receiverName());
+    }
+
+    private synchronized void forgetOutgoing(UUID requesterId) {
+        outgoing.remove(requesterId);
+    }
+
+    private synchronized void expire(UUID receiverId) {
+        Incoming in = incoming.remove(receiverId);
+        if (in == null) return;
+
+        Player receiver = Bukkit.getPlayer(receiverId);
+        NetworkMessage req = in.request();
+        queue(new NetworkMessage(Type.EXPIRE, req.server(), req.requester(), req.requesterName(),
+                receiverId, plrU.getName(receiver, req.receiverName()), req.here()));
+
+        plrU.playPresetSound(receiver, "timedout");
+        msgU.userMessage(receiver, "expired", "%OTHER%", req.requesterName());
+    }
+
+    private void expectArrival(UUID subject, UUID target, boolean here) {
+        Arrival old = arrivals.remove(subject);
+        if (old != null) old.expiry().cancel();
+
+        Task expiry = schedU.runLater(() -> forgetArrival(subject),
+                conU.getInt("network.arrival_timeout", arrivalDef, arrivalMin, arrivalMax) * 20L);
+        arrivals.put(subject, new Arrival(target, here, expiry));
+    }
+
+    private synchronized void forgetArrival(UUID subject) {
+        arrivals.remove(subject);
+    }
+}
@@ -0,0 +1,312 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.entity.Player;
+import org.bukkit.NamespacedKey;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.api.Result;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Every player's own request settings: whether they take requests at all
+ * (/tptoggle), whose requests they refuse (/tpblock) and whose they accept
+ * without being asked (/tptrust).
+ * <br><br>
+ * The settings live in the player's PersistentDataContainer, so they need no
+ * files of their own. They are read into memory on join, where every check is
+ * a single lookup, and changes are written back in batches.
+ */
+public class PreferenceManager implements Listener {
+    // Modules
+    private final PluginMain plugin;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+
+    // Limits and defaults
+    private int saveDef = 30, saveMin = 5, saveMax = 600;
+    private int listDef = 100, listMin = 1, listMax = 1000;
+
+    // Keys in the player's PersistentDataContainer
+    private final NamespacedKey offKey, blockedKey, trustedKey;
+
+    // Constructor
+    public PreferenceManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+
+        this.offKey = new NamespacedKey(plugin, "requests_off");
+        this.blockedKey = new NamespacedKey(plugin, "blocked");
+        this.trustedKey = new NamespacedKey(plugin, "trusted");
+    }
+
+    // A player's settings; replaced as a whole, so it can be read from any thread
+    private record Prefs(boolean off, Set<UUID> blocked, Set<UUID> trusted) {
+        static final Prefs DEFAULT = new Prefs(false, Set.of(), Set.of());
+    }
+
+    // Storage
+
+    // player -> their settings (online players whose settings aren't the default)
+    private final Map<UUID, Prefs> prefs = new ConcurrentHashMap<>();
+    // players whose settings changed since the last save
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private Task saveTask;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Loads the settings of everyone already online and starts saving changes periodically. */
+    public void start() {
+        for (Player plr : Bukkit.getOnlinePlayers()) schedU.run(plr, () -> load(plr));
+
+        long interval = conU.getInt("preferences.save_interval", saveDef, saveMin, saveMax) * 20L;
+        saveTask = schedU.runTimer(task -> saveDirty(), interval, interval);
+    }
+
+    /** Writes every unsaved change and stops the periodic saving. */
+    public void shutdown() {
+        if (saveTask != null) saveTask.cancel();
+        saveTask = null;
+
+        for (UUID plrId : dirty) {
+            Player plr = Bukkit.getPlayer(plrId);
+            if (plrU.isValid(plr)) write(plr, get(plrId));
+        }
+        dirty.clear();
+        prefs.clear();
+    }
+
+    /**
+     * Checks whether the receiver refuses requests from the requester.
+     *
+     * @param receiver The UUID of the player who would get the request.
+     * @param requester The UUID of the player who would send it.
+     * @return REQUESTS_OFF or BLOCKED, or null if the request is welcome.
+     */
+    public Result refusal(UUID receiver, UUID requester) {
+        Prefs p = get(receiver);
+        if (p.off()) return Result.REQUESTS_OFF;
+        if (p.blocked().contains(requester)) return Result.BLOCKED;
+        return null;
+    }
+
+    /**
+     * Checks whether the receiver accepts the requester's requests automatically.
+     *
+     * @param receiver The UUID of the player who got the request.
+     * @param requester The UUID of the player who sent it.
+     * @return <b>True</b> if the request should be accepted right away.
+     */
+    public boolean trusts(UUID receiver, UUID requester) {
+        return get(receiver).trusted().contains(requester);
+    }
+
+    /**
+     * Handles /tptoggle: turns the player's incoming requests off or back on.
+     * @param plr The player who ran the command.
+     */
+    public void toggle(Player plr) {
+        Prefs p = update(plr.getUniqueId(), old -> new Prefs(!old.off(), old.blocked(), old.trusted()));
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, p.off() ? "requests_toggled_off" : "requests_toggled_on");
+    }
+
+    /**
+     * Handles /tpblock: refuses the named player's requests from now on,
+     * or accepts them again if they were already blocked.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Should represent exactly one player.
+     */
+    public void block(Player plr, String cmd, String[] args) {
+        OfflinePlayer other = resolveTarget(plr, cmd, args);
+        if (other == null) return;
+        UUID otherId = other.getUniqueId();
+        String otherName = other.getName() != null ? other.getName() : args[0];
+
+        boolean blocked = get(plr.getUniqueId()).blocked().contains(otherId);
+        if (!blocked && isFull(plr, get(plr.getUniqueId()).blocked())) return;
+
+        // A player can't be blocked and trusted at the same time
+        update(plr.getUniqueId(), old -> new Prefs(old.off(),
+                blocked ? without(old.blocked(), otherId) : with(old.blocked(), otherId),
+                without(old.trusted(), otherId)));
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, blocked ? "player_unblocked" : "player_blocked", "%OTHER%", otherName);
+    }
+
+    /**
+     * Handles /tptrust: accepts the named player's requests automatically
+     * from now on, or stops doing so if they were already trusted.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Should represent exactly one player.
+     */
+    public void trust(Player plr, String cmd, String[] args) {
+        OfflinePlayer other = resolveTarget(plr, cmd, args);
+        if (other == null) return;
+        UUID otherId = other.getUniqueId();
+        String otherName = other.getName() != null ? other.getName() : args[0];
+
+        boolean trusted = get(plr.getUniqueId()).trusted().contains(otherId);
+        if (!trusted && isFull(plr, get(plr.getUniqueId()).trusted())) return;
+
+        update(plr.getUniqueId(), old -> new Prefs(old.off(),
+                without(old.blocked(), otherId),
+                trusted ? without(old.trusted(), otherId) : with(old.trusted(), otherId)));
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, trusted ? "player_untrusted" : "player_trusted", "%OTHER%", otherName);
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        load(event.getPlayer());
+    }
+
+    // Player data is saved after this event, so pending changes still make it to disk
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player plr = event.getPlayer();
+        UUID plrId = plr.getUniqueId();
+        if (dirty.remove(plrId)) write(plr, get(plrId));
+        prefs.remove(plrId);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private Prefs get(UUID plrId) {
+        return prefs.getOrDefault(plrId, Prefs.DEFAULT);
+    }
+
+    // Applies the change and marks it for the next save; players with default settings take no memory
+    private Prefs update(UUID plrId, UnaryOperator<Prefs> change) {
+        Prefs next = prefs.compute(plrId, (id, old) -> {
+            Prefs p = change.apply(old != null ? old : Prefs.DEFAULT);
+            return p.equals(Prefs.DEFAULT) ? null : p;
+        });
+        dirty.add(plrId);
+        return next != null ? next : Prefs.DEFAULT;
+    }
+
+    private void load(Player plr) {
+        PersistentDataContainer pdc = plr.getPersistentDataContainer();
+        Prefs p = new Prefs(
+                pdc.getOrDefault(offKey, PersistentDataType.BOOLEAN, false),
+                fromLongs(pdc.get(blockedKey, PersistentDataType.LONG_ARRAY)),
+                fromLongs(pdc.get(trustedKey, PersistentDataType.LONG_ARRAY)));
+
+        if (p.equals(Prefs.DEFAULT)) prefs.remove(plr.getUniqueId());
+        else prefs.put(plr.getUniqueId(), p);
+    }
+
+    // Writes every changed player's settings, each on their own thread
+    private void saveDirty() {
+        for (UUID plrId : dirty) {
+            if (!dirty.remove(plrId)) continue;
+            Player plr = Bukkit.getPlayer(plrId);
+            if (!plrU.isValid(plr)) continue;
+            schedU.run(plr, () -> { if (plrU.isValid(plr)) write(plr, get(plrId)); });
+        }
+    }
+
+    private void write(Player plr, Prefs p) {
+        PersistentDataContainer pdc = plr.getPersistentDataContainer();
+        if (p.off()) pdc.set(offKey, PersistentDataType.BOOLEAN, true);
+        else pdc.remove(offKey);
+        writeSet(pdc, blockedKey, p.blocked());
+        writeSet(pdc, trustedKey, p.trusted());
+    }
+
+    private void writeSet(PersistentDataContainer pdc, NamespacedKey key, Set<UUID> ids) {
+        if (ids.isEmpty()) { pdc.remove(key); return; }
+
+        // Two longs per UUID
+        long[] packed = new long[ids.size() * 2];
+        int i = 0;
+        for (UUID id : ids) {
+            packed[i++] = id.getMostSignificantBits();
+            packed[i++] = id.getLeastSignificantBits();
+        }
+        pdc.set(key, PersistentDataType.LONG_ARRAY, packed);
+    }
+
+    private static Set<UUID> fromLongs(long[] packed) {
+        if (packed == null || packed.length < 2) return Set.of();
+
+        Set<UUID> ids = new HashSet<>(packed.length);
+        for (int i = 0; i + 1 < packed.length; i += 2) ids.add(new UUID(packed[i], packed[i + 1]));
+        return Set.copyOf(ids);
+    }
+
+    private static Set<UUID> with(Set<UUID> ids, UUID id) {
+        if (ids.contains(id)) return ids;
+        Set<UUID> copy = new HashSet<>(ids);
+        copy.add(id);
+        return Set.copyOf(copy);
+    }
+
+    private static Set<UUID> without(Set<UUID> ids, UUID id) {
+        if (!ids.contains(id)) return ids;
+        Set<UUID> copy = new HashSet<>(ids);
+        copy.remove(id);
+        return Set.copyOf(copy);
+    }
+
+    // The player named in the command, or null after telling the player what's wrong
+    private OfflinePlayer resolveTarget(Player plr, String cmd, String[] args) {
+        if (args.length != 1) {
+            msgU.userMessage(plr, "usage_help_player_arg", "%COMMAND%", cmd);
+            return null;
+        }
+
+        // Online players first, then anyone who has played here before
+        Player online = Bukkit.getPlayerExact(args[0]);
+        OfflinePlayer other = online != null ? online : Bukkit.getOfflinePlayerIfCached(args[0]);
+        if (other == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "never_joined", "%OTHER%", args[0]);
+            return null;
+        }
+        if (other.getUniqueId().equals(plr.getUniqueId())) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "preference_yourself");
+            return null;
+        }
+        return other;
+    }
+
+    private boolean isFull(Player plr, Set<UUID> ids) {
+        int max = conU.getInt("preferences.max_list_size", listDef, listMin, listMax);
+        if (ids.size() < max) return false;
+
+        plrU.playPresetSound(plr, "error");
+        msgU.userMessage(plr, "preference_list_full", "%COUNT%", String.valueOf(max));
+        return true;
+    }
+}
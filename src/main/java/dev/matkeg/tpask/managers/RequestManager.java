@@ -2,13 +2,23 @@ package dev.matkeg.tpask.managers;
 
 import net.kyori.adventure.text.Component;
 
+import dev.matkeg.tpask.utilities.OutputUtils.DebugChannel;
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.managers.StateManager.CreateResult;
 import dev.matkeg.tpask.managers.StateManager;
+import dev.matkeg.tpask.api.Result;
 import dev.matkeg.tpask.utilities.*;
 import dev.matkeg.tpask.PluginMain;
 
 import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.Bukkit;
 
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /* ---------------------- MAIN CLASS ---------------------- */
@@ -20,6 +30,11 @@ public class RequestManager {
     private final MessageUtils msgU;
     private final OutputUtils output;
     private final StateManager statMan;
+    private final NetworkManager netMan;
+    private final SchedulerUtils schedU;
+    private final PreferenceManager prefMan;
+    private final ZoneManager zoneMan;
+    private final CombatManager combatMan;
     
     // Constructor
     public RequestManager(PluginMain plugin) {
@@ -29,67 +44,129 @@ public class RequestManager {
         this.conU = plugin.getConfigUtils();
         this.plrU = plugin.getPlayerUtils();
         this.statMan = plugin.getStateManager();
+        this.netMan = plugin.getNetworkManager();
+        this.schedU = plugin.getSchedulerUtils();
+        this.prefMan = plugin.getPreferenceManager();
+        this.zoneMan = plugin.getZoneManager();
+        this.combatMan = plugin.getCombatManager();
     }
 
     /* --------------------- FUNCTIONS -------------------- */
         
-    private void warnDebug(Object... args) {
-        boolean requestDebugEnabled = conU.getBoolean("debug.requests", false);
-         if (requestDebugEnabled) output.warn(args);
+    private void warnDebug(Supplier<String> msg) {
+        output.debugWarn(DebugChannel.REQUESTS, msg);
     }
     
-    private void printDebug(Object... args) {
-        boolean requestDebugEnabled = conU.getBoolean("debug.requests", false);
-         if (requestDebugEnabled) output.print(args);
+    private void printDebug(Supplier<String> msg) {
+        output.debug(DebugChannel.REQUESTS, msg);
     }
     
-    private boolean canRequestInitiate(Player requester, Player other, String otherInput) {
+    private boolean canRequesterSend(Player requester) {
+        Result problem = requesterProblem(requester.getUniqueId());
+        if (problem == null) return true;
+        
+        reportProblem(requester, null, null, problem);
+        return false;
+    }
+    
+    // The first reason the request can't be sent, or null if it can
+    private Result requestProblem(Player requester, Player other, boolean here) {
         // Check if both players are valid and online
-        if (!plrU.areValid(requester, other)) {
-            msgU.userMessage(requester, "not_online", "%OTHER%", otherInput);
-            plrU.playPresetSound(requester, "error");
-            return false;
-        }
-
+        if (!plrU.areValid(requester, other)) return Result.NOT_ONLINE;
+        
         // Check if both players aren't the same person.
-        if (requester.equals(other)) {
-            msgU.userMessage(requester, "request_yourself");
-            plrU.playPresetSound(requester, "error");
-            return false;
-        }
+        if (requester.equals(other)) return Result.SELF;
         
-        String otherName = plrU.getName(other);
-        UUID requesterUUID = requester.getUniqueId();
-        UUID otherUUID = other.getUniqueId();
-
         // Check whether the requester can send an request
-        if (statMan.hasOutgoing(requesterUUID)) {
-            msgU.userMessage(requester, "self_outgoing_busy");
-            plrU.playPresetSound(requester, "error");
-            return false;
-        }
+        Result problem = requesterProblem(requester.getUniqueId());
+        if (problem != null) return problem;
 
-        if (statMan.hasIncoming(requesterUUID)) {
-            msgU.userMessage(requester, "self_incoming_busy");
-            plrU.playPresetSound(requester, "error");
-            return false;
-        }
+        // Check if the reciever wants requests from the requester
+        UUID otherUUID = other.getUniqueId();
+        Result refusal = prefMan.refusal(otherUUID, requester.getUniqueId());
+        if (refusal != null) return refusal;
 
-        if (statMan.onCooldown(requesterUUID)) {
-            Long remaining = statMan.cooldownRemaining(requesterUUID);
-            msgU.userMessage(requester, "cooldown", "%SECONDS%", remaining.toString());
-            plrU.playPresetSound(requester, "error");
-            return false;
-        }
+        // Check if the player who'd be teleported away is fighting (the requester was checked above)
+        if (here && combatMan.inCombat(otherUUID)) return Result.IN_COMBAT;
+
+        // Check if the teleport would leave or enter a no-teleport zone
+        if (isZoneBlocked(requester, other, here)) return Result.NO_TELEPORT_ZONE;
 
         // Check if the reciever can recieve the request
-        if (statMan.hasIncoming(otherUUID) || statMan.hasOutgoing(otherUUID)) {
-            msgU.userMessage(requester, "other_is_busy", "%OTHER%", otherName);
-            plrU.playPresetSound(requester, "error");
-            return false;
+        if (statMan.hasIncoming(otherUUID) || statMan.hasOutgoing(otherUUID)) return Result.OTHER_BUSY;
+
+        return null;
+    }
+    
+    // Whether a no-teleport zone forbids the request's teleport, checked again when it happens
+    private boolean isZoneBlocked(Player requester, Player other, boolean here) {
+        Player subject = here ? other : requester, dest = here ? requester : other;
+        return zoneMan.blockingZone(subject, subject.getLocation(), dest.getLocation(),
+                here ? TeleportReason.TPAHERE : TeleportReason.TPA) != null;
+    }
+    
+    private Result requesterProblem(UUID requesterUUID) {
+        if (statMan.hasOutgoing(requesterUUID)) return Result.HAS_OUTGOING;
+        if (statMan.hasIncoming(requesterUUID)) return Result.HAS_INCOMING;
+        if (statMan.onCooldown(requesterUUID)) return Result.ON_COOLDOWN;
+        if (combatMan.inCombat(requesterUUID)) return Result.IN_COMBAT;
+        return null;
+    }
+    
+    // Tells the requester why their request wasn't sent
+    private Result reportProblem(Player requester, Player other, String otherInput, Result problem) {
+        switch (problem) {
+            case NOT_ONLINE -> msgU.userMessage(requester, "not_online", "%OTHER%", otherInput);
+            case SELF -> msgU.userMessage(requester, "request_yourself");
+            case HAS_OUTGOING -> msgU.userMessage(requester, "self_outgoing_busy");
+            case HAS_INCOMING -> msgU.userMessage(requester, "self_incoming_busy");
+            case OTHER_BUSY -> msgU.userMessage(requester, "other_is_busy", "%OTHER%", plrU.getName(other));
+            // The same message for both, so nobody can tell they were blocked
+            case REQUESTS_OFF, BLOCKED -> msgU.userMessage(requester, "requests_refused", "%OTHER%", plrU.getName(other));
+            case IN_COMBAT -> {
+                long remaining = combatMan.combatRemaining(requester.getUniqueId());
+                if (remaining > 0) msgU.userMessage(requester, "in_combat", "%SECONDS%", String.valueOf(remaining));
+                else msgU.userMessage(requester, "other_in_combat", "%OTHER%", plrU.getName(other));
+            }
+            case NO_TELEPORT_ZONE -> msgU.userMessage(requester, "zone_request_blocked", "%OTHER%", plrU.getName(other));
+            case ON_COOLDOWN -> {
+                Long remaining = statMan.cooldownRemaining(requester.getUniqueId());
+                msgU.userMessage(requester, "cooldown", "%SECONDS%", remaining.toString());
+            }
+            default -> {}
         }
+        plrU.playPresetSound(requester, "error");
+        return problem;
+    }
+    
+    // Accepts the request on the receiver's behalf if they trust the requester (/tptrust)
+    private void autoAccept(Player requester, Player receiver) {
+        if (!prefMan.trusts(receiver.getUniqueId(), requester.getUniqueId())) return;
+        
+        printDebug(() -> plrU.getName(receiver) + " trusts " + plrU.getName(requester) + ", accepting automatically");
+        schedU.run(receiver, () -> { if (plrU.isValid(receiver)) statMan.accept(receiver.getUniqueId()); });
+    }
+    
+    // Parses the /tpaall filter: a radius in blocks, a world's name or a permission node
+    private Predicate<Player> bulkFilter(Player requester, String arg) {
+        if (arg == null) return plr -> true;
 
-        return true;
+        try {
+            double radius = Double.parseDouble(arg);
+            if (radius <= 0) return null;
+            
+            Location center = requester.getLocation();
+            double radiusSq = radius * radius;
+            return plr -> {
+                Location loc = plr.getLocation();
+                return loc.getWorld() != null && loc.getWorld().equals(center.getWorld())
+                        && loc.distanceSquared(center) <= radiusSq;
+            };
+        } catch (NumberFormatException notRadius) {
+            World world = Bukkit.getWorld(arg);
+            if (world != null) return plr -> world.equals(plr.getWorld());
+            return plr -> plr.hasPermission(arg);
+        }
     }
 
     private void sendMessagesAndSounds(Player requester, Player other, 
@@ -121,30 +198,27 @@ public class RequestManager {
         plrU.playPresetSound(requester, soundSent);
     }
     
-    private boolean handleTPA(Player requester, Player target, String input) {
-        // Null-check target early and notify requester if offline
-        if (target == null || !plrU.isValid(target)) {
-            msgU.userMessage(requester, "not_online", "%OTHER%", input);
-            plrU.playPresetSound(requester, "error");
-            return true;
-        }
-
+    private Result handleTPA(Player requester, Player target, String input) {
         // Check whether we can intiate the request.
-        if (!canRequestInitiate(requester, target, input)) return true;
+        Result problem = requestProblem(requester, target, false);
+        if (problem != null) return reportProblem(requester, target, input, problem);
 
-        // Create the request.
-        statMan.createTpaRequest(requester, target);
+        // Create the request, unless the target got another one just now.
+        CreateResult result = statMan.createTpaRequest(requester, target);
+        if (result == CreateResult.BUSY) return reportProblem(requester, target, input, Result.OTHER_BUSY);
+        if (result != CreateResult.CREATED) return Result.CANCELLED_BY_PLUGIN;
 
         // Send the appropriate messages and sounds to the players.
         sendMessagesAndSounds(requester, target, "sent", "received", "sent", "received");
+        autoAccept(requester, target);
         
         // Send a debug message
-        printDebug(plrU.getName(requester), "sent a TPA request to", plrU.getName(target));
+        printDebug(() -> plrU.getName(requester) + " sent a TPA request to " + plrU.getName(target));
         
-        return true;
+        return Result.SENT;
     }
 
-    private boolean handleTPAHere(Player requester, Player subject, String input, boolean byCommand) {
+    private Result handleTPAHere(Player requester, Player subject, String input, boolean byCommand) {
         boolean tpaHereEnabled = conU.getBoolean("tpahere.enabled", true);
         // Allow permission node bypass in addition to op status
         boolean bypassRestrictions = requester.isOp();
@@ -158,33 +232,49 @@ public class RequestManager {
             } else {
                 msgU.userMessage(requester, "cmd_disabled", "%COMMAND%", "tpahere");
                 plrU.playPresetSound(requester, "error");
-                return true;
+                return Result.DISABLED;
             }
         }
 
-        // Null-check subject early and notify requester if offline
-        if (subject == null || !plrU.isValid(subject)) {
-            msgU.userMessage(requester, "not_online", "%OTHER%", input);
-            plrU.playPresetSound(requester, "error");
-            return true;
-        }
-
         // Finally, check whether we can request and send the message/s
-        if (!canRequestInitiate(requester, subject, input)) return true;
+        Result problem = requestProblem(requester, subject, true);
+        if (problem != null) return reportProblem(requester, subject, input, problem);
 
-        // Create the request.
-        statMan.createTpaHereRequest(requester, subject);
+        // Create the request, unless the subject got another one just now.
+        CreateResult result = statMan.createTpaHereRequest(requester, subject);
+        if (result == CreateResult.BUSY) return reportProblem(requester, subject, input, Result.OTHER_BUSY);
+        if (result != CreateResult.CREATED) return Result.CANCELLED_BY_PLUGIN;
 
         // Send the appropriate messages and sounds to the players.
         sendMessagesAndSounds(requester, subject, 
                     "here_sent", "here_received", 
                               "sent", "received");
+        autoAccept(requester, subject);
 
         // Send a debug message
-        printDebug(plrU.getName(requester), 
-               "sent a TPA Here request to", 
-                     plrU.getName(subject));
+        printDebug(() -> plrU.getName(requester) 
+                + " sent a TPA Here request to " 
+                + plrU.getName(subject));
         
+        return Result.SENT;
+    }
+
+    private boolean handleNetworkRequest(Player requester, String receiverName, boolean here) {
+        // Same restrictions as a local TPA Here
+        if (here && !conU.getBoolean("tpahere.enabled", true) && !requester.isOp()) {
+            msgU.userMessage(requester, "cmd_disabled", "%COMMAND%", "tpahere");
+            plrU.playPresetSound(requester, "error");
+            return true;
+        }
+
+        if (requester.getName().equalsIgnoreCase(receiverName)) {
+            msgU.userMessage(requester, "request_yourself");
+            plrU.playPresetSound(requester, "error");
+            return true;
+        }
+
+        if (!canRequesterSend(requester)) return true;
+        netMan.sendRequest(requester, receiverName, here);
         return true;
     }
 
@@ -197,19 +287,114 @@ public class RequestManager {
                 plrU.playPresetSound(req, "error");
                 return true;
             }
-            return handleTPAHere(req, receiver, args[0], true);
+            handleTPAHere(req, receiver, args[0], true);
+            return true;
         } else {
             if (receiver == null || !plrU.isValid(receiver)) {
                 msgU.userMessage(req, "not_online", "%OTHER%", args[0]);
                 plrU.playPresetSound(req, "error");
                 return true;
             }
-            return handleTPA(req, receiver, args[0]);
+            handleTPA(req, receiver, args[0]);
+            return true;
         }
     }
 
     /* ----------------------- APIs ----------------------- */
     
+    /**
+     * Handles /tpaall: sends a TPA Here request to every matching online player
+     * who has no active request of their own. All requests are created at once,
+     * and every receiver gets the same message, rendered only once.
+     *
+     * @param requester The requesting Player
+     * @param cmd The string containing the invoked command's name
+     * @param args Nothing, or one of: a radius in blocks, a world's name or a permission node.
+     */
+    public boolean handleBulkRequest(Player requester, String cmd, String[] args) {
+        Predicate<Player> filter = args.length <= 1 ? bulkFilter(requester, args.length == 1 ? args[0] : null) : null;
+        if (filter == null) {
+            msgU.userMessage(requester, "usage_help_tpaall", "%COMMAND%", cmd);
+            return true;
+        }
+
+        if (!canRequesterSend(requester)) return true;
+
+        // Collect the receivers, skipping anyone who is busy
+        int maxPlayers = conU.getInt("tpaall.max_players", 100, 1, 1000);
+        List<Player> receivers = new ArrayList<>();
+        for (Player plr : Bukkit.getOnlinePlayers()) {
+            if (receivers.size() >= maxPlayers) break;
+            if (plr.equals(requester) || !plrU.isValid(plr) || !filter.test(plr)) continue;
+            
+            UUID plrUUID = plr.getUniqueId();
+            if (statMan.hasIncoming(plrUUID) || statMan.hasOutgoing(plrUUID)) continue;
+            if (prefMan.refusal(plrUUID, requester.getUniqueId()) != null) continue;
+            if (isZoneBlocked(requester, plr, true) || combatMan.inCombat(plrUUID)) continue;
+            receivers.add(plr);
+        }
+
+        if (receivers.isEmpty()) {
+            msgU.userMessage(requester, "bulk_nobody");
+            plrU.playPresetSound(requester, "error");
+            return true;
+        }
+
+        // Create the requests, leaving out anyone who got another request just now
+        List<Player> asked = statMan.createBulkTpaHereRequest(requester, receivers);
+        if (asked.isEmpty()) {
+            msgU.userMessage(requester, "bulk_nobody");
+            plrU.playPresetSound(requester, "error");
+            return true;
+        }
+
+        // Render the receivers' message and clickables once for everyone
+        String requesterName = plrU.getName(requester);
+        Component accept = msgU.clickableFromConfig("accept", "%OTHER%", requesterName);
+        Component deny = msgU.clickableFromConfig("deny", "%OTHER%", requesterName);
+        Component acceptAndDeny = Component.empty();
+        if (accept != null) acceptAndDeny = accept;
+        if (deny != null) acceptAndDeny = acceptAndDeny.append(Component.text(" ")).append(deny);
+        msgU.groupChatMessage(asked, "here_received", "%OTHER%", requesterName, acceptAndDeny);
+
+        Component cancel = msgU.clickableFromConfig("cancel_bulk", null, null);
+        msgU.chatMessage(requester, "bulk_sent", "%COUNT%", String.valueOf(asked.size()), cancel);
+
+        for (Player receiver : asked) plrU.playPresetSound(receiver, "received");
+        plrU.playPresetSound(requester, "sent");
+        for (Player receiver : asked) autoAccept(requester, receiver);
+
+        printDebug(() -> plrU.getName(requester) + " sent a TPA Here request to " + asked.size() + " players");
+        return true;
+    }
+    
+    /**
+     * Sends a request on behalf of another plugin, with the same checks
+     * and messages as /tpa and /tpahere.
+     *
+     * @param requester The requesting player.
+     * @param receiver The player who has to answer the request.
+     * @param here Whether this is a TPA Here request.
+     * @return What came of it.
+     */
+    public Result sendRequest(Player requester, Player receiver, boolean here) {
+        String input = plrU.getName(receiver);
+        return here ? handleTPAHere(requester, receiver, input, true) : handleTPA(requester, receiver, input);
+    }
+
+    /**
+     * Checks whether a request could be sent right now, without telling the players anything.
+     *
+     * @param requester The player who would send the request.
+     * @param receiver The player who would have to answer it.
+     * @param here Whether it would be a /tpahere request.
+     * @return OK, or the first reason the request would be refused.
+     */
+    public Result checkRequest(Player requester, Player receiver, boolean here) {
+        Result problem = requestProblem(requester, receiver, here);
+        return problem != null ? problem : Result.OK;
+    }
+    
     /** 
      * The starting point of all the checks related to whether a request can be sent and
      * to displaying all appropriate notifications and similar messages.
@@ -226,6 +411,12 @@ public class RequestManager {
         }
 
         Player firstPlr = Bukkit.getPlayer(args[0]);
+        
+        // Not on this server, ask the rest of the network (if connected)
+        if (firstPlr == null && args.length == 1 && netMan.isEnabled()) {
+            return handleNetworkRequest(requester, args[0], "tpahere".equalsIgnoreCase(cmd));
+        }
+        
         // Null-check early and respond to the requester immediately
         if (firstPlr == null || !plrU.isValid(firstPlr)) {
             msgU.userMessage(requester, "not_online", "%OTHER%", args[0]);
@@ -233,7 +424,10 @@ public class RequestManager {
             return true;
         }
 
-        if ("tpahere".equalsIgnoreCase(cmd)) return handleTPAHere(requester, firstPlr, args[0], true);
+        if ("tpahere".equalsIgnoreCase(cmd)) {
+            handleTPAHere(requester, firstPlr, args[0], true);
+            return true;
+        }
         
         // Get all the needed variables.
         boolean contextEnabled = conU.getBoolean("tpahere.tpa_context_recognition", true);
@@ -249,13 +443,15 @@ public class RequestManager {
             }
             
             if (requester.equals(firstPlr)) {
-                return handleTPA(requester, secondPlr, args[1]);
+                handleTPA(requester, secondPlr, args[1]);
+                return true;
 
             } else if (requester.equals(secondPlr)) {
-                return handleTPAHere(requester, firstPlr, args[0], false);
+                handleTPAHere(requester, firstPlr, args[0], false);
+                return true;
 
             } else { // Attempted to request for somebody else.
-                warnDebug(plrU.getName(requester), "attempted to send a TPA request for somebody else.");
+                warnDebug(() -> plrU.getName(requester) + " attempted to send a TPA request for somebody else.");
                 
                 msgU.userMessage(requester, "request_for_somebody_else");
                 plrU.playPresetSound(requester, "error");
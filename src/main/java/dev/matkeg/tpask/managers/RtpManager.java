@@ -0,0 +1,251 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.WorldBorder;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Random teleports (/rtp), served from pools of safe locations which are
+ * filled in the background.
+ * <br><br>
+ * Every RTP world keeps a few locations ready. A once-a-second ticker starts
+ * at most rtp.scans_per_second chunk loads for the pools that aren't full;
+ * the chunks are loaded (or generated) asynchronously, and a snapshot of each
+ * is searched for a safe spot off the server's threads. /rtp only ever takes
+ * a location out of a pool, so it never waits for a chunk.
+ */
+public class RtpManager {
+    // Modules
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+
+    // Limits and defaults
+    private int poolDef = 8, poolMin = 1, poolMax = 100;
+    private int scanDef = 4, scanMin = 1, scanMax = 50;
+    private int minRadiusDef = 500, maxRadiusDef = 5000, radiusMin = 0, radiusMax = 29_000_000;
+    private static final int COLUMNS_PER_CHUNK = 4;
+
+    // Blocks which must not be stood on, or in
+    private static final Set<Material> UNSAFE = EnumSet.of(
+            Material.LAVA, Material.WATER, Material.FIRE, Material.SOUL_FIRE, Material.MAGMA_BLOCK,
+            Material.CACTUS, Material.CAMPFIRE, Material.SOUL_CAMPFIRE, Material.SWEET_BERRY_BUSH,
+            Material.POWDER_SNOW, Material.WITHER_ROSE, Material.POINTED_DRIPSTONE, Material.COBWEB,
+            Material.BEDROCK);
+
+    // Constructor
+    public RtpManager(PluginMain plugin) {
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+    }
+
+    // A world's ready locations and the scans still running for it
+    private static final class Pool {
+        final ConcurrentLinkedQueue<Location> ready = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicInteger scanning = new AtomicInteger();
+    }
+
+    // Storage
+    private final Map<UUID, Pool> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger scanning = new AtomicInteger();
+    private Task refillTask;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Starts filling the pools, if RTP is enabled. */
+    public void start() {
+        if (refillTask != null || !conU.getBoolean("rtp.enabled", true)) return;
+        refillTask = schedU.runTimer(task -> refill(), 20L, 20L);
+    }
+
+    /** Stops filling the pools and forgets the locations they hold. */
+    public void shutdown() {
+        if (refillTask != null) refillTask.cancel();
+        refillTask = null;
+        pools.clear();
+    }
+
+    /** Applies changed settings; ready locations may no longer fit the radius, so they are dropped. */
+    public void reload() {
+        shutdown();
+        start();
+    }
+
+    /**
+     * Handles /rtp: teleports the player to a ready location in their world,
+     * or in the first RTP world if theirs has none.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     */
+    public void randomTeleport(Player plr, String cmd) {
+        if (!conU.getBoolean("rtp.enabled", true)) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "cmd_disabled", "%COMMAND%", cmd);
+            return;
+        }
+
+        World world = targetWorld(plr.getWorld());
+        if (world == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "rtp_no_world");
+            return;
+        }
+
+        Pool pool = pools.get(world.getUID());
+        Location dest = pool != null ? pool.ready.poll() : null;
+        if (dest == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "rtp_not_ready");
+            return;
+        }
+        pool.size.decrementAndGet();
+
+        msgU.userMessage(plr, "rtp_teleporting", "%WORLD%", world.getName());
+        plrU.playPresetSound(plr, "accepted");
+        statMan.teleportLater(plr, dest, TeleportReason.RTP);
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private List<World> rtpWorlds() {
+        List<String> names = conU.getStringList("rtp.worlds");
+        if (names.isEmpty()) return List.of(Bukkit.getWorlds().get(0));
+
+        return names.stream().map(Bukkit::getWorld).filter(w -> w != null).toList();
+    }
+
+    private World targetWorld(World current) {
+        List<World> worlds = rtpWorlds();
+        if (worlds.contains(current)) return current;
+        return worlds.isEmpty() ? null : worlds.get(0);
+    }
+
+    // Starts new scans for the pools which aren't full, up to the per-second budget
+    private void refill() {
+        int poolSize = conU.getInt("rtp.pool_size", poolDef, poolMin, poolMax);
+        int perSecond = conU.getInt("rtp.scans_per_second", scanDef, scanMin, scanMax);
+        int minRadius = conU.getInt("rtp.min_radius", minRadiusDef, radiusMin, radiusMax);
+        int maxRadius = Math.max(minRadius + 1, conU.getInt("rtp.max_radius", maxRadiusDef, radiusMin, radiusMax));
+
+        List<World> worlds = rtpWorlds();
+        pools.keySet().removeIf(id -> worlds.stream().noneMatch(w -> w.getUID().equals(id)));
+
+        // Slow generation must not let scans pile up
+        int budget = Math.min(perSecond, perSecond * 2 - scanning.get());
+        for (int round = 0; budget > 0 && round < poolSize; round++) {
+            boolean started = false;
+            for (World world : worlds) {
+                Pool pool = pools.computeIfAbsent(world.getUID(), id -> new Pool());
+                if (budget <= 0 || pool.size.get() + pool.scanning.get() >= poolSize) continue;
+                scan(world, pool, minRadius, maxRadius);
+                budget--;
+                started = true;
+            }
+            if (!started) break;
+        }
+    }
+
+    // Loads a random chunk within the radius and the world border, and searches it
+    private void scan(World world, Pool pool, int minRadius, int maxRadius) {
+        WorldBorder border = world.getWorldBorder();
+        Location center = border.getCenter();
+        double borderRadius = border.getSize() / 2 - 16;
+        if (borderRadius <= 0) return;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double max = Math.min(maxRadius, borderRadius);
+        double min = Math.min(minRadius, max);
+        double angle = random.nextDouble(Math.PI * 2);
+        double distance = Math.sqrt(random.nextDouble(min * min, max * max + 1));
+        int x = (int) Math.floor(center.getX() + Math.cos(angle) * distance);
+        int z = (int) Math.floor(center.getZ() + Math.sin(angle) * distance);
+
+        pool.scanning.incrementAndGet();
+        scanning.incrementAndGet();
+        world.getChunkAtAsync(x >> 4, z >> 4, true).whenComplete((chunk, error) -> {
+            if (chunk == null) {
+                done(pool);
+                return;
+            }
+
+            // Taken where the chunk was handed over, searched elsewhere
+            ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+            boolean nether = world.getEnvironment() == World.Environment.NETHER;
+            int minY = world.getMinHeight();
+            int topY = nether ? world.getLogicalHeight() - 2 : world.getMaxHeight() - 2;
+            schedU.runAsync(() -> {
+                try {
+                    Location found = findSafe(world, snapshot, nether, minY, topY);
+                    if (found != null && pools.get(world.getUID()) == pool) {
+                        pool.ready.add(found);
+                        pool.size.incrementAndGet();
+                    }
+                } finally {
+                    done(pool);
+                }
+            });
+        });
+    }
+
+    private void done(Pool pool) {
+        pool.scanning.decrementAndGet();
+        scanning.decrementAndGet();
+    }
+
+    // A spot with solid, harmless ground and two free blocks above it, or null
+    private static Location findSafe(World world, ChunkSnapshot snapshot, boolean nether, int minY, int topY) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < COLUMNS_PER_CHUNK; i++) {
+            int cx = random.nextInt(16), cz = random.nextInt(16);
+
+            // The nether's roof would always be the highest block, so search from below it
+            int start = nether ? topY : Math.min(topY, snapshot.getHighestBlockYAt(cx, cz));
+            for (int y = start; y > minY; y--) {
+                Material ground = snapshot.getBlockType(cx, y, cz);
+                if (!ground.isSolid()) continue;
+                // In the nether, the roof's bedrock, magma and crowded ledges are passed on the way to the caves below
+                if (UNSAFE.contains(ground) || y + 2 > topY + 1 || !isFree(snapshot.getBlockType(cx, y + 1, cz))
+                        || !isFree(snapshot.getBlockType(cx, y + 2, cz))) {
+                    if (nether) continue;
+                    break;
+                }
+                int x = (snapshot.getX() << 4) + cx, z = (snapshot.getZ() << 4) + cz;
+                return new Location(world, x + 0.5, y + 1, z + 0.5);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isFree(Material type) {
+        return !type.isSolid() && !UNSAFE.contains(type);
+    }
+}
@@ -0,0 +1,115 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.managers.StateManager.RequestType;
+import dev.matkeg.tpask.api.PendingRequest;
+import dev.matkeg.tpask.api.TPAskService;
+import dev.matkeg.tpask.api.Result;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.List;
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * The TPAskService other plugins get from Bukkit's ServicesManager. Every
+ * action is handed to the acting player's thread and runs the same code
+ * as the matching command.
+ */
+public class ServiceManager implements TPAskService {
+    // Modules
+    private final PluginMain plugin;
+    private final PlayerUtils plrU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+    private final RequestManager reqMan;
+
+    // Constructor
+    public ServiceManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.plrU = plugin.getPlayerUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+        this.reqMan = plugin.getRequestManager();
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // Runs the action on the player's thread, completing the future with its result
+    private CompletableFuture<Result> onPlayerThread(Player player, Supplier<Result> action) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        if (!plrU.isValid(player)) {
+            future.complete(Result.NOT_ONLINE);
+            return future;
+        }
+
+        schedU.run(player, () -> {
+            try {
+                future.complete(plrU.isValid(player) ? action.get() : Result.NOT_ONLINE);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Makes the service available through Bukkit's ServicesManager. */
+    public void register() {
+        Bukkit.getServicesManager().register(TPAskService.class, this, plugin, ServicePriority.Normal);
+    }
+
+    /** Withdraws the service again. */
+    public void unregister() {
+        Bukkit.getServicesManager().unregister(TPAskService.class, this);
+    }
+
+    @Override
+    public CompletableFuture<Result> request(Player requester, Player receiver, RequestType type) {
+        return onPlayerThread(requester, () -> reqMan.sendRequest(requester, receiver, type == RequestType.TPAHERE));
+    }
+
+    @Override
+    public CompletableFuture<Result> accept(Player receiver) {
+        return onPlayerThread(receiver, () -> statMan.accept(receiver.getUniqueId()));
+    }
+
+    @Override
+    public CompletableFuture<Result> deny(Player receiver) {
+        return onPlayerThread(receiver, () -> statMan.deny(receiver.getUniqueId()));
+    }
+
+    @Override
+    public CompletableFuture<Result> cancel(Player requester) {
+        return onPlayerThread(requester, () -> statMan.cancel(requester.getUniqueId()));
+    }
+
+    @Override
+    public CompletableFuture<Result> back(Player player) {
+        return onPlayerThread(player, () -> statMan.back(player));
+    }
+
+    @Override
+    public CompletableFuture<Result> check(Player requester, Player receiver, RequestType type) {
+        return onPlayerThread(requester, () -> reqMan.checkRequest(requester, receiver, type == RequestType.TPAHERE));
+    }
+
+    @Override
+    public boolean hasIncoming(UUID player) { return statMan.hasIncoming(player); }
+
+    @Override
+    public boolean hasOutgoing(UUID player) { return statMan.hasOutgoing(player); }
+
+    @Override
+    public long cooldownRemaining(UUID player) { return statMan.cooldownRemaining(player); }
+
+    @Override
+    public List<PendingRequest> getPendingRequests() { return statMan.getPendingRequests(); }
+}
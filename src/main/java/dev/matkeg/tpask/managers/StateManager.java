@@ -1,27 +1,55 @@
 package dev.matkeg.tpask.managers;
 
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.potion.PotionEffect;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
 import org.bukkit.entity.Player;
 import org.bukkit.Location;
 import org.bukkit.Bukkit;
 
+import dev.matkeg.tpask.api.event.TpaRequestResolveEvent.Resolution;
+import dev.matkeg.tpask.diagnostics.RequestJfrEvent;
+import dev.matkeg.tpask.api.event.*;
+import dev.matkeg.tpask.api.PendingRequest;
+import dev.matkeg.tpask.api.Result;
+import dev.matkeg.tpask.diagnostics.TeleportJfrEvent;
+import dev.matkeg.tpask.diagnostics.LeakDetector;
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
 import dev.matkeg.tpask.managers.LanguageManager;
 import dev.matkeg.tpask.utilities.*;
 import dev.matkeg.tpask.PluginMain;
-import java.util.HashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.Map;
 
 /* ---------------------- MAIN CLASS ---------------------- */
-public class StateManager {
+public class StateManager implements Listener {
     // Modules
     private final PlayerUtils plrU;
     private final ConfigUtils conU;
     private final PluginMain plugin;
     private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
     private final LanguageManager langMan;
+    private final TeleportQueueManager teleQueue;
+    private final NetworkManager netMan;
+    private final LeakDetector leakDet;
+    private final CombatManager combatMan;
+    private final EffectManager effectMan;
 
     // Limits and defaults
     private int timeDef = 20, timeMin = 5, timeMax = 180;
@@ -30,34 +58,59 @@ public class StateManager {
     private int cooldownDef = 60, cooldownMin = 0, cooldownMax = 900;
     private double leewayDef = 1.0, leewayMin = 0.8, leewayMax = 128.0;
     
+    // Time source for cooldowns (ms)
+    private volatile LongSupplier clock = System::currentTimeMillis;
+    
     // Constructor
     public StateManager(PluginMain plugin) {
         this.plugin = plugin;
         this.conU = plugin.getConfigUtils();
         this.plrU = plugin.getPlayerUtils();
         this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
         this.langMan = plugin.getLanguageManager();
+        this.teleQueue = plugin.getTeleportQueueManager();
+        this.netMan = plugin.getNetworkManager();
+        this.leakDet = plugin.getLeakDetector();
+        this.combatMan = plugin.getCombatManager();
+        this.effectMan = plugin.getEffectManager();
     }
 
     // Enums
     public enum RequestType { TPA, TPAHERE }
+    public enum CreateResult { CREATED, BUSY, CANCELLED }
+
+    // A pending request; bulk requests keep their timeout in the Bulk instead
+    private record Request(UUID requester, UUID receiver, RequestType type, Task timeout, long sentAt, long expiresAt) {}
+    // A pending /tpaall request and its single timeout task
+    private record Bulk(Set<UUID> receivers, Task timeout) {}
+    // A remembered location and the task which forgets it
+    private record PreviousLocation(Location location, Task forget) {}
+    // A teleport waiting out its delay; removing it from "delayed" is what lets it run
+    private static final class Delayed {
+        private final UUID target; // null for /back
+        private volatile Task task;
+        private Delayed(UUID target) { this.target = target; }
+    }
 
     // Storage
+    // Everything below may be touched from any region thread on Folia. Removing a
+    // request from "incoming" is what claims it, so only one answer ever wins.
     
-    // receiver -> requester
-    private final Map<UUID, UUID> incoming = new HashMap<>();
-    // requester -> receiver
-    private final Map<UUID, UUID> outgoing = new HashMap<>();
-    // requester -> cooldown (ms)
-    private final Map<UUID, Long> cooldowns = new HashMap<>();
-    // receiver -> timeout task
-    private final Map<UUID, BukkitTask> timeouts = new HashMap<>();
-    // receiver -> request type
-    private final Map<UUID, RequestType> requestTypes = new HashMap<>();
+    // receiver -> request
+    private final Map<UUID, Request> incoming = new ConcurrentHashMap<>();
+    // requester -> request (single requests only)
+    private final Map<UUID, Request> outgoing = new ConcurrentHashMap<>();
+    // requester -> cooldown (ms), unboxed, guarded by itself
+    private final Object2LongOpenHashMap<UUID> cooldowns = new Object2LongOpenHashMap<>();
+    // requester -> their bulk (/tpaall) request
+    private final Map<UUID, Bulk> bulkOutgoing = new ConcurrentHashMap<>();
     // player -> previous Location
-    private final Map<UUID, Location> previousLocations = new HashMap<>();
-    // player -> forget location task
-    private final Map<UUID, BukkitTask> previousLocationTasks = new HashMap<>();
+    private final Map<UUID, PreviousLocation> previousLocations = new ConcurrentHashMap<>();
+    // subject -> their teleport waiting out its delay
+    private final Map<UUID, Delayed> delayed = new ConcurrentHashMap<>();
+    // Cached freeze effects (slowness, mining fatigue)
+    private volatile PotionEffect[] freezeEffects;
     
     /* ---------------------- APIs ------------------------ */
     
@@ -66,8 +119,8 @@ public class StateManager {
      * @param receiver The UUID of the player receiving the request.
      * @return <b>True</b> if there is an incoming request and vice versa.
      */
-    public synchronized boolean hasIncoming(UUID receiver) {
-        return incoming.containsKey(receiver);
+    public boolean hasIncoming(UUID receiver) {
+        return incoming.containsKey(receiver) || netMan.hasIncoming(receiver);
     }
 
     /**
@@ -75,8 +128,9 @@ public class StateManager {
      * @param requester The UUID of the requesting player.
      * @return <b>True</b> if there is an outgoing request and vice versa.
      */
-    public synchronized boolean hasOutgoing(UUID requester) {
-        return outgoing.containsKey(requester);
+    public boolean hasOutgoing(UUID requester) {
+        return outgoing.containsKey(requester) || bulkOutgoing.containsKey(requester)
+                || netMan.hasOutgoing(requester);
     }
     
     /**
@@ -86,7 +140,7 @@ public class StateManager {
      * @param requester The UUID of the requesting player.
      * @return <b>True</b> if there is a known last location and vice versa.
      */
-    public synchronized boolean hasLastKnownLocation(UUID playerId) {
+    public boolean hasLastKnownLocation(UUID playerId) {
         return previousLocations.containsKey(playerId);
     }
     
@@ -95,10 +149,11 @@ public class StateManager {
      * @param requester The UUID of the player.
      * @return <b>True</b> if the player is on cooldown.
      */
-    public synchronized boolean onCooldown(UUID requester) {
-        Long until = cooldowns.get(requester);
-        if (until == null) return false;
-        return System.currentTimeMillis() < until;
+    public boolean onCooldown(UUID requester) {
+        // Missing entries read as 0, which is always in the past
+        synchronized (cooldowns) {
+            return clock.getAsLong() < cooldowns.getLong(requester);
+        }
     }
 
     /**
@@ -107,13 +162,95 @@ public class StateManager {
      * @return Remaining cooldown time in seconds.<br> 
      * <i>0 if no cooldown is active.</i>
      */
-    public synchronized long cooldownRemaining(UUID requester) {
-        Long until = cooldowns.get(requester);
-        if (until == null) return 0;
-        long remaining = until - System.currentTimeMillis();
+    public long cooldownRemaining(UUID requester) {
+        long until;
+        synchronized (cooldowns) { until = cooldowns.getLong(requester); }
+        if (until == 0) return 0;
+        long remaining = until - clock.getAsLong();
         return remaining > 0 ? remaining / 1000L : 0;
     }
 
+    /**
+     * Returns the number of entries held in each of the internal maps.
+     * Meant for diagnostics, e.g. checking for state left behind.
+     * @return Map names mapped to their sizes, in declaration order.
+     */
+    public Map<String, Integer> getStorageSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put("incoming", incoming.size());
+        sizes.put("outgoing", outgoing.size());
+        synchronized (cooldowns) { sizes.put("cooldowns", cooldowns.size()); }
+        sizes.put("bulkOutgoing", bulkOutgoing.size());
+        sizes.put("previousLocations", previousLocations.size());
+        sizes.put("delayed", delayed.size());
+        return sizes;
+    }
+    
+    /**
+     * Returns the local requests which are still waiting for an answer.
+     * @return A read-only copy, safe to use from any thread.
+     */
+    public List<PendingRequest> getPendingRequests() {
+        List<PendingRequest> pending = new ArrayList<>(incoming.size());
+        for (Request r : incoming.values())
+            pending.add(new PendingRequest(r.requester(), r.receiver(), r.type(), r.timeout() == null));
+        return Collections.unmodifiableList(pending);
+    }
+    
+    /** Receives the local pending requests, one at a time. */
+    public interface PendingVisitor {
+        void visit(UUID requester, UUID receiver, boolean bulk, long sentAt, long expiresAt);
+    }
+    
+    /**
+     * Hands every local pending request to the visitor, without copying them.
+     * @param visitor Called once per request, with its send and expiry times in milliseconds.
+     */
+    public void forEachPending(PendingVisitor visitor) {
+        for (Request r : incoming.values())
+            visitor.visit(r.requester(), r.receiver(), r.timeout() == null, r.sentAt(), r.expiresAt());
+    }
+    
+    /**
+     * Returns the given player's local incoming request.
+     * @param receiver The UUID of the receiving player.
+     * @return The request, or null if they have none (or only one from another server).
+     */
+    public PendingRequest getIncomingRequest(UUID receiver) {
+        Request r = incoming.get(receiver);
+        return r != null ? new PendingRequest(r.requester(), r.receiver(), r.type(), r.timeout() == null) : null;
+    }
+    
+    /**
+     * Returns everyone the given player's local outgoing request still waits on.
+     * @param requester The UUID of the requesting player.
+     * @return A read-only copy; empty if they have no local outgoing request.
+     */
+    public Set<UUID> getOutgoingReceivers(UUID requester) {
+        Request r = outgoing.get(requester);
+        if (r != null) return Set.of(r.receiver());
+        Bulk bulk = bulkOutgoing.get(requester);
+        return bulk != null ? Set.copyOf(bulk.receivers()) : Set.of();
+    }
+    
+    /**
+     * Puts the given player on the request cooldown from config.yml.
+     * @param requester The UUID of the player who sent a request.
+     */
+    public void startCooldown(UUID requester) {
+        long until = clock.getAsLong() + conU.getInt("tpa.cooldown", cooldownDef, cooldownMin, cooldownMax) * 1000L;
+        synchronized (cooldowns) { cooldowns.put(requester, until); }
+    }
+    
+    /**
+     * Replaces the time source used for cooldowns. Only meant for 
+     * simulations which run the server clock faster than real time.
+     * @param clock Supplies the current time in milliseconds.
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock != null ? clock : System::currentTimeMillis;
+    }
+
     /* ----------------- REQUEST HANDLERS ----------------- */
     
     /**
@@ -125,27 +262,15 @@ public class StateManager {
      * A player who receives the request is refereed to as 
      * a "receiver", they are the one who the "requester" 
      * will be potentially teleported to.</i> 
+     * 
+     * @return BUSY if one of the players got another request in the meantime,
+     * CANCELLED if a plugin cancelled the TpaRequestCreateEvent.
      */
-    public synchronized void createTpaRequest(Player requester, Player receiver) {
-        // Get the UUIDs of the two players
-        UUID reqUUID = requester.getUniqueId(), 
-              recUUID = receiver.getUniqueId();
-
-        // Map the incoming and outgoing requests
-        incoming.put(recUUID, reqUUID); outgoing.put(reqUUID, recUUID);
-        requestTypes.put(recUUID, RequestType.TPA);
-
-        // Store the cooldown.
-        cooldowns.put(reqUUID, System.currentTimeMillis() +
-                conU.getInt("tpa.cooldown", cooldownDef, cooldownMin, cooldownMax) * 1000L);
-
-        // Store the timout task
-        BukkitTask timeoutTask = Bukkit.getScheduler().runTaskLater(
-                plugin, () -> expire(recUUID),
-                conU.getInt("tpa.timeout", timeDef, timeMin, timeMax) * 20L);
-        
-        // Store the timeoutTask for later removal        
-        timeouts.put(recUUID, timeoutTask);
+    public CreateResult createTpaRequest(Player requester, Player receiver) {
+        CreateResult result = createRequest(requester, receiver, RequestType.TPA);
+        if (result == CreateResult.CREATED)
+            RequestJfrEvent.emit("CREATE", RequestType.TPA, requester.getName(), receiver.getName());
+        return result;
     }
     
     /**
@@ -157,27 +282,67 @@ public class StateManager {
      * A player who receives the request is refereed to as 
      * a "receiver", they are the one who will be potentially 
      * teleported.</i> 
+     * 
+     * @return BUSY if one of the players got another request in the meantime,
+     * CANCELLED if a plugin cancelled the TpaRequestCreateEvent.
      */
-    public synchronized void createTpaHereRequest(Player requester, Player receiver) {
-        // Get the UUIDs of the two players
-        UUID reqUUID = requester.getUniqueId(), 
-              recUUID = receiver.getUniqueId();
-        
-        // Map the incoming and outgoing requests
-        incoming.put(recUUID, reqUUID); outgoing.put(reqUUID, recUUID);
-        requestTypes.put(recUUID, RequestType.TPAHERE);
+    public CreateResult createTpaHereRequest(Player requester, Player receiver) {
+        CreateResult result = createRequest(requester, receiver, RequestType.TPAHERE);
+        if (result == CreateResult.CREATED)
+            RequestJfrEvent.emit("CREATE", RequestType.TPAHERE, requester.getName(), receiver.getName());
+        return result;
+    }
+    
+    /**
+     * Creates TPA here requests from one player to many, in a single step.
+     * All of them share one timeout task and count as one outgoing request,
+     * which /tpcancel cancels as a whole.
+     * 
+     * @param requester The requesting player.
+     * @param receivers The players who will be asked to teleport to the requester.
+     *                  They must not have any active requests.
+     * 
+     * @return The receivers who were actually asked, leaving out anyone who got
+     * another request in the meantime or whose TpaRequestCreateEvent was cancelled.
+     */
+    public List<Player> createBulkTpaHereRequest(Player requester, List<? extends Player> receivers) {
+        UUID reqUUID = requester.getUniqueId();
+        List<Player> asked = new ArrayList<>(receivers.size());
+        Set<UUID> recUUIDs = ConcurrentHashMap.newKeySet(receivers.size());
 
-        // Store the cooldown.
-        cooldowns.put(reqUUID, System.currentTimeMillis() +
-                conU.getInt("tpa.cooldown", cooldownDef, cooldownMin, cooldownMax) * 1000L);
+        // One timeout task for the whole batch
+        int timeout = conU.getInt("tpa.timeout", timeDef, timeMin, timeMax);
+        long sentAt = System.currentTimeMillis(), expiresAt = sentAt + timeout * 1000L;
+        Task timeoutTask = schedU.runLater(() -> expireBulk(reqUUID), timeout * 20L);
+        Bulk bulk = new Bulk(recUUIDs, timeoutTask);
+        if (outgoing.containsKey(reqUUID) || bulkOutgoing.putIfAbsent(reqUUID, bulk) != null) {
+            timeoutTask.cancel();
+            return asked;
+        }
 
-        // Store the timout task
-        BukkitTask timeoutTask = Bukkit.getScheduler().runTaskLater(
-                plugin, () -> expire(recUUID),
-                conU.getInt("tpa.timeout", timeDef, timeMin, timeMax) * 20L);
+        // Map every incoming request to the requester
+        boolean fire = TpaRequestCreateEvent.hasListeners();
+        for (Player receiver : receivers) {
+            UUID recUUID = receiver.getUniqueId();
+            if (fire && !new TpaRequestCreateEvent(reqUUID, recUUID, RequestType.TPAHERE).callEvent()) continue;
+            recUUIDs.add(recUUID);
+            if (incoming.putIfAbsent(recUUID, new Request(reqUUID, recUUID, RequestType.TPAHERE, null, sentAt, expiresAt)) != null) {
+                recUUIDs.remove(recUUID);
+                continue;
+            }
+            asked.add(receiver);
+        }
+        
+        if (asked.isEmpty()) {
+            bulkOutgoing.remove(reqUUID, bulk);
+            timeoutTask.cancel();
+            return asked;
+        }
 
-        // Store the timeoutTask for later removal
-        timeouts.put(recUUID, timeoutTask);
+        // Store the cooldown.
+        startCooldown(reqUUID);
+        RequestJfrEvent.emitBulk("CREATE", RequestType.TPAHERE, requester.getName(), asked.size());
+        return asked;
     }
     
     /**
@@ -188,24 +353,31 @@ public class StateManager {
      * A player who receives the request is refereed to as 
      * a "receiver", they are the one who the "requester" 
      * will be potentially teleported to.</i> 
+     * 
+     * @return ACCEPTED, or why the request couldn't be accepted.
      */
-    public synchronized void accept(UUID receiverId) {
-        // Get the requester's UUID and remove
-        // the incoming and outgoing entries
-        UUID requesterId = incoming.remove(receiverId);
-        if (requesterId == null) {
+    public Result accept(UUID receiverId) {
+        Request request = incoming.get(receiverId);
+        if (request == null) {
             Player plr = Bukkit.getPlayer(receiverId);
+            Result remote = netMan.accept(plr); // A request from another server
+            if (remote != null) return remote;
             plrU.playPresetSound(plr, "error");
             msgU.userMessage(plr, "no_active");
-            return;
+            return Result.NO_REQUEST;
         }
-        outgoing.remove(requesterId);
-        // Remove request type mapping for this receiver
-        RequestType type = requestTypes.remove(receiverId);
         
-        // Remove the bukkit expire task
-        BukkitTask t = timeouts.remove(receiverId);
-        if (t != null) t.cancel();
+        // Nobody fighting another player is teleported away, or sends the other one off
+        UUID subjectId = request.type() == RequestType.TPAHERE ? receiverId : request.requester();
+        if (refuseInCombat(Bukkit.getPlayer(receiverId), subjectId)) return Result.IN_COMBAT;
+        
+        if (TpaRequestAcceptEvent.hasListeners() && !new TpaRequestAcceptEvent(
+                request.requester(), receiverId, request.type()).callEvent()) return Result.CANCELLED_BY_PLUGIN;
+        
+        // Claim the request and remove the outgoing entry
+        if (!incoming.remove(receiverId, request)) return Result.NO_REQUEST;
+        UUID requesterId = release(request);
+        RequestType type = request.type();
 
         // Get the request's players' data
         Player requester = Bukkit.getPlayer(requesterId);
@@ -216,6 +388,7 @@ public class StateManager {
             langMan.getLocalizedString("player_noun", "Player"));
         String receiverName = plrU.getName(receiver, 
             langMan.getLocalizedString("player_noun", "Player"));
+        RequestJfrEvent.emit("ACCEPT", type, requesterName, receiverName);
         
         // Issue out messages and sound effects to the requester and reciever
         playSoundToPlayers(receiver, "accepted", requester, "accepted");
@@ -225,44 +398,40 @@ public class StateManager {
         // Determine who should be affected by freeze
         Player affected = (type == RequestType.TPAHERE) ? receiver : requester;
         
-        // Add a temp freeze effect while teleporting (if configured to do so)
-        if (conU.getBoolean("tpa.freeze", true) && plrU.isValid(affected)) {
-            affected.addPotionEffect( new PotionEffect(
-                PotionEffectType.SLOWNESS,
-                conU.getInt("tpa.delay", delayDef, delayMin, delayMax) * 20,
-                255, true, true, false
-            ));
-        
-            affected.addPotionEffect( new PotionEffect(
-                PotionEffectType.MINING_FATIGUE,
-                conU.getInt("tpa.delay", delayDef, delayMin, delayMax) * 20,
-                255, true, true, false
-            ));
-        }
+        // Get the teleported player's starting position and add a temp freeze effect while
+        // teleporting (if configured to do so), on their thread; the delay runs there after it
+        AtomicReference<Location> startLoc = new AtomicReference<>();
+        boolean freeze = conU.getBoolean("tpa.freeze", true);
+        int freezeTicks = conU.getInt("tpa.delay", delayDef, delayMin, delayMax) * 20;
+        if (plrU.isValid(affected)) schedU.run(affected, () -> {
+            if (!plrU.isValid(affected)) return;
+            startLoc.set(affected.getLocation());
+            if (freeze) applyFreeze(affected, freezeTicks);
+        });
+        long acceptedAt = System.currentTimeMillis();
+        UUID affectedId = (type == RequestType.TPAHERE) ? receiverId : requesterId;
+        UUID targetId = (type == RequestType.TPAHERE) ? requesterId : receiverId;
         
-        // Get the requester's starting position
-        Location requesterStartLoc = requester != null ? requester.getLocation() : null;
-        Location receiverStartLoc = receiver != null ? receiver.getLocation() : null;
-        
-        // Setup the task which teleports the requester to the receiver
-        Bukkit.getScheduler().runTaskLater(plugin,
+        // Setup the task which teleports the requester to the receiver, on the teleported player's thread
+        delay(affected, affectedId, targetId,
                 // This is kinda messy, but we NEED to know
                 // data on the two player's in this request.
                 () -> {
                     if (type == RequestType.TPAHERE) {
                         teleportAcceptTask(
-                                requester, receiverStartLoc, 
+                                TeleportReason.TPAHERE, startLoc.get(), acceptedAt,
                                 receiver, receiverName, 
                                 requester, requesterName
                         );
                     } else /* TPA */ {
                         teleportAcceptTask(
-                                requester, requesterStartLoc,  
+                                TeleportReason.TPA, startLoc.get(), acceptedAt,
                                 requester, requesterName, 
                                 receiver, receiverName
                         );
                     }
                 }, conU.getInt("tpa.delay", delayDef, delayMin, delayMax) * 20L);
+        return Result.ACCEPTED;
     }
         
     /**
@@ -273,25 +442,25 @@ public class StateManager {
      * A player who receives the request is refereed to as 
      * a "receiver", they are the one who the "requester" 
      * will be potentially teleported to.</i> 
+     * 
+     * @return DENIED, or why the request couldn't be denied.
      */
-    public synchronized void deny(UUID receiverId) {
-        // Get the requester's UUID and remove
-        // the incoming and outgoing entries
-        UUID requesterId = incoming.remove(receiverId);
-        if (requesterId == null) {
+    public Result deny(UUID receiverId) {
+        Request request = incoming.get(receiverId);
+        if (request == null) {
             Player plr = Bukkit.getPlayer(receiverId);
+            Result remote = netMan.deny(plr); // A request from another server
+            if (remote != null) return remote;
             plrU.playPresetSound(plr, "error");
             msgU.userMessage(plr, "no_active");
-            return;
+            return Result.NO_REQUEST;
         }
+        if (!fireResolve(request, Resolution.DENY)) return Result.CANCELLED_BY_PLUGIN;
         
-        outgoing.remove(requesterId);
-        // Remove request type mapping
-        requestTypes.remove(receiverId);
-        
-        // Remove the bukkit task;
-        BukkitTask t = timeouts.remove(receiverId);
-        if (t != null) t.cancel();
+        // Claim the request and remove the outgoing entry
+        if (!incoming.remove(receiverId, request)) return Result.NO_REQUEST;
+        UUID requesterId = release(request);
+        RequestType type = request.type();
         
         // Get the request's players' data
         Player requester = Bukkit.getPlayer(requesterId);
@@ -301,11 +470,13 @@ public class StateManager {
             langMan.getLocalizedString("player_noun", "Player"));
         String receiverName = plrU.getName(receiver, 
             langMan.getLocalizedString("player_noun", "Player"));
+        RequestJfrEvent.emit("DENY", type, requesterName, receiverName);
         
         // Issue out messages and sound effects to the requester and reciever
         playSoundToPlayers(receiver, "denied", requester, "denied");
         msgU.userMessage(receiver, "denied", "%OTHER%", requesterName);
         msgU.userMessage(requester, "denied_self", "%OTHER%", receiverName);
+        return Result.DENIED;
     }
 
     /**
@@ -316,25 +487,31 @@ public class StateManager {
      * A player who requires the request is refereed to as 
      * a "requester", they are the one who is going to
      * teleport to the "receiver".</i> 
+     * 
+     * @return CANCELLED, or why the request couldn't be cancelled.
      */
-    public synchronized void cancel(UUID requesterId) {
-        // Get the receiver's UUID and remove
-        // the incoming and outgoing entries
-        UUID receiverId = outgoing.remove(requesterId);
-        if (receiverId == null) {
+    public Result cancel(UUID requesterId) {
+        Request request = outgoing.get(requesterId);
+        if (request == null && bulkOutgoing.containsKey(requesterId)) {
+            int ended = endBulk(requesterId, Resolution.CANCEL, "canceled", "bulk_canceled_self", "canceled");
+            return ended == 0 && bulkOutgoing.containsKey(requesterId) ? Result.CANCELLED_BY_PLUGIN : Result.CANCELLED;
+        }
+        if (request == null) {
             Player plr = Bukkit.getPlayer(requesterId);
+            Result remote = netMan.cancel(plr); // A request to another server
+            if (remote != null) return remote;
             plrU.playPresetSound(plr, "error");
             msgU.userMessage(plr, "no_active");
-            return;
+            return Result.NO_REQUEST;
         }
         
-        incoming.remove(receiverId);
-        // Remove request type mapping
-        requestTypes.remove(receiverId);
+        if (!fireResolve(request, Resolution.CANCEL)) return Result.CANCELLED_BY_PLUGIN;
         
-        // Remove the bukkit task;
-        BukkitTask t = timeouts.remove(receiverId);
-        if (t != null) t.cancel();
+        // Claim the request, unless the receiver answered it just now
+        if (!incoming.remove(request.receiver(), request)) return Result.NO_REQUEST;
+        UUID receiverId = request.receiver();
+        release(request);
+        RequestType type = request.type();
 
         // Get the request's players' data
         Player requester = Bukkit.getPlayer(requesterId);
@@ -344,22 +521,89 @@ public class StateManager {
             langMan.getLocalizedString("player_noun", "Player"));
         String receiverName = plrU.getName(receiver, 
             langMan.getLocalizedString("player_noun", "Player"));
+        RequestJfrEvent.emit("CANCEL", type, requesterName, receiverName);
         
         // Issue out messages and sound effects to the requester and reciever
         playSoundToPlayers(receiver, "canceled", requester, "canceled");
         msgU.userMessage(receiver, "canceled", "%OTHER%", requesterName); 
         msgU.userMessage(requester, "canceled_self", "%OTHER%", receiverName);
+        return Result.CANCELLED;
     }
 
-    public synchronized void cancelAll() {
-        for (var t : timeouts.values()) if (t != null) t.cancel();
-        incoming.clear(); outgoing.clear(); timeouts.clear(); cooldowns.clear();
-        // Clear request types as well
-        requestTypes.clear();
+    public void cancelAll() {
+        for (Request r : incoming.values()) if (r.timeout() != null) r.timeout().cancel();
+        for (Bulk b : bulkOutgoing.values()) b.timeout().cancel();
+        for (Delayed d : delayed.values()) if (d.task != null) d.task.cancel();
+        incoming.clear(); outgoing.clear(); bulkOutgoing.clear(); delayed.clear();
+        synchronized (cooldowns) { cooldowns.clear(); }
         
         // Cancel and clear previous location tasks and storage
-        for (var t : previousLocationTasks.values()) if (t != null) t.cancel();
-        previousLocationTasks.clear(); previousLocations.clear();
+        for (PreviousLocation p : previousLocations.values()) p.forget().cancel();
+        previousLocations.clear();
+    }
+
+    /**
+     * Ends every request and delayed teleport the given player is part of
+     * right away, instead of leaving them to their timeouts, and tells the
+     * other players involved. Their /back location is forgotten as well.
+     * 
+     * @param player The player who is leaving the server.
+     */
+    public void playerLeft(Player player) {
+        UUID plrId = player.getUniqueId();
+        String plrName = player.getName();
+
+        // Their own request, which the receiver no longer has to answer
+        Request out = outgoing.get(plrId);
+        if (out != null && incoming.remove(out.receiver(), out)) {
+            release(out);
+            fireResolve(out, Resolution.DISCONNECT);
+            Player receiver = Bukkit.getPlayer(out.receiver());
+            RequestJfrEvent.emit("DISCONNECT", out.type(), plrName, plrU.getName(receiver, 
+                langMan.getLocalizedString("player_noun", "Player")));
+            if (plrU.isValid(receiver)) plrU.playPresetSound(receiver, "canceled");
+            msgU.userMessage(receiver, "disconnected", "%OTHER%", plrName);
+        }
+        if (bulkOutgoing.containsKey(plrId))
+            endBulk(plrId, Resolution.DISCONNECT, "disconnected", null, "canceled");
+
+        // The request they received, which the requester is waiting on
+        Request in = incoming.get(plrId);
+        if (in != null && incoming.remove(plrId, in)) {
+            release(in);
+            fireResolve(in, Resolution.DISCONNECT);
+            Player requester = Bukkit.getPlayer(in.requester());
+            RequestJfrEvent.emit("DISCONNECT", in.type(), plrU.getName(requester, 
+                langMan.getLocalizedString("player_noun", "Player")), plrName);
+            if (plrU.isValid(requester)) plrU.playPresetSound(requester, "canceled");
+            msgU.userMessage(requester, "disconnected_self", "%OTHER%", plrName);
+        }
+
+        // Teleports waiting out their delay, whether they were the subject or the target
+        Delayed own = delayed.remove(plrId);
+        if (own != null) {
+            if (own.task != null) own.task.cancel();
+            TeleportJfrEvent.abort(plrName, "DISCONNECTED");
+            Player target = own.target != null ? Bukkit.getPlayer(own.target) : null;
+            if (plrU.isValid(target)) plrU.playPresetSound(target, "denied");
+            msgU.userMessage(target, "error_disconnect", "%OTHER%", plrName);
+        }
+        for (Map.Entry<UUID, Delayed> entry : delayed.entrySet()) {
+            Delayed d = entry.getValue();
+            if (!plrId.equals(d.target) || !delayed.remove(entry.getKey(), d)) continue;
+            if (d.task != null) d.task.cancel();
+            Player subject = Bukkit.getPlayer(entry.getKey());
+            TeleportJfrEvent.abort(plrU.getName(subject, 
+                langMan.getLocalizedString("player_noun", "Player")), "DISCONNECTED");
+            if (plrU.isValid(subject)) plrU.playPresetSound(subject, "denied");
+            msgU.userMessage(subject, "error_disconnect_self", "%OTHER%", plrName);
+        }
+
+        // Everything else which still refers to them
+        clearPreviousLocation(plrId);
+        teleQueue.remove(plrId);
+        msgU.playerLeft(plrId);
+        netMan.playerLeft(plrId, plrName);
     }
 
     /**
@@ -367,9 +611,10 @@ public class StateManager {
     * previous location (if it exists in memory)
     *
     * @param player The requesting player.
+    * @return TELEPORTING, or why the player can't be returned.
     */
-   public synchronized void back(Player player) {
-       if (!plrU.isValid(player)) return;
+   public Result back(Player player) {
+       if (!plrU.isValid(player)) return Result.NOT_ONLINE;
        
        // Check if the back command is enabled.
        if (!conU.getBoolean("back.enabled", true)) {
@@ -381,90 +626,85 @@ public class StateManager {
                 plrU.playPresetSound(player, "error");
                 msgU.userMessage(player, "cmd_disabled",
                                "%COMMAND%", "back");
-            return; }
+            return Result.DISABLED; }
        }
 
        // Check for a previous location
        UUID plrId = player.getUniqueId();
-       Location prevLoc = previousLocations.get(plrId);
-       if (prevLoc == null) {
+       if (refuseInCombat(player, plrId)) return Result.IN_COMBAT;
+       PreviousLocation previous = previousLocations.get(plrId);
+       if (previous == null) {
            Integer rememberFor = conU.getInt("back.available_for", 
                         rememberDef, rememberMin, rememberMax);
            msgU.userMessage(player, "no_previous_location", 
                        "%SECONDS%", rememberFor.toString());
-       return; }
+       return Result.NO_PREVIOUS_LOCATION; }
 
 
        // Get the appropriate values
-       boolean useTpaValues = conU.getBoolean("back.use_tpa_values", true);
+       String settings = conU.getBoolean("back.use_tpa_values", true) ? "tpa" : "back";
        boolean hungerPenalty = conU.getBoolean("hunger_penalty.applied_on_return", true);
-
-       int delaySeconds;
-       boolean shouldFreeze;
-       boolean mustStandStill;
-       double movementLeeway;  
-
-       if (useTpaValues) {
-           shouldFreeze = conU.getBoolean("tpa.freeze", true);
-           mustStandStill = conU.getBoolean("tpa.must_stand_still", true);
-           delaySeconds = conU.getInt("tpa.delay", delayDef, delayMin, delayMax);
-           movementLeeway = conU.getDouble("tpa.movement_leeway", leewayDef, leewayMin, leewayMax); 
-       } else {
-           shouldFreeze = conU.getBoolean("back.freeze", true);
-           mustStandStill = conU.getBoolean("back.must_stand_still", true);
-           delaySeconds = conU.getInt("back.delay", delayDef, delayMin, delayMax);
-           movementLeeway = conU.getDouble("back.movement_leeway", leewayDef, leewayMin, leewayMax);
-       }
-
-       // capture location at time of scheduling (if needed)
-       Location startLoc = player.getLocation().clone();
+       Location prevLoc = previous.location();
 
        msgU.userMessage(player, "back_to_previous_location");
        plrU.playPresetSound(player, "accepted");
 
-       // Add a temp freeze effect while teleporting (if configured to do so)
-       if (shouldFreeze && plrU.isValid(player)) {
-            player.addPotionEffect( new PotionEffect(
-                PotionEffectType.SLOWNESS,
-                delaySeconds * 20,
-                255, true, true, false
-            ));
-        
-            player.addPotionEffect( new PotionEffect(
-                PotionEffectType.MINING_FATIGUE,
-                delaySeconds * 20,
-                255, true, true, false
-            ));
-       }
-
-       Bukkit.getScheduler().runTaskLater(plugin, () -> {
-           // Player disconnected?
-           if (!plrU.isValid(player)) return;
+       // Clear the stored location right before the teleport to prevent re-use
+       delayedTeleport(player, prevLoc, TeleportReason.BACK, settings, hungerPenalty, false,
+               () -> forgetPreviousLocation(plrId, prevLoc));
 
-           if (mustStandStill) {
-               if (startLoc.distance(player.getLocation()) > movementLeeway) {
-                   plrU.playPresetSound(player, "denied");
-                   msgU.userMessage(player, "error_moved_self");
-                   return;
-               }
-           }
-
-           // Clear stored location before teleport to prevent re-use
-           clearPreviousLocation(plrId);
+       return Result.TELEPORTING;
+   }
 
-           // Teleport the player back to the stored previous location.
-           plrU.teleport(player, prevLoc, hungerPenalty);
+    /**
+     * Teleports the player to a fixed location once the delay from config.yml
+     * is over. The freeze, must_stand_still and hunger penalty settings of TPA
+     * requests apply the same way, and the starting point becomes the player's
+     * /back location. Used by warps and homes.
+     *
+     * @param player The player who will be teleported.
+     * @param destination Where they will be teleported to.
+     * @param reason What caused the teleport, recorded in the audit log.
+     * @return TELEPORTING, or NOT_ONLINE if the player is gone.
+     */
+    public Result teleportLater(Player player, Location destination, TeleportReason reason) {
+        if (!plrU.isValid(player)) return Result.NOT_ONLINE;
+        if (refuseInCombat(player, player.getUniqueId())) return Result.IN_COMBAT;
 
-       }, delaySeconds * 20L);
+        delayedTeleport(player, destination, reason, "tpa",
+                conU.getBoolean("hunger_penalty.enabled", true), true, () -> true);
+        return Result.TELEPORTING;
+    }
+    
+    /**
+     * Runs the given action, usually sending the player to another server of the
+     * network, once the TPA delay is over. The combat tag, freeze and
+     * must_stand_still settings apply just like they do to a local teleport.
+     *
+     * @param player The player who will leave.
+     * @param action What to do once the delay is over, on the player's thread.
+     * @return <b>True</b> if the delay started, false if the player is in combat or gone.
+     */
+    public boolean connectLater(Player player, Runnable action) {
+        if (!plrU.isValid(player) || refuseInCombat(player, player.getUniqueId())) return false;
+        warmUp(player, "tpa", action);
+        return true;
+    }
 
-       return;
-   }
+    /* -------------------- OVERRIDES --------------------- */
 
+    // Kicked players leave through here as well
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        leakDet.watch(player); // Before the cleanup, so it can see what belonged to them
+        playerLeft(player);
+    }
     
     /* --------------------- FUNCTIONS -------------------- */
     
-    private synchronized void teleportAcceptTask(
-        Player requester, Location startLoc,
+    private void teleportAcceptTask(
+        TeleportReason reason, Location startLoc, long acceptedAt,
         Player subject, String subName, 
         Player target,  String tarName
     ) { // -------------------------------------------------------
@@ -474,40 +714,138 @@ public class StateManager {
             boolean mustStandStill = conU.getBoolean("tpa.must_stand_still", true);
             double movementLeeway = conU.getDouble("tpa.movement_leeway", leewayDef, leewayMin, leewayMax);
             
+            // Fighting another player while waiting calls the teleport off
+            if (combatMan.foughtSince(subject.getUniqueId(), acceptedAt)) {
+                TeleportJfrEvent.abort(subName, "COMBAT");
+                playSoundToPlayers(subject, "denied", target, "denied");
+                msgU.userMessage(target, "error_combat", "%OTHER%", subName);
+                msgU.userMessage(subject, "error_combat_self");
+                return;
+            }
+            
             if (mustStandStill) {
-                if (startLoc != null && startLoc.distance(subject.getLocation()) <= movementLeeway) {
-                    rememberPreviousLocation(subject, startLoc);
-                    plrU.teleport(subject, target, penaltyEnabled);
-                } else {
+                if (startLoc == null || startLoc.distance(subject.getLocation()) > movementLeeway) {
+                    TeleportJfrEvent.abort(subName, "MOVED");
                     playSoundToPlayers(subject, "denied", target, "denied");
                     msgU.userMessage(target, "error_moved", "%OTHER%", subName);
                     msgU.userMessage(subject, "error_moved_self");
+                    return;
+                }
+            } // Otherwise we can move, just need an accepted request;
+            
+            // Teleport once it's the subject's turn, either could disconnect meanwhile
+            teleQueue.submit(subject, target, () -> {
+                if (!plrU.areValid(subject, target)) {
+                    abortDisconnected(subject, subName, target, tarName);
+                    return;
                 }
-            } else { // We can move, just need an accepted request;
                 rememberPreviousLocation(subject, startLoc);
-                plrU.teleport(subject, target, penaltyEnabled);
-            }
-        } else { // One of the players is invalid
-            playSoundToPlayers(subject, "denied", target, "denied");
-            msgU.userMessage(target, "error_disconnect", "%OTHER%", subName);
-            msgU.userMessage(subject, "error_disconnect_self", "%OTHER%", tarName);
-        }
+                plrU.teleport(subject, target, penaltyEnabled, reason);
+            });
+        } else abortDisconnected(subject, subName, target, tarName);
     }
     
-    private synchronized void expire(UUID receiverId) {
-        // Check if the reciever has an active request
-        if (!incoming.containsKey(receiverId)) return;
+    // Runs the teleport on the subject's thread after the delay, unless playerLeft() claims it first
+    private void delay(Player subject, UUID subjectId, UUID targetId, Runnable teleport, long delayTicks) {
+        Delayed entry = new Delayed(targetId);
+        Delayed previous = delayed.put(subjectId, entry);
+        if (previous != null && previous.task != null) previous.task.cancel();
+        effectMan.warmup(subject, delayTicks);
+
+        entry.task = schedU.runLater(subject, () -> {
+            if (delayed.remove(subjectId, entry)) teleport.run();
+        }, delayTicks);
+    }
+    
+    // Waits out the delay of the given config section and, unless the player moved
+    // or the claim fails, queues their teleport to the destination
+    private void delayedTeleport(Player player, Location destination, TeleportReason reason, String settings,
+            boolean penalty, boolean remember, BooleanSupplier claim) {
+        Location startLoc = player.getLocation();
+        warmUp(player, settings, () -> {
+            if (!claim.getAsBoolean()) return;
+
+            // Teleport the player once it's their turn
+            teleQueue.submit(player, destination, () -> {
+                if (!plrU.isValid(player)) return;
+                if (remember) rememberPreviousLocation(player, startLoc);
+                plrU.teleport(player, destination, penalty, reason);
+            });
+        });
+    }
+    
+    // Freezes the player, waits out the delay of the given config section and, unless
+    // they fought or moved meanwhile, runs the action on their thread
+    private void warmUp(Player player, String settings, Runnable action) {
+        int delaySeconds = conU.getInt(settings + ".delay", delayDef, delayMin, delayMax);
+        boolean mustStandStill = conU.getBoolean(settings + ".must_stand_still", true);
+        double movementLeeway = conU.getDouble(settings + ".movement_leeway", leewayDef, leewayMin, leewayMax);
         
-        // Remove the request between the reciever and requester
-        // Additionally, we will cancel the timeoutTask
-        UUID requesterId = incoming.remove(receiverId);
-        outgoing.remove(requesterId);
+        // capture location at time of scheduling (if needed)
+        Location startLoc = player.getLocation();
+        long startedAt = System.currentTimeMillis();
 
-        // Remove request type mapping
-        requestTypes.remove(receiverId);
+        // Add a temp freeze effect while teleporting (if configured to do so)
+        if (conU.getBoolean(settings + ".freeze", true)) applyFreeze(player, delaySeconds * 20);
 
-        BukkitTask timeoutTask = timeouts.remove(receiverId);
-        if (timeoutTask != null) timeoutTask.cancel();
+        delay(player, player.getUniqueId(), null, () -> {
+            // Player disconnected?
+            if (!plrU.isValid(player)) return;
+
+            if (combatMan.foughtSince(player.getUniqueId(), startedAt)) {
+                TeleportJfrEvent.abort(player.getName(), "COMBAT");
+                plrU.playPresetSound(player, "denied");
+                msgU.userMessage(player, "error_combat_self");
+                return;
+            }
+            if (mustStandStill && movedAway(startLoc, player.getLocation(), movementLeeway)) {
+                TeleportJfrEvent.abort(player.getName(), "MOVED");
+                plrU.playPresetSound(player, "denied");
+                msgU.userMessage(player, "error_moved_self");
+                return;
+            }
+            action.run();
+        }, delaySeconds * 20L);
+    }
+    
+    // Changing worlds counts as moving away
+    private static boolean movedAway(Location start, Location now, double leeway) {
+        return start.getWorld() != now.getWorld() || start.distance(now) > leeway;
+    }
+    
+    // Tells the player why they can't go ahead while they, or the one to be teleported, are in combat
+    boolean refuseInCombat(Player actor, UUID subjectId) {
+        if (actor == null) return false;
+        long remaining = combatMan.combatRemaining(actor.getUniqueId());
+        if (remaining > 0) {
+            plrU.playPresetSound(actor, "error");
+            msgU.userMessage(actor, "in_combat", "%SECONDS%", String.valueOf(remaining));
+            return true;
+        }
+        if (!subjectId.equals(actor.getUniqueId()) && combatMan.inCombat(subjectId)) {
+            plrU.playPresetSound(actor, "error");
+            msgU.userMessage(actor, "other_in_combat", "%OTHER%", plrU.getName(Bukkit.getPlayer(subjectId)));
+            return true;
+        }
+        return false;
+    }
+    
+    // One of the players is invalid
+    private void abortDisconnected(Player subject, String subName, Player target, String tarName) {
+        TeleportJfrEvent.abort(subName, "DISCONNECTED");
+        playSoundToPlayers(subject, "denied", target, "denied");
+        msgU.userMessage(target, "error_disconnect", "%OTHER%", subName);
+        msgU.userMessage(subject, "error_disconnect_self", "%OTHER%", tarName);
+    }
+    
+    private void expire(UUID receiverId, UUID requesterId) {
+        // Check if the reciever still has this request, and claim it
+        Request request = incoming.get(receiverId);
+        if (request == null || !request.requester().equals(requesterId)
+                || request.timeout() == null || !incoming.remove(receiverId, request)) return;
+        release(request);
+        RequestType type = request.type();
+        fireResolve(request, Resolution.EXPIRE);
 
         // Get the request's players' data
         Player requester = Bukkit.getPlayer(requesterId);
@@ -517,6 +855,7 @@ public class StateManager {
             langMan.getLocalizedString("player_noun", "Player"));
         String receiverName = plrU.getName(receiver, 
             langMan.getLocalizedString("player_noun", "Player"));
+        RequestJfrEvent.emit("EXPIRE", type, requesterName, receiverName);
         
         // Issue out messages and sound effects to the requester and reciever
         playSoundToPlayers(receiver, "timedout", requester, "timedout");
@@ -524,26 +863,130 @@ public class StateManager {
         msgU.userMessage(requester, "expired_self", "%OTHER%", receiverName); 
     }
      
-    private synchronized void setPreviousLocation(UUID playerId, Location loc) {
+    private void expireBulk(UUID requesterId) {
+        if (!bulkOutgoing.containsKey(requesterId)) return;
+        endBulk(requesterId, Resolution.EXPIRE, "expired", "bulk_expired_self", "timedout");
+    }
+    
+    // Ends every still pending request of a bulk request, messaging all receivers at once.
+    // A cancellation is asked about before each claim, and the requests it may not end stay pending.
+    private int endBulk(UUID requesterId, Resolution resolution, String recMsg, String reqMsg, String sound) {
+        Bulk bulk = bulkOutgoing.get(requesterId);
+        if (bulk == null) return 0;
+        boolean vetoable = resolution == Resolution.CANCEL;
+        if (!vetoable) {
+            if (!bulkOutgoing.remove(requesterId, bulk)) return 0;
+            bulk.timeout().cancel();
+        }
+
+        // Claim each request which wasn't answered yet
+        int ended = 0, kept = 0;
+        List<Player> receivers = new ArrayList<>(bulk.receivers().size());
+        for (UUID recUUID : bulk.receivers()) {
+            Request request = incoming.get(recUUID);
+            if (request == null || !request.requester().equals(requesterId)) continue;
+            if (vetoable && !fireResolve(request, resolution)) {
+                kept++;
+                continue;
+            }
+            if (!incoming.remove(recUUID, request)) continue;
+            if (vetoable) bulk.receivers().remove(recUUID);
+            else fireResolve(request, resolution);
+            ended++;
+            Player receiver = Bukkit.getPlayer(recUUID);
+            if (receiver != null) receivers.add(receiver);
+        }
+        if (vetoable && kept == 0 && bulkOutgoing.remove(requesterId, bulk)) bulk.timeout().cancel();
+        if (ended == 0) return 0;
+
+        Player requester = Bukkit.getPlayer(requesterId);
+        String requesterName = plrU.getName(requester, 
+            langMan.getLocalizedString("player_noun", "Player"));
+        RequestJfrEvent.emitBulk(resolution.name(), RequestType.TPAHERE, requesterName, ended);
+        
+        // Issue out messages and sound effects to the requester and reciever
+        for (Player receiver : receivers) if (plrU.isValid(receiver)) plrU.playPresetSound(receiver, sound);
+        if (plrU.isValid(requester)) plrU.playPresetSound(requester, sound);
+        msgU.groupUserMessage(receivers, recMsg, "%OTHER%", requesterName);
+        if (reqMsg != null) msgU.userMessage(requester, reqMsg, "%COUNT%", String.valueOf(ended));
+        return ended;
+    }
+    
+    // Tells listeners how a request ended, returns false if they want it kept
+    private boolean fireResolve(Request request, Resolution resolution) {
+        if (!TpaRequestResolveEvent.hasListeners()) return true;
+        return new TpaRequestResolveEvent(request.requester(), request.receiver(), request.type(), resolution).callEvent();
+    }
+    
+    // Cleans up after a claimed request: its timeout, outgoing entry or place in its bulk request
+    private UUID release(Request request) {
+        UUID requesterId = request.requester();
+        if (request.timeout() != null) {
+            request.timeout().cancel();
+            outgoing.remove(requesterId, request);
+        } else leaveBulk(requesterId, request.receiver());
+        return requesterId;
+    }
+    
+    // Takes an answered request out of its bulk request, ending the bulk request with the last one
+    private void leaveBulk(UUID requesterId, UUID receiverId) {
+        Bulk bulk = bulkOutgoing.get(requesterId);
+        if (bulk == null || !bulk.receivers().remove(receiverId) || !bulk.receivers().isEmpty()) return;
+
+        if (bulkOutgoing.remove(requesterId, bulk)) bulk.timeout().cancel();
+    }
+    
+    // Creates a single request, unless either player got one in the meantime
+    private CreateResult createRequest(Player requester, Player receiver, RequestType type) {
+        // Get the UUIDs of the two players
+        UUID reqUUID = requester.getUniqueId(), 
+              recUUID = receiver.getUniqueId();
+        if (TpaRequestCreateEvent.hasListeners()
+                && !new TpaRequestCreateEvent(reqUUID, recUUID, type).callEvent()) return CreateResult.CANCELLED;
+
+        // Store the timout task
+        int timeout = conU.getInt("tpa.timeout", timeDef, timeMin, timeMax);
+        long sentAt = System.currentTimeMillis();
+        Task timeoutTask = schedU.runLater(() -> expire(recUUID, reqUUID), timeout * 20L);
+        Request request = new Request(reqUUID, recUUID, type, timeoutTask, sentAt, sentAt + timeout * 1000L);
+
+        // Map the incoming and outgoing requests, backing out if either side is taken
+        if (bulkOutgoing.containsKey(reqUUID) || outgoing.putIfAbsent(reqUUID, request) != null) {
+            timeoutTask.cancel();
+            return CreateResult.BUSY;
+        }
+        if (incoming.putIfAbsent(recUUID, request) != null) {
+            outgoing.remove(reqUUID, request);
+            timeoutTask.cancel();
+            return CreateResult.BUSY;
+        }
+
+        // Store the cooldown.
+        startCooldown(reqUUID);
+        return CreateResult.CREATED;
+    }
+     
+    private void setPreviousLocation(UUID playerId, Location loc) {
         if (loc == null) return;
 
         int rememberFor = conU.getInt("back.available_for", rememberDef, rememberMin, rememberMax);
         if (rememberFor <= 0) return;
 
-        // Cancel existing forget task if present
-        BukkitTask existing = previousLocationTasks.remove(playerId);
-        if (existing != null) existing.cancel();
-
-        // Create and store the forget task
-        previousLocations.put(playerId, loc);
-        BukkitTask forgetTask = Bukkit.getScheduler().runTaskLater(
-            plugin, () -> clearPreviousLocation(playerId),
-            rememberFor * 20L
-        );
-        previousLocationTasks.put(playerId, forgetTask);
+        // Create and store the forget task, cancelling the existing one if present
+        Task forgetTask = schedU.runLater(() -> forgetPreviousLocation(playerId, loc), rememberFor * 20L);
+        PreviousLocation existing = previousLocations.put(playerId, new PreviousLocation(loc, forgetTask));
+        if (existing != null) existing.forget().cancel();
+    }
+    
+    // Forgets the given location only if it's still the one remembered
+    private boolean forgetPreviousLocation(UUID playerId, Location loc) {
+        PreviousLocation previous = previousLocations.get(playerId);
+        if (previous == null || previous.location() != loc || !previousLocations.remove(playerId, previous)) return false;
+        previous.forget().cancel();
+        return true;
     }
     
-    private synchronized void rememberPreviousLocation(Player subject, Location startLoc) {
+    private void rememberPreviousLocation(Player subject, Location startLoc) {
         if (!plrU.isValid(subject)) return;
         
         // Check whether the location can be remembered
@@ -557,10 +1000,23 @@ public class StateManager {
         }
     }
     
-    public synchronized void clearPreviousLocation(UUID playerId) {
-        previousLocations.remove(playerId);
-        BukkitTask t = previousLocationTasks.remove(playerId);
-        if (t != null) t.cancel();
+    public void clearPreviousLocation(UUID playerId) {
+        PreviousLocation previous = previousLocations.remove(playerId);
+        if (previous != null) previous.forget().cancel();
+    }
+    
+    private void applyFreeze(Player player, int ticks) {
+        // Potion effects are immutable, so reuse them while the delay stays the same
+        PotionEffect[] effects = freezeEffects;
+        if (effects == null || effects[0].getDuration() != ticks) {
+            freezeEffects = effects = new PotionEffect[] {
+                new PotionEffect(PotionEffectType.SLOWNESS, ticks, 255, true, true, false),
+                new PotionEffect(PotionEffectType.MINING_FATIGUE, ticks, 255, true, true, false)
+            };
+        }
+        
+        player.addPotionEffect(effects[0]);
+        player.addPotionEffect(effects[1]);
     }
     
     private void playSoundToPlayers(Player receiver, String recSound, Player requester, String reqSound) {
@@ -0,0 +1,224 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public class TeleportQueueManager {
+    // Modules
+    private final PluginMain plugin;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+
+    // Limits and defaults
+    private int perTickDef = 4, perTickMin = 1, perTickMax = 100;
+    private int perWorldDef = 3, perWorldMin = 1, perWorldMax = 100;
+    private int chunkLoadsDef = 50, chunkLoadsMin = 1, chunkLoadsMax = 1000;
+    private int radiusDef = 2, radiusMin = 0, radiusMax = 8;
+
+    // Constructor
+    public TeleportQueueManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+    }
+
+    // A teleport waiting for its turn; the destination's world and chunk loads are read when it is submitted
+    private record Job(Player subject, World world, int cost, Runnable teleport) {}
+
+    // Storage
+
+    // subject -> queued teleport (in arrival order)
+    private final LinkedHashMap<UUID, Job> queue = new LinkedHashMap<>();
+    // subject -> last position they were told about
+    private final Map<UUID, Integer> toldPositions = new HashMap<>();
+    // world -> teleports into it this tick
+    private final Map<World, Integer> worldUsage = new HashMap<>();
+    private int usedTeleports, usedChunkLoads, budgetTick = -1;
+    private Task processor;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Runs the given teleport right away if this tick's budget allows it, and
+     * queues it otherwise. Queued teleports run in arrival order on the next
+     * ticks with budget left. A player can only have one queued teleport;
+     * a new one replaces the old one and goes to the back of the queue.
+     *
+     * @param subject The player who will be teleported.
+     * @param target The player they will be teleported to, whose location is
+     *               used to estimate the chunk loads and check the world's cap.
+     * @param teleport Runs the teleport, including its last validity checks.
+     */
+    public void submit(Player subject, Player target, Runnable teleport) {
+        schedU.run(target, () -> enqueue(subject, target.getLocation(), teleport));
+    }
+
+    /**
+     * Same as {@link #submit(Player, Player, Runnable)}, for a teleport to a fixed location.
+     *
+     * @param subject The player who will be teleported.
+     * @param destination Where they will be teleported to.
+     * @param teleport Runs the teleport, including its last validity checks.
+     */
+    public void submit(Player subject, Location destination, Runnable teleport) {
+        schedU.run(destination, () -> enqueue(subject, destination, teleport));
+    }
+
+    /**
+     * Forgets the given player's queued teleport, if any.
+     * @param subjId The UUID of the player.
+     * @return <b>True</b> if a queued teleport was removed.
+     */
+    public synchronized boolean remove(UUID subjId) {
+        toldPositions.remove(subjId);
+        return queue.remove(subjId) != null;
+    }
+
+    /** @return The number of teleports waiting for their turn. */
+    public synchronized int size() { return queue.size(); }
+
+    /** Drops every queued teleport without running it. */
+    public synchronized void cancelAll() {
+        queue.clear();
+        toldPositions.clear();
+        if (processor != null) processor.cancel();
+        processor = null;
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    // Runs on the thread which owns the destination, so its chunks can be looked at
+    private void enqueue(Player subject, Location dest, Runnable teleport) {
+        Job job = new Job(subject, dest != null ? dest.getWorld() : null, estimateChunkLoads(dest), teleport);
+        if (offer(job)) schedU.run(subject, teleport);
+    }
+
+    // Takes the job's budget if nothing is waiting and it fits, queues it otherwise
+    private synchronized boolean offer(Job job) {
+        UUID subjId = job.subject().getUniqueId();
+
+        // Nothing is waiting, so there is no one to skip
+        resetBudgetIfNewTick();
+        if (queue.isEmpty() && claimBudget(job)) return true;
+
+        queue.remove(subjId);
+        queue.put(subjId, job);
+        toldPositions.remove(subjId);
+        notifyPositions();
+
+        if (processor == null) processor = schedU.runTimer(task -> process(), 1L, 1L);
+        return false;
+    }
+
+    // The teleports run on their subjects' threads, outside of the lock
+    private void process() {
+        for (Job job : takeDue()) schedU.run(job.subject(), job.teleport());
+    }
+
+    private synchronized List<Job> takeDue() {
+        resetBudgetIfNewTick();
+
+        // Walk the queue in order, skipping jobs whose world is full this tick
+        List<Job> due = new ArrayList<>();
+        Iterator<Job> it = queue.values().iterator();
+        while (it.hasNext() && usedTeleports < maxPerTick()) {
+            Job job = it.next();
+            if (claimBudget(job)) {
+                it.remove();
+                toldPositions.remove(job.subject().getUniqueId());
+                due.add(job);
+            }
+            else if (usedChunkLoads >= maxChunkLoads()) break;
+        }
+
+        if (queue.isEmpty()) {
+            if (processor != null) processor.cancel();
+            processor = null;
+        } else if (!due.isEmpty()) notifyPositions();
+        return due;
+    }
+
+    // Takes the job's share of this tick's budget, if what is left fits it
+    private boolean claimBudget(Job job) {
+        // Disconnected players cost nothing, the teleport itself reports it
+        if (!plrU.isValid(job.subject())) return true;
+
+        World world = job.world();
+        int worldCount = world != null ? worldUsage.getOrDefault(world, 0) : 0;
+
+        if (usedTeleports >= maxPerTick()) return false;
+        if (world != null && worldCount >= conU.getInt("teleport_queue.max_per_world_per_tick",
+                perWorldDef, perWorldMin, perWorldMax)) return false;
+
+        // The first teleport of a tick always runs, so expensive ones can't starve
+        if (usedTeleports > 0 && usedChunkLoads + job.cost() > maxChunkLoads()) return false;
+
+        usedTeleports++;
+        usedChunkLoads += job.cost();
+        if (world != null) worldUsage.put(world, worldCount + 1);
+        return true;
+    }
+
+    // Every chunk around the destination which isn't loaded yet
+    private int estimateChunkLoads(Location dest) {
+        if (dest == null || dest.getWorld() == null) return 0;
+
+        World world = dest.getWorld();
+        int radius = conU.getInt("teleport_queue.chunk_radius", radiusDef, radiusMin, radiusMax);
+        int cx = dest.getBlockX() >> 4, cz = dest.getBlockZ() >> 4, cost = 0;
+        for (int x = cx - radius; x <= cx + radius; x++)
+            for (int z = cz - radius; z <= cz + radius; z++)
+                if (!world.isChunkLoaded(x, z)) cost++;
+        return cost;
+    }
+
+    private void resetBudgetIfNewTick() {
+        int tick = schedU.currentTick();
+        if (tick == budgetTick) return;
+
+        budgetTick = tick;
+        usedTeleports = 0;
+        usedChunkLoads = 0;
+        worldUsage.clear();
+    }
+
+    private void notifyPositions() {
+        if (!conU.getBoolean("teleport_queue.notify_position", true)) return;
+
+        int position = 0;
+        for (Job job : queue.values()) {
+            position++;
+            UUID subjId = job.subject().getUniqueId();
+            Integer told = toldPositions.put(subjId, position);
+            if (told != null && told == position) continue;
+
+            msgU.userMessage(job.subject(), "teleport_queued", "%POSITION%", String.valueOf(position));
+        }
+    }
+
+    private int maxPerTick() {
+        return conU.getInt("teleport_queue.max_per_tick", perTickDef, perTickMin, perTickMax);
+    }
+
+    private int maxChunkLoads() {
+        return conU.getInt("teleport_queue.max_chunk_loads_per_tick", chunkLoadsDef, chunkLoadsMin, chunkLoadsMax);
+    }
+}
@@ -0,0 +1,272 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.diagnostics.CommandTrace;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.io.IOException;
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+public class TraceManager {
+    // Modules
+    private final ConfigUtils conU;
+    private final OutputUtils output;
+
+    // Limits and defaults
+    private static final int MAX_CACHED_HASHES = 4096;
+    // Arguments which are the plugin's own keywords, and never anyone's name
+    private static final Set<String> KEYWORDS = Set.of("gui");
+
+    // Formatting
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+    // Variables
+    private final File folder;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(16384);
+    private volatile boolean enabled = false;
+    private volatile Thread writerThread; // null while stopped
+    private Thread retired; // A writer told to stop by a reload, which its successor waits for
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Writer state (only touched by the writer thread)
+    private CommandTrace.Writer trace;
+    private final Map<UUID, Long> hashes = new HashMap<>();
+    private final Map<String, Long> nameHashes = new HashMap<>();
+    private MessageDigest digest;
+    private byte[] salt;
+    private long maxFileSize;
+
+    // Constructor
+    public TraceManager(PluginMain plugin) {
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.folder = new File(plugin.getDataFolder(), "traces");
+    }
+
+    // A single command, copied out on the main thread and encoded by the writer
+    private record Entry(long time, UUID sender, String command, String[] args, UUID[] argPlayers) {}
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Starts recording commands, if the trace is enabled in config.yml. */
+    public synchronized void start() {
+        enabled = conU.getBoolean("debug.trace.enabled", false);
+        long maxSize = conU.getInt("debug.trace.max_size_kb", 16384, 64, 1048576) * 1024L;
+        if (!enabled || writerThread != null) return;
+
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            output.error("Command tracing needs SHA-256, which this JVM does not provide.");
+            enabled = false;
+            return;
+        }
+
+        Thread previous = retired;
+        retired = null;
+        Thread thread = new Thread(() -> drain(previous, sha, maxSize), "TPAsk-Trace");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+        output.print("Recording commands to", folder.getPath());
+    }
+
+    /** Writes out the queued commands and stops recording. */
+    public synchronized void shutdown() {
+        Thread thread = stopWriter();
+        if (thread == null) thread = retired;
+        if (thread == null) return;
+        try { thread.join(5000L); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Applies changes to the trace entries of config.yml. The old writer is
+     * only told to stop; the new one waits for it, not the calling thread.
+     */
+    public synchronized void reload() {
+        Thread stopped = stopWriter();
+        if (stopped != null) retired = stopped;
+        start();
+    }
+
+    /** @return <b>True</b> if commands are currently being recorded. */
+    public boolean isRecording() { return enabled; }
+
+    /**
+     * Records a command invocation. Arguments naming an online player are
+     * stored as references to that player, so replays can map them back.
+     * Every other argument which isn't a number or one of the plugin's
+     * keywords (offline names, typos, warp and home names) is stored as a
+     * salted hash as well, so nothing typed by players ends up in the file.
+     *
+     * @param sender The player who ran the command.
+     * @param cmd The invoked command's name.
+     * @param args The command's arguments.
+     */
+    public void record(Player sender, String cmd, String[] args) {
+        if (!enabled) return;
+
+        UUID[] argPlayers = new UUID[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Player named = Bukkit.getPlayerExact(args[i]);
+            if (named != null) argPlayers[i] = named.getUniqueId();
+        }
+
+        Entry entry = new Entry(System.currentTimeMillis(), sender.getUniqueId(), cmd, args.clone(), argPlayers);
+        if (!queue.offer(entry)) dropped.incrementAndGet();
+    }
+
+    /* ------------------- WRITER THREAD ------------------ */
+
+    // Tells the writer to write out what is queued and stop, without waiting for it
+    private Thread stopWriter() {
+        enabled = false;
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) thread.interrupt();
+        return thread;
+    }
+
+    private void drain(Thread previous, MessageDigest sha, long maxSize) {
+        // The writer state belongs to the previous writer until it closed its trace
+        while (previous != null && previous.isAlive()) {
+            try { previous.join(); } catch (InterruptedException e) { /* Told to stop as well, finish up below */ }
+        }
+
+        // A new salt per recording, so hashes can't be matched across traces
+        digest = sha;
+        maxFileSize = maxSize;
+        salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        hashes.clear();
+        nameHashes.clear();
+
+        Thread self = Thread.currentThread();
+        while (writerThread == self || (writerThread == null && !queue.isEmpty())) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry == null) continue;
+
+                write(entry);
+                // Flush once the burst has been written out
+                if (queue.isEmpty()) {
+                    reportDropped();
+                    trace.flush();
+                }
+            } catch (InterruptedException e) {
+                Entry entry;
+                while ((entry = queue.poll()) != null) writeQuietly(entry);
+                break;
+            } catch (IOException e) {
+                output.error("Could not write to the command trace:", e.getMessage());
+            }
+        }
+        closeTrace();
+    }
+
+    private void writeQuietly(Entry entry) {
+        try { write(entry); } catch (IOException e) {
+            output.error("Could not write to the command trace:", e.getMessage());
+        }
+    }
+
+    private void write(Entry e) throws IOException {
+        if (trace == null || trace.size() >= maxFileSize) rotate(e.time());
+
+        long[] argPlayers = new long[e.args().length], argHashed = new long[e.args().length];
+        for (int i = 0; i < argPlayers.length; i++) {
+            if (e.argPlayers()[i] != null) argPlayers[i] = hash(e.argPlayers()[i]);
+            else if (!isPlain(e.args()[i])) argHashed[i] = hash(e.args()[i]);
+        }
+
+        trace.write(e.time(), hash(e.sender()), e.command(), e.args(), argPlayers, argHashed);
+    }
+
+    private void rotate(long time) throws IOException {
+        closeTrace();
+        if (!folder.exists() && !folder.mkdirs())
+            throw new IOException("Could not create the trace folder: " + folder);
+
+        String name = "trace-" + FILE_TIME.format(Instant.ofEpochMilli(time));
+        File file = new File(folder, name + CommandTrace.FILE_SUFFIX);
+        for (int i = 1; file.exists(); i++) file = new File(folder, name + "." + i + CommandTrace.FILE_SUFFIX);
+
+        trace = new CommandTrace.Writer(file, time);
+        // The salt stays the same, so the hashes only need to be worked out again
+        hashes.clear();
+        nameHashes.clear();
+    }
+
+    private void closeTrace() {
+        if (trace == null) return;
+        try { trace.close(); } catch (IOException e) {
+            output.error("Could not close the command trace:", e.getMessage());
+        }
+        trace = null;
+    }
+
+    // Numbers and the plugin's keywords are kept as they are
+    private static boolean isPlain(String arg) {
+        return arg.matches("-?\\d+(\\.\\d+)?") || KEYWORDS.contains(arg.toLowerCase(Locale.ROOT));
+    }
+
+    // Salted SHA-256 of the UUID, truncated to a (never zero) long
+    private long hash(UUID uuid) {
+        Long known = hashes.get(uuid);
+        if (known != null) return known;
+
+        long hash = digest(ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits()).array());
+        if (hashes.size() >= MAX_CACHED_HASHES) hashes.clear();
+        hashes.put(uuid, hash);
+        return hash;
+    }
+
+    // Salted SHA-256 of any other argument, case-insensitive like player names
+    private long hash(String arg) {
+        String key = arg.toLowerCase(Locale.ROOT);
+        Long known = nameHashes.get(key);
+        if (known != null) return known;
+
+        long hash = digest(key.getBytes(StandardCharsets.UTF_8));
+        if (nameHashes.size() >= MAX_CACHED_HASHES) nameHashes.clear();
+        nameHashes.put(key, hash);
+        return hash;
+    }
+
+    private long digest(byte[] value) {
+        digest.update(salt);
+        digest.update(value);
+        long hash = ByteBuffer.wrap(digest.digest()).getLong();
+        return hash != 0 ? hash : 1;
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) output.warn(count + " commands were left out of the trace because the queue was full.");
+    }
+}
@@ -0,0 +1,358 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.nio.file.StandardCopyOption;
+import java.nio.file.Files;
+import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.File;
+import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.List;
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Server warps: /warp, /setwarp and /delwarp. Warping goes through the same
+ * delay, freeze, must_stand_still and hunger penalty handling as an accepted
+ * TPA request.
+ * <br><br>
+ * Warps are kept in plugins/TPAsk/warps.dat, a small binary file which is read
+ * on a background thread at startup. In memory they form a sorted index of
+ * lower-cased names, so a lookup is a binary search and tab completion is one
+ * range of that index. The index is replaced as a whole on every change, and
+ * the file is rewritten in the background.
+ */
+public class WarpManager {
+    // Modules
+    private final PluginMain plugin;
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+    private final PlayerUtils plrU;
+    private final MessageUtils msgU;
+    private final SchedulerUtils schedU;
+    private final StateManager statMan;
+
+    // Format
+    private static final int MAGIC = 0x54505750; // "TPWP"
+    private static final int VERSION = 1;
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    // Constructor
+    public WarpManager(PluginMain plugin) {
+        this.plugin = plugin;
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        this.plrU = plugin.getPlayerUtils();
+        this.msgU = plugin.getMessageUtils();
+        this.schedU = plugin.getSchedulerUtils();
+        this.statMan = plugin.getStateManager();
+    }
+
+    // A warp; the world is kept by UUID so warps in worlds which load later still work
+    private record Warp(String name, UUID world, double x, double y, double z, float yaw, float pitch) {
+        Location toLocation() {
+            World w = Bukkit.getWorld(world);
+            return w != null ? new Location(w, x, y, z, yaw, pitch) : null;
+        }
+    }
+
+    // Warps sorted by their lower-cased names, which are kept alongside
+    private record Index(String[] keys, Warp[] warps) {
+        static final Index EMPTY = new Index(new String[0], new Warp[0]);
+    }
+
+    // Storage
+    private volatile Index index = Index.EMPTY;
+    private volatile boolean loaded, failed;
+    // Edits of the index take indexLock, which is never held during I/O; writers take fileLock
+    // and only read the index, so the main thread never waits on the disk
+    private final Object indexLock = new Object();
+    private final Object fileLock = new Object();
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Reads the warps file in the background. Warps can't be used until it is read.
+     * An unreadable file is moved aside before anything can overwrite it; if even
+     * that fails, warps stay unavailable so the file is left alone.
+     */
+    public void start() {
+        schedU.runAsync(() -> {
+            long started = System.nanoTime();
+            List<Warp> warps;
+            try {
+                warps = read(file());
+            } catch (IOException e) {
+                output.error("Could not read the warps file:", e.getMessage());
+                if (!moveAside(file())) {
+                    failed = true;
+                    return;
+                }
+                warps = List.of();
+            }
+
+            Index built = build(warps);
+            synchronized (indexLock) {
+                index = built;
+                loaded = true;
+            }
+            long ms = (System.nanoTime() - started) / 1_000_000L;
+            output.print(() -> "Loaded " + built.keys().length + " warps in " + ms + " ms.");
+        });
+    }
+
+    /** Writes the warps one last time, as background saves may not get to run while disabling. */
+    public void shutdown() {
+        synchronized (fileLock) {
+            if (!loaded) return;
+            try {
+                write(file(), index);
+            } catch (IOException e) {
+                output.error("Could not save the warps file:", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles /warp: teleports the player to the named warp, or lists the warps.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Nothing, or the warp's name.
+     */
+    public void warp(Player plr, String cmd, String[] args) {
+        if (!isUsable(plr, cmd)) return;
+        if (args.length == 0) {
+            Index idx = index;
+            if (idx.warps().length == 0) {
+                msgU.userMessage(plr, "warp_none");
+                return;
+            }
+            List<String> names = new ArrayList<>(idx.warps().length);
+            for (Warp w : idx.warps()) names.add(w.name());
+            msgU.chatMessage(plr, "warp_list", "%LIST%", String.join(", ", names));
+            return;
+        }
+        if (args.length != 1) {
+            msgU.userMessage(plr, "usage_help_warp", "%COMMAND%", cmd);
+            return;
+        }
+
+        Warp warp = find(args[0]);
+        if (warp == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "warp_unknown", "%WARP%", args[0]);
+            return;
+        }
+        Location dest = warp.toLocation();
+        if (dest == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "warp_world_missing", "%WARP%", warp.name());
+            return;
+        }
+
+        msgU.userMessage(plr, "warp_teleporting", "%WARP%", warp.name());
+        plrU.playPresetSound(plr, "accepted");
+        statMan.teleportLater(plr, dest, TeleportReason.WARP);
+    }
+
+    /**
+     * Handles /setwarp: creates the named warp at the player's location,
+     * or moves it there if it exists.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Should be exactly the warp's name.
+     */
+    public void setWarp(Player plr, String cmd, String[] args) {
+        if (!isUsable(plr, cmd)) return;
+        if (args.length != 1 || !VALID_NAME.matcher(args[0]).matches()) {
+            msgU.userMessage(plr, "usage_help_setwarp", "%COMMAND%", cmd);
+            return;
+        }
+
+        Location loc = plr.getLocation();
+        Warp warp = new Warp(args[0], loc.getWorld().getUID(), loc.getX(), loc.getY(), loc.getZ(),
+                loc.getYaw(), loc.getPitch());
+        boolean existed;
+        synchronized (indexLock) {
+            existed = find(args[0]) != null;
+            List<Warp> warps = new ArrayList<>(Arrays.asList(index.warps()));
+            warps.removeIf(w -> w.name().equalsIgnoreCase(warp.name()));
+            warps.add(warp);
+            index = build(warps);
+        }
+        saveLater();
+
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, existed ? "warp_moved" : "warp_set", "%WARP%", warp.name());
+    }
+
+    /**
+     * Handles /delwarp: deletes the named warp.
+     *
+     * @param plr The player who ran the command.
+     * @param cmd The string containing the invoked command's name
+     * @param args Should be exactly the warp's name.
+     */
+    public void deleteWarp(Player plr, String cmd, String[] args) {
+        if (!isUsable(plr, cmd)) return;
+        if (args.length != 1) {
+            msgU.userMessage(plr, "usage_help_warp", "%COMMAND%", cmd);
+            return;
+        }
+
+        Warp removed;
+        synchronized (indexLock) {
+            removed = find(args[0]);
+            if (removed != null) {
+                List<Warp> warps = new ArrayList<>(Arrays.asList(index.warps()));
+                warps.remove(removed);
+                index = build(warps);
+            }
+        }
+        if (removed == null) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "warp_unknown", "%WARP%", args[0]);
+            return;
+        }
+        saveLater();
+
+        plrU.playPresetSound(plr, "accepted");
+        msgU.userMessage(plr, "warp_deleted", "%WARP%", removed.name());
+    }
+
+    /**
+     * Returns the names of the warps starting with the given prefix, for tab completion.
+     * @param prefix What has been typed so far (case-insensitive).
+     * @return The matching names, in alphabetical order.
+     */
+    public List<String> complete(String prefix) {
+        Index idx = index;
+        String key = prefix.toLowerCase(Locale.ROOT);
+
+        // Everything starting with the prefix sits in one run, right from its insertion point
+        int from = Arrays.binarySearch(idx.keys(), key);
+        if (from < 0) from = -from - 1;
+
+        List<String> names = new ArrayList<>();
+        for (int i = from; i < idx.keys().length && idx.keys()[i].startsWith(key); i++)
+            names.add(idx.warps()[i].name());
+        return names;
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private boolean isUsable(Player plr, String cmd) {
+        if (!conU.getBoolean("warps.enabled", true)) {
+            plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, "cmd_disabled", "%COMMAND%", cmd);
+            return false;
+        }
+        if (!loaded) {
+            if (failed) plrU.playPresetSound(plr, "error");
+            msgU.userMessage(plr, failed ? "warp_unavailable" : "warp_loading");
+            return false;
+        }
+        return true;
+    }
+
+    private Warp find(String name) {
+        Index idx = index;
+        int i = Arrays.binarySearch(idx.keys(), name.toLowerCase(Locale.ROOT));
+        return i >= 0 ? idx.warps()[i] : null;
+    }
+
+    private static Index build(List<Warp> warps) {
+        List<Warp> sorted = new ArrayList<>(warps);
+        sorted.sort((a, b) -> a.name().toLowerCase(Locale.ROOT).compareTo(b.name().toLowerCase(Locale.ROOT)));
+
+        String[] keys = new String[sorted.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = sorted.get(i).name().toLowerCase(Locale.ROOT);
+        return new Index(keys, sorted.toArray(new Warp[0]));
+    }
+
+    private File file() {
+        return new File(plugin.getDataFolder(), "warps.dat");
+    }
+
+    // Rewrites the file off the server's threads; overlapping saves each write the latest index
+    private void saveLater() {
+        schedU.runAsync(() -> {
+            synchronized (fileLock) {
+                try {
+                    write(file(), index);
+                } catch (IOException e) {
+                    output.error("Could not save the warps file:", e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Keeps an unreadable file for the admin to look at, under a name nothing writes to
+    private boolean moveAside(File file) {
+        File aside = new File(file.getParentFile(), file.getName() + ".unreadable-" + System.currentTimeMillis());
+        try {
+            Files.move(file.toPath(), aside.toPath());
+            output.warn("The unreadable warps file was moved to", aside.getName() + ", starting without warps.");
+            return true;
+        } catch (IOException e) {
+            output.error("Could not move the unreadable warps file aside, warps are disabled:", e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<Warp> read(File file) throws IOException {
+        if (!file.exists()) return List.of();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a warps file");
+            if (in.readInt() != VERSION) throw new IOException("unsupported version");
+
+            int count = in.readInt();
+            List<Warp> warps = new ArrayList<>(Math.max(0, count));
+            for (int i = 0; i < count; i++) {
+                warps.add(new Warp(in.readUTF(), new UUID(in.readLong(), in.readLong()),
+                        in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()));
+            }
+            return Collections.unmodifiableList(warps);
+        }
+    }
+
+    // Writes a temporary file first, so a crash never leaves half a warps file behind
+    private static void write(File file, Index idx) throws IOException {
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(idx.warps().length);
+            for (Warp w : idx.warps()) {
+                out.writeUTF(w.name());
+                out.writeLong(w.world().getMostSignificantBits());
+                out.writeLong(w.world().getLeastSignificantBits());
+                out.writeDouble(w.x()); out.writeDouble(w.y()); out.writeDouble(w.z());
+                out.writeFloat(w.yaw()); out.writeFloat(w.pitch());
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,141 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.World;
+
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.LinkedHashSet;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * The teleport rules between worlds (world section of config.yml): whether a
+ * teleport from one world to another is allowed, how its hunger penalty is
+ * scaled, and how far players may teleport within a world.
+ * <br><br>
+ * The rules are compiled on load into a matrix with a row and a column for
+ * every world config.yml names, plus one shared by all other worlds, so the
+ * rule of any teleport is a single array lookup.
+ */
+public class WorldRuleManager {
+    // Modules
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+
+    // Limits and defaults
+    private double multDef = 1.0, multMin = 0.0, multMax = 10.0;
+    private static final String ANY = "*";
+    private static final String SEPARATOR = " to ";
+
+    // Constructor
+    public WorldRuleManager(PluginMain plugin) {
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        reload();
+    }
+
+    /**
+     * The rule of teleports from one world to another.
+     *
+     * @param allowed Whether the teleport may happen, if it is between two worlds.
+     * @param penaltyMultiplier What the food lost to the hunger penalty is multiplied by.
+     * @param maxDistance The furthest teleport within the world in blocks, 0 for no limit.
+     */
+    public record Rule(boolean allowed, double penaltyMultiplier, double maxDistance) {}
+
+    // The compiled rules; the last row and column are shared by every world config.yml doesn't name
+    private record Matrix(Map<String, Integer> indices, Rule[][] rules) {}
+
+    // Storage
+    private volatile Matrix matrix;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Compiles the rules from config.yml again. */
+    public void reload() {
+        boolean crossDefault = conU.getBoolean("world.cross_teleportation", true);
+
+        // Every "<from> to <to>" rule, and every world named anywhere
+        Map<String, String[]> pairs = new HashMap<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (String key : conU.getKeys("world.rules")) {
+            String[] pair = key.split(SEPARATOR, 2);
+            if (pair.length != 2 || pair[0].isBlank() || pair[1].isBlank()) {
+                output.warn("Skipping the world rule '" + key + "', it should look like \"<from> to <to>\".");
+                continue;
+            }
+            pair[0] = pair[0].trim().toLowerCase(Locale.ROOT);
+            pair[1] = pair[1].trim().toLowerCase(Locale.ROOT);
+            pairs.put(key, pair);
+            if (!pair[0].equals(ANY)) names.add(pair[0]);
+            if (!pair[1].equals(ANY)) names.add(pair[1]);
+        }
+        Map<String, String> distanceKeys = new HashMap<>();
+        for (String world : conU.getKeys("world.max_distance")) {
+            names.add(world.toLowerCase(Locale.ROOT));
+            distanceKeys.put(world.toLowerCase(Locale.ROOT), world);
+        }
+
+        Map<String, Integer> indices = new HashMap<>();
+        String[] byIndex = names.toArray(new String[0]);
+        for (int i = 0; i < byIndex.length; i++) indices.put(byIndex[i], i);
+        int size = byIndex.length + 1;
+
+        Rule[][] rules = new Rule[size][size];
+        for (int from = 0; from < size; from++) {
+            String fromName = from < byIndex.length ? byIndex[from] : null;
+            for (int to = 0; to < size; to++) {
+                String toName = to < byIndex.length ? byIndex[to] : null;
+                String distanceKey = from == to && fromName != null ? distanceKeys.get(fromName) : null;
+                rules[from][to] = compile(fromName, toName, distanceKey, crossDefault, pairs);
+            }
+        }
+        matrix = new Matrix(indices, rules);
+    }
+
+    /**
+     * Returns the rule of a teleport from one world to another.
+     *
+     * @param from The world the player is in.
+     * @param to The world they would be teleported to.
+     * @return The rule, never null.
+     */
+    public Rule rule(World from, World to) {
+        Matrix m = matrix;
+        return m.rules()[indexOf(m, from)][indexOf(m, to)];
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private static int indexOf(Matrix m, World world) {
+        Integer index = m.indices().get(world.getName().toLowerCase(Locale.ROOT));
+        return index != null ? index : m.rules().length - 1;
+    }
+
+    // The most specific rule wins: both worlds named, then the origin, then the destination, then "* to *"
+    private Rule compile(String from, String to, String distanceKey, boolean crossDefault, Map<String, String[]> pairs) {
+        String best = null;
+        int bestScore = -1;
+        for (Map.Entry<String, String[]> entry : pairs.entrySet()) {
+            String[] pair = entry.getValue();
+            boolean fromMatches = pair[0].equals(ANY) || pair[0].equals(from);
+            boolean toMatches = pair[1].equals(ANY) || pair[1].equals(to);
+            if (!fromMatches || !toMatches) continue;
+
+            int score = (pair[0].equals(ANY) ? 0 : 2) + (pair[1].equals(ANY) ? 0 : 1);
+            if (score > bestScore) { best = entry.getKey(); bestScore = score; }
+        }
+
+        String path = best != null ? "world.rules." + best : null;
+        boolean allowed = path != null ? conU.getBoolean(path + ".allowed", crossDefault) : crossDefault;
+        double multiplier = path != null ? conU.getDouble(path + ".penalty_multiplier", multDef, multMin, multMax) : multDef;
+
+        // Only teleports within a named world have a distance limit
+        double maxDistance = distanceKey != null ? conU.getDouble("world.max_distance." + distanceKey, 0.0, 0.0) : 0;
+        return new Rule(allowed, multiplier, maxDistance);
+    }
+}
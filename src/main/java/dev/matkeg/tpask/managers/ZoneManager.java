@@ -0,0 +1,193 @@
+package dev.matkeg.tpask.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.Location;
+
+import dev.matkeg.tpask.utilities.PlayerUtils.TeleportReason;
+import dev.matkeg.tpask.utilities.*;
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * No-teleport zones: cuboids and cylinders from config.yml which players may
+ * not be teleported out of, into, or both.
+ * <br><br>
+ * The zones are compiled on load into a hash of chunk positions per world,
+ * each holding the few zones overlapping that chunk, so a check is one map
+ * lookup and a couple of bounds tests however many zones there are. Zones
+ * covering a huge number of chunks are kept in a short list of their own
+ * instead.
+ */
+public class ZoneManager {
+    // Modules
+    private final OutputUtils output;
+    private final ConfigUtils conU;
+
+    // Limits and defaults
+    private static final int MAX_INDEXED_CHUNKS = 16_384;
+    private static final String BYPASS_PERMISSION = "tpask.zones.bypass";
+
+    // Constructor
+    public ZoneManager(PluginMain plugin) {
+        this.output = plugin.getOutput();
+        this.conU = plugin.getConfigUtils();
+        reload();
+    }
+
+    // The shape of a zone
+    private enum Shape { CUBOID, CYLINDER }
+
+    // A zone's bounds; cylinders use the box around them plus their center and radius
+    private record Zone(String name, Shape shape, boolean blocksOrigin, boolean blocksDestination,
+                        double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                        double centerX, double centerZ, double radiusSq) {
+        boolean contains(double x, double y, double z) {
+            if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) return false;
+            if (shape == Shape.CUBOID) return true;
+            double dx = x - centerX, dz = z - centerZ;
+            return dx * dx + dz * dz <= radiusSq;
+        }
+    }
+
+    // One world's zones: by chunk key, and the few which are too large to index
+    private record WorldZones(Map<Long, Zone[]> byChunk, Zone[] large) {}
+
+    // Everything needed for a check; replaced as a whole on reload
+    private record Index(boolean enabled, Set<TeleportReason> reasons, Map<String, WorldZones> worlds) {}
+
+    // Storage
+    private volatile Index index;
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** Compiles the zones from config.yml again. */
+    public void reload() {
+        boolean enabled = conU.getBoolean("no_teleport_zones.enabled", false);
+        Set<TeleportReason> reasons = EnumSet.noneOf(TeleportReason.class);
+        for (String name : conU.getStringList("no_teleport_zones.reasons")) {
+            try {
+                reasons.add(TeleportReason.valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                output.warn("Unknown teleport reason in no_teleport_zones.reasons:", name);
+            }
+        }
+        if (reasons.isEmpty()) reasons = EnumSet.of(TeleportReason.TPA, TeleportReason.TPAHERE);
+
+        Map<String, Map<Long, List<Zone>>> byChunk = new HashMap<>();
+        Map<String, List<Zone>> large = new HashMap<>();
+        int count = 0;
+        for (String name : conU.getKeys("no_teleport_zones.zones")) {
+            String path = "no_teleport_zones.zones." + name;
+            String world = conU.getString(path + ".world", null);
+            Zone zone = parse(name, path);
+            if (world == null || zone == null) {
+                output.warn("Skipping the no-teleport zone '" + name + "', it is missing its world or bounds.");
+                continue;
+            }
+            index(zone, byChunk.computeIfAbsent(world, w -> new HashMap<>()),
+                    large.computeIfAbsent(world, w -> new ArrayList<>()));
+            count++;
+        }
+
+        Map<String, WorldZones> worlds = new HashMap<>();
+        for (String world : byChunk.keySet()) {
+            Map<Long, Zone[]> chunks = new HashMap<>();
+            byChunk.get(world).forEach((key, zones) -> chunks.put(key, zones.toArray(new Zone[0])));
+            worlds.put(world, new WorldZones(chunks, large.get(world).toArray(new Zone[0])));
+        }
+        index = new Index(enabled, reasons, worlds);
+
+        int total = count;
+        if (enabled) output.print(() -> "Loaded " + total + " no-teleport zones.");
+    }
+
+    /**
+     * Finds the zone which forbids the given teleport, if any.
+     *
+     * @param subject The player who would be teleported.
+     * @param from Where they would be teleported from.
+     * @param to Where they would be teleported to.
+     * @param reason What would cause the teleport.
+     * @return The forbidding zone's name, or null if the teleport is allowed.
+     */
+    public String blockingZone(Player subject, Location from, Location to, TeleportReason reason) {
+        Index idx = index;
+        if (!idx.enabled() || !idx.reasons().contains(reason) || idx.worlds().isEmpty()) return null;
+
+        Zone zone = find(idx, from, true);
+        if (zone == null) zone = find(idx, to, false);
+        if (zone == null || subject.hasPermission(BYPASS_PERMISSION)) return null;
+        return zone.name();
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // The first zone containing the location which blocks teleports out of it (or into it)
+    private static Zone find(Index idx, Location loc, boolean asOrigin) {
+        if (loc == null || loc.getWorld() == null) return null;
+        WorldZones zones = idx.worlds().get(loc.getWorld().getName());
+        if (zones == null) return null;
+
+        double x = loc.getX(), y = loc.getY(), z = loc.getZ();
+        Zone[] inChunk = zones.byChunk().get(chunkKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4));
+        if (inChunk != null) {
+            for (Zone zone : inChunk)
+                if ((asOrigin ? zone.blocksOrigin() : zone.blocksDestination()) && zone.contains(x, y, z)) return zone;
+        }
+        for (Zone zone : zones.large())
+            if ((asOrigin ? zone.blocksOrigin() : zone.blocksDestination()) && zone.contains(x, y, z)) return zone;
+        return null;
+    }
+
+    // Adds the zone to every chunk it overlaps, or to the large ones
+    private static void index(Zone zone, Map<Long, List<Zone>> byChunk, List<Zone> large) {
+        int minCX = (int) Math.floor(zone.minX()) >> 4, maxCX = (int) Math.floor(zone.maxX()) >> 4;
+        int minCZ = (int) Math.floor(zone.minZ()) >> 4, maxCZ = (int) Math.floor(zone.maxZ()) >> 4;
+        if ((long) (maxCX - minCX + 1) * (maxCZ - minCZ + 1) > MAX_INDEXED_CHUNKS) {
+            large.add(zone);
+            return;
+        }
+
+        for (int cx = minCX; cx <= maxCX; cx++)
+            for (int cz = minCZ; cz <= maxCZ; cz++)
+                byChunk.computeIfAbsent(chunkKey(cx, cz), k -> new ArrayList<>(1)).add(zone);
+    }
+
+    private Zone parse(String name, String path) {
+        String blocks = conU.getString(path + ".blocks", "BOTH").toUpperCase(Locale.ROOT);
+        boolean origin = !blocks.equals("DESTINATION"), destination = !blocks.equals("ORIGIN");
+
+        if (conU.getString(path + ".shape", "CUBOID").equalsIgnoreCase("CYLINDER")) {
+            List<Double> center = conU.getDoubleList(path + ".center", null, null, null);
+            double radius = conU.getDouble(path + ".radius", 0.0, 0.0);
+            if (center.size() != 2 || radius <= 0) return null;
+
+            double minY = conU.getDouble(path + ".min_y", -64.0), maxY = conU.getDouble(path + ".max_y", 320.0);
+            double cx = center.get(0), cz = center.get(1);
+            return new Zone(name, Shape.CYLINDER, origin, destination,
+                    cx - radius, Math.min(minY, maxY), cz - radius, cx + radius, Math.max(minY, maxY), cz + radius,
+                    cx, cz, radius * radius);
+        }
+
+        // Whole blocks, so a corner block is inside the zone as well
+        List<Double> a = conU.getDoubleList(path + ".min", null, null, null);
+        List<Double> b = conU.getDoubleList(path + ".max", null, null, null);
+        if (a.size() != 3 || b.size() != 3) return null;
+        return new Zone(name, Shape.CUBOID, origin, destination,
+                Math.min(a.get(0), b.get(0)), Math.min(a.get(1), b.get(1)), Math.min(a.get(2), b.get(2)),
+                Math.max(a.get(0), b.get(0)) + 1, Math.max(a.get(1), b.get(1)) + 1, Math.max(a.get(2), b.get(2)) + 1,
+                0, 0, 0);
+    }
+}
@@ -0,0 +1,109 @@
+package dev.matkeg.tpask.network;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.LinkedHashMap;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * An in-process network: every connected node gets a transport, and this class
+ * plays the proxy's part, routing batches with the same {@link NetworkRouter}.
+ * Meant for running several nodes on one machine, e.g. in tests and simulations.
+ * <br><br>
+ * Sent batches are queued and only delivered by {@link #deliver()}, so the
+ * caller decides when the "network hop" happens (e.g. once per simulated tick).
+ */
+public final class LoopbackNetwork {
+    // Variables
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Queue<Runnable> inFlight = new ArrayDeque<>();
+    private BiConsumer<UUID, String> connector = (player, server) -> {};
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Creates the transport of a new node.
+     * @param server The node's server name.
+     */
+    public synchronized NetworkTransport connect(String server) {
+        if (nodes.containsKey(server)) throw new IllegalArgumentException("Server " + server + " is already connected");
+
+        Node node = new Node(server);
+        nodes.put(server, node);
+        return node;
+    }
+
+    /**
+     * Sets what happens with CONNECT messages, i.e. how a player is moved
+     * to another node. Does nothing by default.
+     */
+    public synchronized void onConnect(BiConsumer<UUID, String> connector) {
+        this.connector = connector;
+    }
+
+    /**
+     * Delivers every batch sent so far, including the ones sent while delivering.
+     * @return The number of batches delivered.
+     */
+    public int deliver() {
+        int delivered = 0;
+        Runnable next;
+        while ((next = poll()) != null) { next.run(); delivered++; }
+        return delivered;
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private synchronized Runnable poll() { return inFlight.poll(); }
+
+    private synchronized void route(String origin, byte[] batch) {
+        List<NetworkMessage> messages;
+        try {
+            messages = NetworkCodec.decode(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        NetworkRouter.Routes routes = NetworkRouter.route(origin, messages, nodes.keySet());
+        routes.deliveries().forEach((server, delivery) -> {
+            Node node = nodes.get(server);
+            for (byte[] payload : NetworkCodec.encodeSplit(delivery))
+                inFlight.add(() -> { if (node.receiver != null) node.receiver.accept(payload); });
+        });
+
+        BiConsumer<UUID, String> connect = connector;
+        for (NetworkMessage msg : routes.connects())
+            inFlight.add(() -> connect.accept(msg.requester(), msg.server()));
+    }
+
+    /* ----------------------- NODE ----------------------- */
+
+    private final class Node implements NetworkTransport {
+        private final String server;
+        private volatile Consumer<byte[]> receiver;
+
+        Node(String server) { this.server = server; }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) { this.receiver = receiver; }
+
+        @Override
+        public boolean send(byte[] batch) {
+            route(server, batch);
+            return true;
+        }
+
+        @Override
+        public void shutdown() {
+            receiver = null;
+            synchronized (LoopbackNetwork.this) { nodes.remove(server); }
+        }
+    }
+}
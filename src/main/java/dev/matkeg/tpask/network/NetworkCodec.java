@@ -0,0 +1,175 @@
+package dev.matkeg.tpask.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.DataInputStream;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Encodes batches of network messages into the payload of a single plugin message.
+ * <pre>
+ * byte     version
+ * varint   message count
+ *   byte     type
+ *   varint   server          (string table reference)
+ *   2x long  requester UUID  (0, 0 when unknown)
+ *   varint   requester name  (string table reference)
+ *   2x long  receiver UUID   (0, 0 when unknown)
+ *   varint   receiver name   (string table reference)
+ *   boolean  here
+ * </pre>
+ * Strings are interned per batch: a reference equal to the current table size is
+ * followed by the UTF string, which then gets that index. Server names repeat in
+ * almost every message, so a batch only carries each of them once.
+ * <br><br>
+ * The proxy relays a batch through a player's connection as a serverbound custom
+ * payload, which is capped at 32767 bytes, so longer lists are sent as several
+ * batches of at most MAX_PAYLOAD bytes.
+ */
+public final class NetworkCodec {
+    // Format
+    public static final String CHANNEL = "tpask:network";
+    public static final int VERSION = 1;
+    public static final int MAX_PAYLOAD = 32000;
+
+    /** A batch holding the first count messages of a list. */
+    public record Batch(byte[] payload, int count) {}
+
+    private NetworkCodec() {}
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return The given messages encoded as one batch. */
+    public static byte[] encode(List<NetworkMessage> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + messages.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, Integer> strings = new HashMap<>();
+        try {
+            out.writeByte(VERSION);
+            writeVarInt(out, messages.size());
+            for (NetworkMessage msg : messages) {
+                out.writeByte(msg.type().ordinal());
+                writeString(out, strings, msg.server());
+                writeUuid(out, msg.requester());
+                writeString(out, strings, msg.requesterName());
+                writeUuid(out, msg.receiver());
+                writeString(out, strings, msg.receiverName());
+                out.writeBoolean(msg.here());
+            }
+        } catch (IOException e) {
+            // Can't happen with an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes as many of the first messages as fit in MAX_PAYLOAD, but at least one.
+     * @return The batch and how many messages it holds.
+     */
+    public static Batch encodeFirst(List<NetworkMessage> messages) {
+        int count = messages.size();
+        byte[] payload = encode(messages);
+        while (payload.length > MAX_PAYLOAD && count > 1) {
+            // Shrink in proportion; strings repeat less in fewer messages, so it may take another round
+            count = Math.max(1, (int) ((long) count * MAX_PAYLOAD / payload.length));
+            payload = encode(messages.subList(0, count));
+        }
+        return new Batch(payload, count);
+    }
+
+    /** @return The given messages encoded as consecutive batches of at most MAX_PAYLOAD bytes. */
+    public static List<byte[]> encodeSplit(List<NetworkMessage> messages) {
+        List<byte[]> batches = new ArrayList<>();
+        for (int from = 0; from < messages.size();) {
+            Batch batch = encodeFirst(messages.subList(from, messages.size()));
+            batches.add(batch.payload());
+            from += batch.count();
+        }
+        return batches;
+    }
+
+    /**
+     * Decodes a batch created by {@link #encode}.
+     * @throws IOException If the payload is malformed or from an unknown version.
+     */
+    public static List<NetworkMessage> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported network message version " + version);
+
+        NetworkMessage.Type[] types = NetworkMessage.Type.values();
+        List<String> strings = new ArrayList<>();
+        int count = readVarInt(in);
+        List<NetworkMessage> messages = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            if (type >= types.length) throw new IOException("Unknown network message type " + type);
+
+            messages.add(new NetworkMessage(types[type],
+                    readString(in, strings),
+                    readUuid(in), readString(in, strings),
+                    readUuid(in), readString(in, strings),
+                    in.readBoolean()));
+        }
+        return messages;
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid != null ? uuid.getMostSignificantBits() : 0L);
+        out.writeLong(uuid != null ? uuid.getLeastSignificantBits() : 0L);
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        long most = in.readLong(), least = in.readLong();
+        return most == 0L && least == 0L ? null : new UUID(most, least);
+    }
+
+    private static void writeString(DataOutputStream out, Map<String, Integer> strings, String s) throws IOException {
+        if (s == null) s = "";
+        Integer ref = strings.get(s);
+        if (ref != null) { writeVarInt(out, ref); return; }
+
+        writeVarInt(out, strings.size());
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int ref = readVarInt(in);
+        if (ref < strings.size()) return strings.get(ref);
+        if (ref != strings.size()) throw new IOException("Corrupt string table reference " + ref);
+
+        String s = in.readUTF();
+        strings.add(s);
+        return s;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
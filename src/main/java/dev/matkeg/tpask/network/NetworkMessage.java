@@ -0,0 +1,49 @@
+package dev.matkeg.tpask.network;
+
+import java.util.UUID;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * A single message between two servers of a network, e.g. a TPA request
+ * for a player who isn't on the requester's server.
+ * <br><br>
+ * The <code>server</code> field is the destination while the message travels to
+ * the proxy (empty for every other server), and is replaced with the server the
+ * message came from before it gets delivered. For {@link Type#CONNECT} it names
+ * the server the proxy should move the requester to.
+ *
+ * @param type What the message is about.
+ * @param server The destination or origin server, see above.
+ * @param requester The UUID of the player who sent the request.
+ * @param requesterName The name of the player who sent the request.
+ * @param receiver The UUID of the player who received the request, null if not known yet.
+ * @param receiverName The name of the player who received the request.
+ * @param here Whether this is a TPA Here request.
+ */
+public record NetworkMessage(Type type, String server,
+                             UUID requester, String requesterName,
+                             UUID receiver, String receiverName, boolean here) {
+
+    // Enums
+    public enum Type {
+        /** A new request, sent to every server until one of them finds the receiver. */
+        REQUEST,
+        /** The receiver was found and was shown the request. */
+        DELIVERED,
+        /** The receiver was found, but already has a request. */
+        BUSY,
+        ACCEPT, DENY, CANCEL, EXPIRE,
+        /** Handled by the proxy: moves the requester to the given server. */
+        CONNECT
+    }
+
+    /** @return A copy of this message with a different server. */
+    public NetworkMessage withServer(String server) {
+        return new NetworkMessage(type, server, requester, requesterName, receiver, receiverName, here);
+    }
+
+    /** @return <b>True</b> if this message goes to every server but its origin. */
+    public boolean isBroadcast() {
+        return server == null || server.isEmpty();
+    }
+}
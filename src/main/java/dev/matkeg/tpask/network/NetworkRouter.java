@@ -0,0 +1,53 @@
+package dev.matkeg.tpask.network;
+
+import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Decides where the messages of a batch go. This is the proxy's part of the
+ * protocol, shared by the proxy companion and the in-process loopback network.
+ */
+public final class NetworkRouter {
+    private NetworkRouter() {}
+
+    /**
+     * The outcome of routing a batch.
+     *
+     * @param deliveries Server name mapped to the messages it should receive,
+     *                   already stamped with the origin server.
+     * @param connects The CONNECT messages, which the proxy handles itself.
+     */
+    public record Routes(Map<String, List<NetworkMessage>> deliveries, List<NetworkMessage> connects) {}
+
+    /**
+     * Routes the messages one server sent.
+     *
+     * @param origin The name of the server that sent the batch.
+     * @param messages The decoded batch.
+     * @param servers The names of every server on the network.
+     */
+    public static Routes route(String origin, List<NetworkMessage> messages, Collection<String> servers) {
+        Map<String, List<NetworkMessage>> deliveries = new LinkedHashMap<>();
+        List<NetworkMessage> connects = new ArrayList<>();
+
+        for (NetworkMessage msg : messages) {
+            if (msg.type() == NetworkMessage.Type.CONNECT) {
+                connects.add(msg);
+                continue;
+            }
+
+            NetworkMessage stamped = msg.withServer(origin);
+            if (msg.isBroadcast()) {
+                for (String server : servers)
+                    if (!server.equals(origin)) deliveries.computeIfAbsent(server, s -> new ArrayList<>()).add(stamped);
+            } else if (servers.contains(msg.server())) {
+                deliveries.computeIfAbsent(msg.server(), s -> new ArrayList<>()).add(stamped);
+            }
+        }
+        return new Routes(deliveries, connects);
+    }
+}
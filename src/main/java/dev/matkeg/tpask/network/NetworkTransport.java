@@ -0,0 +1,26 @@
+package dev.matkeg.tpask.network;
+
+import java.util.function.Consumer;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Carries encoded message batches between this server and the rest of the network.
+ * Received batches have to be handed over on the server's main thread.
+ */
+public interface NetworkTransport {
+
+    /**
+     * Starts the transport.
+     * @param receiver Gets every batch which arrives for this server.
+     */
+    void start(Consumer<byte[]> receiver);
+
+    /**
+     * Sends a batch to the proxy.
+     * @return <b>False</b> if it can't be sent right now and should be retried.
+     */
+    boolean send(byte[] batch);
+
+    /** Stops the transport; nothing is received afterwards. */
+    void shutdown();
+}
@@ -0,0 +1,62 @@
+package dev.matkeg.tpask.network;
+
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.entity.Player;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.function.Consumer;
+import java.util.Iterator;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Sends batches over the <code>tpask:network</code> plugin messaging channel,
+ * where the TPAsk proxy companion routes them to the other servers.
+ * <br><br>
+ * Plugin messages travel through a player's connection, so nothing can
+ * be sent while the server is empty; the caller retries on later ticks.
+ */
+public class PluginMessageTransport implements NetworkTransport, PluginMessageListener {
+    // Variables
+    private final PluginMain plugin;
+    private Consumer<byte[]> receiver;
+
+    // Constructor
+    public PluginMessageTransport(PluginMain plugin) {
+        this.plugin = plugin;
+    }
+
+    /* -------------------- OVERRIDES --------------------- */
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        Messenger messenger = Bukkit.getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, NetworkCodec.CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, NetworkCodec.CHANNEL, this);
+    }
+
+    @Override
+    public boolean send(byte[] batch) {
+        Iterator<? extends Player> online = Bukkit.getOnlinePlayers().iterator();
+        if (!online.hasNext()) return false;
+
+        online.next().sendPluginMessage(plugin, NetworkCodec.CHANNEL, batch);
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        Messenger messenger = Bukkit.getMessenger();
+        messenger.unregisterOutgoingPluginChannel(plugin, NetworkCodec.CHANNEL);
+        messenger.unregisterIncomingPluginChannel(plugin, NetworkCodec.CHANNEL, this);
+        receiver = null;
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player carrier, byte[] message) {
+        if (receiver != null && NetworkCodec.CHANNEL.equals(channel)) receiver.accept(message);
+    }
+}
@@ -1,5 +1,6 @@
 package dev.matkeg.tpask.utilities;
 
+import dev.matkeg.tpask.diagnostics.ReloadJfrEvent;
 import dev.matkeg.tpask.utilities.VersionUtils;
 import dev.matkeg.tpask.utilities.OutputUtils;
 
@@ -7,8 +8,10 @@ import dev.matkeg.tpask.PluginMain;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
 /* ---------------------- MAIN CLASS ---------------------- */
@@ -83,8 +86,18 @@ public final class ConfigUtils {
      */
     public void reloadConfig(Player invoker) {
         if (invoker.hasPermission("tpask.reload")) {
+            ReloadJfrEvent event = new ReloadJfrEvent();
+            event.begin();
+            
             plugin.reloadConfig();
             this.config = plugin.getConfig();
+            output.applyDebugSettings(this);
+            
+            if (event.shouldCommit()) {
+                event.target = "CONFIG";
+                event.languagePack = config.getString("language", null);
+                event.commit();
+            }
             output.print("Reloaded the plugin's configuration!");
             invoker.sendMessage("Reloaded the plugin's configuration!");
             
@@ -114,6 +127,17 @@ public final class ConfigUtils {
         return config.getStringList(path);
     }
     
+    /**
+     * Gets the names of the entries directly under a section of the plugin's configuration file.
+     * 
+     * @param path The path to the section.
+     * @return The names of its entries, or an empty set if there is no such section.
+     */
+    public Set<String> getKeys(String path) {
+        ConfigurationSection section = config.getConfigurationSection(path);
+        return section != null ? section.getKeys(false) : Set.of();
+    }
+    
     /**
      * Gets a string value from the plugin's configuration file.
      * 
@@ -0,0 +1,143 @@
+package dev.matkeg.tpask.utilities;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.Level;
+import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
+import java.io.IOException;
+import java.io.File;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+final class DebugFileWriter {
+    // Formatting
+    private static final DateTimeFormatter TIME_FORMAT = 
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // Variables
+    private final File folder;
+    private final int maxSizeKb, maxFiles;
+    private final Consumer<String> onError;
+    private final BlockingQueue<LogRecord> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private FileHandler handler; // Only touched by the worker
+
+    /**
+     * Starts a writer. The log files belong to the previous writer until it has
+     * written out its queue, so the new worker waits for it, not the caller.
+     *
+     * @param previous The writer being replaced (already told to stop), or null.
+     * @param onError Told why the log file couldn't be opened, on the worker thread.
+     */
+    DebugFileWriter(DebugFileWriter previous, File folder, int maxSizeKb, int maxFiles, int queueCapacity,
+                    Consumer<String> onError) throws IOException {
+        if (!folder.exists() && !folder.mkdirs())
+            throw new IOException("Could not create the debug log folder: " + folder);
+
+        this.folder = folder;
+        this.maxSizeKb = maxSizeKb;
+        this.maxFiles = maxFiles;
+        this.onError = onError;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Thread before = previous != null ? previous.worker : null;
+        this.worker = new Thread(() -> drain(before), "TPAsk-DebugLog");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /**
+     * Queues a message for the debug file. Never blocks the caller; 
+     * when the queue is full the message is dropped and counted.
+     */
+    void offer(Level lvl, String msg) {
+        if (!running || !queue.offer(new LogRecord(lvl, msg))) dropped.incrementAndGet();
+    }
+
+    /** Tells the writer thread to write out the queued messages and stop, without waiting for it. */
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /** Stops the writer thread and waits for it to write out the queued messages. */
+    void close() {
+        stop();
+        try { worker.join(2000L); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /* --------------------- FUNCTIONS -------------------- */
+
+    private void drain(Thread previous) {
+        while (previous != null && previous.isAlive()) {
+            try { previous.join(); } catch (InterruptedException e) { /* Told to stop as well, finish up below */ }
+        }
+        try {
+            handler = openHandler();
+        } catch (IOException e) {
+            running = false;
+            queue.clear();
+            onError.accept(e.getMessage());
+            return;
+        }
+
+        try {
+            write();
+        } finally {
+            handler.close();
+        }
+    }
+
+    private void write() {
+        while (running || !queue.isEmpty()) {
+            try {
+                LogRecord rec = queue.poll(1, TimeUnit.SECONDS);
+                if (rec == null) continue;
+                
+                handler.publish(rec);
+                
+                // Flush once the burst has been written out
+                if (queue.isEmpty()) {
+                    reportDropped();
+                    handler.flush();
+                }
+            } catch (InterruptedException e) {
+                // Interrupted by stop(), write out whatever is left
+                LogRecord rec;
+                while ((rec = queue.poll()) != null) handler.publish(rec);
+                reportDropped();
+                handler.flush();
+                return;
+            }
+        }
+    }
+
+    private FileHandler openHandler() throws IOException {
+        FileHandler opened = new FileHandler(new File(folder, "debug.%g.log").getPath(),
+                                             maxSizeKb * 1024, maxFiles, true);
+        opened.setEncoding("UTF-8");
+        opened.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord rec) {
+                return "[" + TIME_FORMAT.format(rec.getInstant()) + "] [" 
+                        + rec.getLevel().getName() + "] " + rec.getMessage() + System.lineSeparator();
+            }
+        });
+        return opened;
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) handler.publish(new LogRecord(Level.WARNING, 
+                count + " debug messages were dropped because the queue was full."));
+    }
+}
@@ -1,5 +1,6 @@
 package dev.matkeg.tpask.utilities;
 
+import dev.matkeg.tpask.diagnostics.MessageRenderJfrEvent;
 import dev.matkeg.tpask.managers.*;
 import dev.matkeg.tpask.utilities.*;
 import dev.matkeg.tpask.PluginMain;
@@ -10,15 +11,33 @@ import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.Component;
 
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
+import dev.matkeg.tpask.utilities.SchedulerUtils.Task;
+
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Collection;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.Map;
 
 /* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Renders and delivers the plugin's localized messages.
+ * <br><br>
+ * Unless async_messages is disabled, callers only queue a small description
+ * of the message; looking it up in the language file, filling in the
+ * placeholder, deserializing it and sending it happens on a few worker
+ * threads. Every player has their own queue, drained by one worker at a
+ * time, so their messages still arrive in the order they were sent.
+ */
 public class MessageUtils {
     // Modules
     private PlayerUtils plrU;
@@ -26,19 +45,78 @@ public class MessageUtils {
     private final ColorUtils colU;
     private final ConfigUtils conU;
     private final OutputUtils output;
+    private final SchedulerUtils schedU;
     private final LanguageManager langMan;
 
+    // Limits and defaults
+    private int threadsDef = 2, threadsMin = 1, threadsMax = 8;
+
     // Constructor
     public MessageUtils (PluginMain plugin) {
         this.plugin = plugin;
         this.output = plugin.getOutput();
         this.colU = plugin.getColorUtils();
         this.conU = plugin.getConfigUtils();
+        this.schedU = plugin.getSchedulerUtils();
         this.langMan = plugin.getLanguageManager();
     }
     
     // Storage
-    private final Map<UUID, BukkitTask> actionBarTasks = new HashMap<>();
+    private final Map<UUID, Task> actionBarTasks = new ConcurrentHashMap<>();
+    // message key -> rendered message (only for messages without placeholders)
+    private final Map<String, Component> plainMessages = new ConcurrentHashMap<>();
+    // player -> their queue of messages waiting for a worker
+    private final Map<UUID, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile ExecutorService workers;
+    
+    // A message to deliver; shared by a whole group, so it is only rendered once
+    private final class Message {
+        private final String key, tag, replacement;
+        private final Component addon;
+        private final boolean actionBar;
+        private Component rendered;
+        private boolean done;
+        
+        Message(String key, String tag, String replacement, Component addon, boolean actionBar) {
+            this.key = key;
+            this.tag = tag;
+            this.replacement = replacement;
+            this.addon = addon;
+            this.actionBar = actionBar;
+        }
+        
+        synchronized Component render() {
+            if (done) return rendered;
+            Component comp = constructMessage(key, tag, replacement);
+            if (comp != null && addon != null) comp = comp.append(Component.text(" ")).append(addon);
+            rendered = comp;
+            done = true;
+            return comp;
+        }
+    }
+    
+    private record Delivery(Player plr, Message msg) {}
+    
+    // One player's messages, drained by at most one worker at a time
+    private final class Lane implements Runnable {
+        private final Queue<Delivery> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        @Override
+        public void run() {
+            do {
+                for (Delivery d; (d = queue.poll()) != null;) {
+                    try {
+                        deliver(d.plr(), d.msg());
+                    } catch (RuntimeException e) {
+                        output.warn("Could not deliver the message", d.msg().key, "-", e.getMessage());
+                    }
+                }
+                scheduled.set(false);
+                // Messages queued while the flag was still up would be stranded otherwise
+            } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
     
     // Prevent a circular dependency
     public void setPlayerUtils(PlayerUtils plrU) { 
@@ -48,6 +126,16 @@ public class MessageUtils {
     /* --------------------- FUNCTIONS -------------------- */
 
     private Component constructMessage(String path, String tag, String replaced) {
+        // Components are immutable, so messages without placeholders are rendered once
+        boolean plain = tag == null || replaced == null;
+        if (plain) {
+            Component cached = plainMessages.get(path);
+            if (cached != null) return cached;
+        }
+        
+        MessageRenderJfrEvent event = new MessageRenderJfrEvent();
+        event.begin();
+        
         // Get the message, based on the path
         String msg = langMan.getUserMessage(path, null);
         if (msg == null || msg.isEmpty()) return null;
@@ -62,9 +150,73 @@ public class MessageUtils {
         Component comp = LegacyComponentSerializer
                 .legacySection().deserialize(msg);
         
+        if (event.shouldCommit()) {
+            event.key = path;
+            event.length = msg.length();
+            event.commit();
+        }
+        
+        if (plain) plainMessages.put(path, comp);
         return comp;
     };
     
+    // Queues the message on the player's lane, or delivers it right away if the workers aren't running
+    private void dispatch(Player plr, Message msg) {
+        ExecutorService pool = workers;
+        if (pool == null || !conU.getBoolean("async_messages.enabled", true)) {
+            deliver(plr, msg);
+            return;
+        }
+        
+        Lane lane = lanes.computeIfAbsent(plr.getUniqueId(), id -> new Lane());
+        lane.queue.add(new Delivery(plr, msg));
+        if (!lane.scheduled.compareAndSet(false, true)) return; // A worker is already on it
+        try {
+            pool.execute(lane);
+        } catch (RejectedExecutionException e) {
+            lane.run(); // Shutting down
+        }
+    }
+    
+    private void deliver(Player plr, Message msg) {
+        if (!plrU.isValid(plr)) return;
+        Component comp = msg.render();
+        if (comp == null) return;
+        
+        if (msg.actionBar) showActionBar(plr, comp);
+        else plr.sendMessage(comp);
+    }
+    
+    private void showActionBar(Player plr, Component baseMsg) {
+        // Send the action message immediately.
+        plr.sendActionBar(baseMsg);
+        UUID plrId = plr.getUniqueId();
+        
+        // Cancel any existing task for this player
+        Task previousTask = actionBarTasks.remove(plrId);
+        if (previousTask != null) previousTask.cancel();
+
+        // Determine how many repeats are needed
+        int durationSeconds = conU.getInt("action_bar.duration", 5, 2, 30);
+        int durationTicks = durationSeconds * 20, intervalTicks = 20;
+        int repeats = Math.max(1, (durationTicks + intervalTicks - 1) / intervalTicks); // ceil
+
+        // Schedule the repeating task on the player's thread (start immediately)
+        int[] count = { 0 };
+        Task task = schedU.runTimer(plr, self -> {
+            if (!plrU.isValid(plr) || count[0] >= repeats) {
+                actionBarTasks.remove(plrId, self);
+                self.cancel();
+                return;
+            }
+            plr.sendActionBar(baseMsg);
+            count[0]++;
+        }, 0L, intervalTicks);
+
+        // Store the task so it can be cancelled if a new message is sent
+        actionBarTasks.put(plrId, task);
+    }
+    
     /* ----------------------- APIs ----------------------- */
     
     /**
@@ -102,17 +254,8 @@ public class MessageUtils {
         // Check if the player is valid.
         if (!plrU.isValid(plr)) return;
 
-        // Construct the base message.
-        Component baseMsg = constructMessage(key, tag, replacement);
-        if (baseMsg == null) return;
-        
-        // Append the addon, if provided. 
-        if (addon != null) {
-            baseMsg = baseMsg.append(Component.text(" ")).append(addon);
-        }
-        
-        // Send the message.
-        plr.sendMessage(baseMsg);
+        // Rendered (with the addon appended) and sent by a worker
+        dispatch(plr, new Message(key, tag, replacement, addon, false));
     }
 
     /** @see #chatMessage(Player, String, String, String, Component) */
@@ -137,42 +280,54 @@ public class MessageUtils {
         // Check if the player is valid.
         if (!plrU.isValid(plr)) return;
 
-        // Construct the base message.
-        Component baseMsg = constructMessage(key, tag, replacement);
-        if (baseMsg == null) return;
-        
-        // Send the action message immediately.
-        plr.sendActionBar(baseMsg);
-        UUID plrId = plr.getUniqueId();
-        
-        // Cancel any existing task for this player
-        BukkitTask previousTask = actionBarTasks.remove(plrId);
-        if (previousTask != null) previousTask.cancel();
-
-        // Determine how many repeats are needed
-        int durationSeconds = conU.getInt("action_bar.duration", 5, 2, 30);
-        int durationTicks = durationSeconds * 20, intervalTicks = 20;
-        int repeats = Math.max(1, (durationTicks + intervalTicks - 1) / intervalTicks); // ceil
-
-        // Schedule the repeating task (start immediately)
-        BukkitTask task = new BukkitRunnable() {
-            int count = 0;
-
-            @Override
-            public void run() {
-                if (!plrU.isValid(plr) || count >= repeats) {
-                    actionBarTasks.remove(plrId);
-                    cancel();
-                    return;
-                }
-                plr.sendActionBar(baseMsg);
-                count++;
-            }
-        }.runTaskTimer(plugin, 0L, intervalTicks);
-
-
-        // Store the task so it can be cancelled if a new message is sent
-        actionBarTasks.put(plrId, task);
+        // Rendered and shown by a worker
+        dispatch(plr, new Message(key, tag, replacement, null, true));
+    }
+    
+    /**
+     * Renders a localized user-facing message without sending it, e.g. for a boss bar.
+     * 
+     * @param key The key from the messages entry inside the lang file.
+     * @param tag A string representing the replacement tag.
+     * @param replacement A string which will replace the replacement tag.
+     * @return The message, or null if the language file has no such entry.
+     */
+    public Component renderMessage(String key, String tag, String replacement) {
+        return constructMessage(key, tag, replacement);
+    }
+    
+    /**
+     * Sends the same localized message to a group of players. The message is
+     * rendered once for the whole group, and shown in the chat or the action
+     * bar, just like {@link #userMessage}.
+     * 
+     * @param plrs The players which will receive the message; invalid ones are skipped.
+     * @param key The key from the messages entry inside the lang file.
+     * @param tag A string representing the replacement tag.
+     * @param replacement A string which will replace the replacement tag.
+     */
+    public void groupUserMessage(Collection<? extends Player> plrs, String key, String tag, String replacement) {
+        if (conU.getBoolean("action_bar.enabled", true)) {
+            Message msg = new Message(key, tag, replacement, null, true);
+            for (Player plr : plrs) if (plrU.isValid(plr)) dispatch(plr, msg);
+        } else {
+            this.groupChatMessage(plrs, key, tag, replacement, null);
+        }
+    }
+    
+    /**
+     * Sends the same localized message to the chat of a group of players.
+     * The message (and the addon) is rendered once for the whole group.
+     * 
+     * @param plrs The players which will receive the message; invalid ones are skipped.
+     * @param key The key from the messages entry inside the lang file.
+     * @param tag A string representing the replacement tag.
+     * @param replacement A string which will replace the replacement tag.
+     * @param addon A optional Component which will be appended to the base message.
+     */
+    public void groupChatMessage(Collection<? extends Player> plrs, String key, String tag, String replacement, Component addon) {
+        Message msg = new Message(key, tag, replacement, addon, false);
+        for (Player plr : plrs) if (plrU.isValid(plr)) dispatch(plr, msg);
     }
     
     /**
@@ -234,6 +389,53 @@ public class MessageUtils {
         } else return createClickable(text, hover, command, colU.parseColor(color));
     }
     
+    /** Starts the message workers, unless async_messages is disabled in config.yml. */
+    public synchronized void start() {
+        if (workers != null || !conU.getBoolean("async_messages.enabled", true)) return;
+        
+        int threads = conU.getInt("async_messages.threads", threadsDef, threadsMin, threadsMax);
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "TPAsk-Messages-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /** Delivers the queued messages and stops the workers. */
+    public synchronized void shutdown() {
+        ExecutorService pool = workers;
+        if (pool == null) return;
+        
+        workers = null;
+        pool.shutdown();
+        try { pool.awaitTermination(2000L, TimeUnit.MILLISECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        lanes.clear();
+    }
+    
+    /** Forgets the rendered messages. Used when the language or color files reload. */
+    public void clearMessageCache() {
+        plainMessages.clear();
+    }
+    
+    /**
+     * Cancels the given player's repeating action bar message, if any.
+     * @param plrId The UUID of the player.
+     */
+    public void cancelActionBar(UUID plrId) {
+        Task task = actionBarTasks.remove(plrId);
+        if (task != null) task.cancel();
+    }
+    
+    /**
+     * Cancels the action bar message and drops the message queue of a player who left.
+     * @param plrId The UUID of the player.
+     */
+    public void playerLeft(UUID plrId) {
+        cancelActionBar(plrId);
+        lanes.remove(plrId);
+    }
+    
     /** Cancels all action bar tasks. */
     public void cancelAllActionBars() {
         for (var t : actionBarTasks.values()) if (t != null) t.cancel();
@@ -2,8 +2,11 @@ package dev.matkeg.tpask.utilities;
 
 import dev.matkeg.tpask.PluginMain;
 
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.logging.Level;
+import java.io.IOException;
+import java.io.File;
 
 /* ---------------------- MAIN CLASS ---------------------- */
 public class OutputUtils {
@@ -11,8 +14,21 @@ public class OutputUtils {
     private final PluginMain plugin;
     private final Logger logger;
 
+    // Enums
+    public enum DebugChannel { 
+        REQUESTS("debug.requests"), TELEPORT("debug.teleport"), LEAKS("debug.leaks");
+        
+        private final String path;
+        DebugChannel(String path) { this.path = path; }
+    }
+
     // Variables
     private boolean autoSpacingEnabled = true;
+    // Cached debug.* flags, indexed by DebugChannel ordinal
+    private volatile boolean[] debugFlags = new boolean[DebugChannel.values().length];
+    private volatile DebugFileWriter debugFile;
+    private DebugFileWriter retiredDebugFile; // Told to stop by a reload, still writing out its queue
+    private volatile boolean debugToConsole = true;
     
     // Constructor
     public OutputUtils(PluginMain plugin) {
@@ -31,6 +47,15 @@ public class OutputUtils {
         logger.info(joinArgs(args));
     }
 
+    /**
+     * Lazily prints out an info message to the output / console.
+     * The supplier is only invoked if the logger accepts info messages.
+     * @param msg Supplies the message to be outputted.
+     */
+    public void print(Supplier<String> msg) {
+        logger.info(msg);
+    }
+
     /**
      * Prints out a warning message to the output / console.
      * Accepts any number of arguments; non-strings will be converted using toString().
@@ -40,6 +65,15 @@ public class OutputUtils {
         logger.warning(joinArgs(args));
     }
     
+    /**
+     * Lazily prints out a warning message to the output / console.
+     * The supplier is only invoked if the logger accepts warning messages.
+     * @param msg Supplies the message to be outputted.
+     */
+    public void warn(Supplier<String> msg) {
+        logger.warning(msg);
+    }
+    
     /**
      * Prints out a critical ("error") message to the output / console.
      * Accepts any number of arguments; non-strings will be converted using toString().
@@ -62,6 +96,71 @@ public class OutputUtils {
         logger.log(lvl, joinArgs(args));
     }
     
+    /**
+     * Whether debug messages of the given channel are enabled. Reads a cached
+     * flag, so it is cheap enough to be called on every hot path.
+     * @param channel The debug channel, e.g. TELEPORT for debug.teleport.
+     */
+    public boolean isDebugEnabled(DebugChannel channel) {
+        return debugFlags[channel.ordinal()];
+    }
+    
+    /**
+     * Lazily prints out a debug message of the given channel. Nothing is computed 
+     * unless the channel is enabled. Messages go to the debug file if it is enabled.
+     * @param channel The debug channel the message belongs to.
+     * @param msg Supplies the message to be outputted.
+     */
+    public void debug(DebugChannel channel, Supplier<String> msg) {
+        if (debugFlags[channel.ordinal()]) emitDebug(Level.INFO, msg.get());
+    }
+    
+    /** @see #debug(DebugChannel, Supplier) */
+    public void debugWarn(DebugChannel channel, Supplier<String> msg) {
+        if (debugFlags[channel.ordinal()]) emitDebug(Level.WARNING, msg.get());
+    }
+    
+    /**
+     * Re-reads the debug entries of the configuration file. Should be called 
+     * once the config is loaded and every time it gets reloaded.
+     * @param conU The configuration utilities to read the entries from.
+     */
+    public void applyDebugSettings(ConfigUtils conU) {
+        boolean[] flags = new boolean[DebugChannel.values().length];
+        for (DebugChannel channel : DebugChannel.values())
+            flags[channel.ordinal()] = conU.getBoolean(channel.path, false);
+        
+        // Restart the debug file writer with the new settings; the new writer waits for the old one
+        DebugFileWriter previous = debugFile;
+        debugFile = null;
+        if (previous != null) {
+            previous.stop();
+            retiredDebugFile = previous;
+        }
+        if (conU.getBoolean("debug.file.enabled", false)) {
+            try {
+                debugFile = new DebugFileWriter(retiredDebugFile, new File(plugin.getDataFolder(), "logs"),
+                        conU.getInt("debug.file.max_size_kb", 1024, 16, 1048576),
+                        conU.getInt("debug.file.max_files", 5, 1, 100),
+                        conU.getInt("debug.file.queue_capacity", 4096, 64, 1048576),
+                        msg -> error("Could not open the debug log file:", msg));
+                retiredDebugFile = null;
+            } catch (IOException e) {
+                error("Could not open the debug log file:", e.getMessage());
+            }
+        }
+        debugToConsole = debugFile == null || conU.getBoolean("debug.file.also_console", false);
+        debugFlags = flags;
+    }
+    
+    /** Writes out any queued debug messages and closes the debug file. */
+    public void closeDebugFile() {
+        DebugFileWriter writer = debugFile != null ? debugFile : retiredDebugFile;
+        debugFile = null;
+        retiredDebugFile = null;
+        if (writer != null) writer.close();
+    }
+    
     /**
      * Changes the default behavior of joining multiple arguments in an output message.
      * By default, different arguments are joined together with a space in between them.
@@ -80,6 +179,12 @@ public class OutputUtils {
     
     /* --------------------- FUNCTIONS -------------------- */
     
+    private void emitDebug(Level lvl, String msg) {
+        DebugFileWriter writer = debugFile;
+        if (writer != null) writer.offer(lvl, msg);
+        if (debugToConsole) logger.log(lvl, msg);
+    }
+    
     // Converts varargs into a single string
     private String joinArgs(Object... args) {
         if (args == null || args.length == 0) return "";
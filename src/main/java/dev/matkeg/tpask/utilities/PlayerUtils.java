@@ -1,5 +1,9 @@
 package dev.matkeg.tpask.utilities;
 
+import dev.matkeg.tpask.utilities.OutputUtils.DebugChannel;
+import dev.matkeg.tpask.managers.WorldRuleManager.Rule;
+import dev.matkeg.tpask.diagnostics.TeleportJfrEvent;
+import dev.matkeg.tpask.api.event.TpaTeleportEvent;
 import dev.matkeg.tpask.managers.*;
 import dev.matkeg.tpask.PluginMain;
 
@@ -11,6 +15,8 @@ import org.bukkit.Location;
 import org.bukkit.Registry;
 import org.bukkit.World;
 
+import java.util.function.Supplier;
+
 /* ---------------------- MAIN CLASS ---------------------- */
 public class PlayerUtils {
     // Modules
@@ -19,6 +25,12 @@ public class PlayerUtils {
     private final ConfigUtils conU;
     private final OutputUtils output;
     private final LanguageManager langMan;
+    private final AuditManager auditMan;
+    private final SchedulerUtils schedU;
+    private final ZoneManager zoneMan;
+    private final CombatManager combatMan;
+    private final EffectManager effectMan;
+    private final WorldRuleManager worldRules;
 
     // Constructor
     public PlayerUtils(PluginMain plugin) {
@@ -27,18 +39,64 @@ public class PlayerUtils {
         this.msgU = plugin.getMessageUtils();
         this.conU = plugin.getConfigUtils();
         this.langMan = plugin.getLanguageManager();
+        this.auditMan = plugin.getAuditManager();
+        this.schedU = plugin.getSchedulerUtils();
+        this.zoneMan = plugin.getZoneManager();
+        this.combatMan = plugin.getCombatManager();
+        this.effectMan = plugin.getEffectManager();
+        this.worldRules = plugin.getWorldRuleManager();
     }
+    
+    // Enums
+    public enum TeleportReason { TPA, TPAHERE, BACK, WARP, HOME, RTP }
 
     /* -------------------- FUNCTIONS --------------------- */
     
-    private void warnDebug(Object... args) {
-        boolean requestDebugEnabled = conU.getBoolean("debug.teleport", false);
-         if (requestDebugEnabled) output.warn(args);
+    private void warnDebug(Supplier<String> msg) {
+        output.debugWarn(DebugChannel.TELEPORT, msg);
+    }
+    
+    private void printDebug(Supplier<String> msg) {
+        output.debug(DebugChannel.TELEPORT, msg);
     }
     
-    private void printDebug(Object... args) {
-        boolean requestDebugEnabled = conU.getBoolean("debug.teleport", false);
-         if (requestDebugEnabled) output.print(args);
+    // Only called while a JFR recording is capturing teleports
+    private void describeTeleport(TeleportJfrEvent event, Player subject, Location dest, boolean crossWorld) {
+        Location from = subject.getLocation();
+        event.describe(this.getName(subject), from.getWorld().getName(), dest.getWorld().getName(),
+                crossWorld ? -1 : from.distance(dest), crossWorld, dest.isChunkLoaded());
+    }
+    
+    // Lets listeners move or stop the teleport, returns null if it was cancelled
+    private Location fireTeleport(Player subject, TeleportReason reason, Location to, TeleportJfrEvent event) {
+        if (!TpaTeleportEvent.hasListeners()) return to;
+
+        TpaTeleportEvent tpEvent = new TpaTeleportEvent(subject, reason, subject.getLocation(), to);
+        if (tpEvent.callEvent()) return tpEvent.getDestination();
+
+        event.finish(TeleportJfrEvent.ABORT, "CANCELLED");
+        return null;
+    }
+    
+    // Only teleports within a world have a distance limit
+    private static boolean isTooFar(Player subject, Location to, Rule rule, boolean tpingToAnotherWorld) {
+        double max = rule.maxDistance();
+        return !tpingToAnotherWorld && max > 0 && subject.getLocation().distanceSquared(to) > max * max;
+    }
+    
+    // Teleports without blocking on chunk loads, auditing (and protecting the player) once the teleport went through
+    private void teleportAsync(TeleportJfrEvent event, Player subject, Location from, Location to,
+                               int foodLost, TeleportReason reason) {
+        subject.teleportAsync(to, PlayerTeleportEvent.TeleportCause.COMMAND).thenAccept(done -> {
+            if (!done) {
+                event.finish(TeleportJfrEvent.ABORT, "REFUSED");
+                return;
+            }
+            auditMan.record(subject, reason, from, to, foodLost);
+            combatMan.startGrace(subject);
+            effectMan.arrival(subject);
+            event.finish(TeleportJfrEvent.COMPLETE, null);
+        });
     }
     
     /* ----------------------- APIs ----------------------- */
@@ -108,10 +166,19 @@ public class PlayerUtils {
      * @param teleportingTo The location where the player will be teleported to.
      * @param tpToAnotherWorld Whether the subject is being teleported to another world.
      *
+     * @return The amount of food points the player lost.
+     *
      * @see config.yml - hunger_penalty entry to configure the effect and debuffs applied
      * to the player who got teleported.
      */
-    public void applyTeleportPenalty(Player subject, Location teleportingTo, boolean tpingToAnotherWorld) {
+    public int applyTeleportPenalty(Player subject, Location teleportingTo, boolean tpingToAnotherWorld) {
+        Rule rule = worldRules.rule(subject.getWorld(), teleportingTo.getWorld());
+        return applyTeleportPenalty(subject, subject.getLocation(), teleportingTo, tpingToAnotherWorld, rule);
+    }
+    
+    // Takes the subject's already fetched location and the teleport's world rule, to avoid looking them up again
+    private int applyTeleportPenalty(Player subject, Location subjLoc, Location teleportingTo, boolean tpingToAnotherWorld,
+                                     Rule rule) {
         String penaltyType = conU.getString("hunger_penalty.type", "DISTANCE");
 
         float saturationDivideBy = (float) conU.getDouble("hunger_penalty.saturation_divide_on_tp", 4.0, 1.0, 20.0);
@@ -133,7 +200,6 @@ public class PlayerUtils {
             int pointsLost = 0;
             switch (penaltyType) {
                 case "DISTANCE":
-                    Location subjLoc = subject.getLocation();
                     double distance = subjLoc.distance(teleportingTo);
 
                     pointsLost = (int) Math.round(distance / blocksPerPointLost);
@@ -143,6 +209,7 @@ public class PlayerUtils {
                     pointsLost = pointsLostFixed;
                     break;
             }
+            pointsLost = (int) Math.round(pointsLost * rule.penaltyMultiplier());
 
             // Check the prevent_starving value, in order to know the minimum allowed food value
             if (preventStarving && currFoodLevel > 0) {
@@ -150,22 +217,21 @@ public class PlayerUtils {
             } else {
                 newFoodPointValue = Math.max(0, Math.min(20, currFoodLevel - pointsLost));
             }
-        } else { // TPing to another world will leave one fourth of the food level.
-            newSaturationValue = currSaturationLevel / 4;
-            newFoodPointValue = currFoodLevel / 4;
+        } else { // TPing to another world will leave one fourth of the food level (before the world rule's multiplier).
+            double multiplier = rule.penaltyMultiplier();
+            newSaturationValue = Math.max(0f, currSaturationLevel - (float) ((currSaturationLevel * 3 / 4) * multiplier));
+            newFoodPointValue = Math.max(0, Math.min(20,
+                    currFoodLevel - (int) Math.round((currFoodLevel - currFoodLevel / 4) * multiplier)));
         }
         
         // Print out debug information.
-        printDebug("Hunger penalty applied to", 
-                    this.getName(subject), "-",
-                             "New Food Level:",
-                             newFoodPointValue, 
-                                 "Food Delta:",
-             currFoodLevel - newFoodPointValue,
-                             "New Saturation:",
-                            newSaturationValue, 
-                           "Saturation Delta:",
-      currSaturationLevel - newSaturationValue);
+        final int newFood = newFoodPointValue;
+        final float newSaturation = newSaturationValue;
+        printDebug(() -> "Hunger penalty applied to " + this.getName(subject) 
+                + " - New Food Level: " + newFood 
+                + " Food Delta: " + (currFoodLevel - newFood)
+                + " New Saturation: " + newSaturation 
+                + " Saturation Delta: " + (currSaturationLevel - newSaturation));
 
         // Change the food and saturation;
         subject.setSaturation(newSaturationValue);
@@ -173,6 +239,8 @@ public class PlayerUtils {
 
         // Update the health status client-side;
         subject.sendHealthUpdate();
+        
+        return currFoodLevel - newFoodPointValue;
     }
 
     /**
@@ -180,42 +248,82 @@ public class PlayerUtils {
      *
      * @param subject The player which gets teleported.
      * @param destination The player who the 'subject' player is teleported to.
+     * @param applyPenalty Whether the hunger penalty is applied.
+     * @param reason What caused the teleport, recorded in the audit log.
      */
-    public void teleport(Player subject, Player dest, boolean applyPenalty) {
+    public void teleport(Player subject, Player dest, boolean applyPenalty, TeleportReason reason) {
+        // The destination's position belongs to its thread, the subject's food level and position to theirs
+        schedU.run(dest, () -> {
+            if (!this.areValid(subject, dest)) return;
+            Location at = dest.getLocation();
+            schedU.run(subject, () -> teleportOwned(subject, dest, at, applyPenalty, reason));
+        });
+    }
+
+    private void teleportOwned(Player subject, Player dest, Location at, boolean applyPenalty, TeleportReason reason) {
         // Check if both players are valid
         if (!this.areValid(subject, dest)) {
             return;
         }
 
-        World subWrld = subject.getWorld(), destWrld = dest.getWorld();
-        boolean crossWorldTpEnabled = conU.getBoolean("world.cross_teleportation", true);
+        TeleportJfrEvent event = new TeleportJfrEvent();
+        event.begin();
+        
+        Location to = fireTeleport(subject, reason, at, event);
+        if (to == null) return;
+
+        World subWrld = subject.getWorld(), destWrld = to.getWorld();
+        Rule rule = worldRules.rule(subWrld, destWrld);
         boolean tpingToAnotherWorld = !subWrld.equals(destWrld);
+        if (event.isEnabled()) describeTeleport(event, subject, to, tpingToAnotherWorld);
 
         // Check the world of the subjects
-        if (!crossWorldTpEnabled && tpingToAnotherWorld) {
+        if (!rule.allowed() && tpingToAnotherWorld) {
             // Print out debug information.
-            warnDebug("Could not teleport", 
-                     this.getName(subject), "to", 
-                    this.getName(dest), "because",
-                    "cross world teleportation is disabled!");
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to " 
+                    + this.getName(dest) + " because cross world teleportation is disabled!");
         
             // Message the players
             msgU.userMessage(subject, "error_cross_world_disabled_self");
             msgU.userMessage(dest, "error_cross_world_disabled",
                     "%OTHER%", this.getName(subject));
+            event.finish(TeleportJfrEvent.ABORT, "CROSS_WORLD_DISABLED");
             return;
         } if (!tpingToAnotherWorld) {
             // Calculate and print out the distance
-            printDebug("Teleported", this.getName(subject) , "to", this.getName(dest),
-                   "- Distance:", subject.getLocation().distance(dest.getLocation()));
+            printDebug(() -> "Teleported " + this.getName(subject) + " to " + this.getName(dest)
+                    + " - Distance: " + subject.getLocation().distance(to));
+        }
+
+        // Check the world's distance limit
+        if (isTooFar(subject, to, rule, tpingToAnotherWorld)) {
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to " 
+                    + this.getName(dest) + " because it is further than " + rule.maxDistance() + " blocks");
+            
+            msgU.userMessage(subject, "error_too_far_self", "%BLOCKS%", String.valueOf((long) rule.maxDistance()));
+            msgU.userMessage(dest, "error_too_far", "%OTHER%", this.getName(subject));
+            event.finish(TeleportJfrEvent.ABORT, "TOO_FAR");
+            return;
+        }
+
+        // Check the no-teleport zones again, either player may have moved since the request
+        Location from = subject.getLocation();
+        String zone = zoneMan.blockingZone(subject, from, to, reason);
+        if (zone != null) {
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to " 
+                    + this.getName(dest) + " because of the no-teleport zone " + zone);
+            
+            msgU.userMessage(subject, "error_no_teleport_zone", "%ZONE%", zone);
+            msgU.userMessage(dest, "error_no_teleport_zone_other", "%OTHER%", this.getName(subject));
+            event.finish(TeleportJfrEvent.ABORT, "NO_TELEPORT_ZONE");
+            return;
         }
 
         // Apply the hunger penalty to the subject.
-        if (applyPenalty)
-            applyTeleportPenalty(subject, dest.getLocation(), tpingToAnotherWorld);
+        int foodLost = applyPenalty ? applyTeleportPenalty(subject, from, to, tpingToAnotherWorld, rule) : 0;
 
         // Teleports the subject player to the destination player.
-        subject.teleport(dest, PlayerTeleportEvent.TeleportCause.COMMAND);
+        teleportAsync(event, subject, from, to, foodLost, reason);
     }
 
     /**
@@ -223,37 +331,73 @@ public class PlayerUtils {
      *
      * @param subject The player which gets teleported.
      * @param destination The location where the 'subject' player is teleported to.
+     * @param applyPenalty Whether the hunger penalty is applied.
+     * @param reason What caused the teleport, recorded in the audit log.
      */
-    public void teleport(Player subject, Location dest, boolean applyPenalty) {
+    public void teleport(Player subject, Location dest, boolean applyPenalty, TeleportReason reason) {
+        // The subject's food level and position belong to their own thread
+        schedU.run(subject, () -> teleportOwned(subject, dest, applyPenalty, reason));
+    }
+
+    private void teleportOwned(Player subject, Location dest, boolean applyPenalty, TeleportReason reason) {
         // Check if both players are valid
         if (!this.isValid(subject)) {
             return;
         }
 
-        World subWrld = subject.getWorld(), destWrld = dest.getWorld();
-        boolean crossWorldTpEnabled = conU.getBoolean("world.cross_world_teleportation", true);
+        TeleportJfrEvent event = new TeleportJfrEvent();
+        event.begin();
+        
+        Location to = fireTeleport(subject, reason, dest, event);
+        if (to == null) return;
+
+        World subWrld = subject.getWorld(), destWrld = to.getWorld();
+        Rule rule = worldRules.rule(subWrld, destWrld);
         boolean tpingToAnotherWorld = !subWrld.equals(destWrld);
+        if (event.isEnabled()) describeTeleport(event, subject, to, tpingToAnotherWorld);
 
         // Check the world of the subjects
-        if (!crossWorldTpEnabled && tpingToAnotherWorld) {
+        if (!rule.allowed() && tpingToAnotherWorld) {
             // Print out debug information.
-            warnDebug("Could not teleport", this.getName(subject), "to their previous",
-                             "location because cross world teleportation is disabled!");
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to their previous "
+                    + "location because cross world teleportation is disabled!");
             
             msgU.userMessage(subject, "error_cross_world_disabled_self");
+            event.finish(TeleportJfrEvent.ABORT, "CROSS_WORLD_DISABLED");
             return;
         } if (!tpingToAnotherWorld) {
             // Calculate and print out the distance
-            printDebug("Teleported", this.getName(subject) , "to", dest.x(), dest.y(), dest.z(),
-                       "(previous location) - Distance:", subject.getLocation().distance(dest));
+            printDebug(() -> "Teleported " + this.getName(subject) + " to " + to.x() + " " + to.y() 
+                    + " " + to.z() + " (previous location) - Distance: " + subject.getLocation().distance(to));
+        }
+
+        // Check the world's distance limit
+        if (isTooFar(subject, to, rule, tpingToAnotherWorld)) {
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to " + to.x() + " " + to.y() 
+                    + " " + to.z() + " because it is further than " + rule.maxDistance() + " blocks");
+            
+            msgU.userMessage(subject, "error_too_far_self", "%BLOCKS%", String.valueOf((long) rule.maxDistance()));
+            event.finish(TeleportJfrEvent.ABORT, "TOO_FAR");
+            return;
+        }
+
+        // Check the no-teleport zones
+        Location from = subject.getLocation();
+        String zone = zoneMan.blockingZone(subject, from, to, reason);
+        if (zone != null) {
+            warnDebug(() -> "Could not teleport " + this.getName(subject) + " to " + to.x() + " " + to.y() 
+                    + " " + to.z() + " because of the no-teleport zone " + zone);
+            
+            msgU.userMessage(subject, "error_no_teleport_zone", "%ZONE%", zone);
+            event.finish(TeleportJfrEvent.ABORT, "NO_TELEPORT_ZONE");
+            return;
         }
 
         // Apply the hunger penalty to the subject.
-        if (applyPenalty)
-            applyTeleportPenalty(subject, dest, tpingToAnotherWorld);
+        int foodLost = applyPenalty ? applyTeleportPenalty(subject, from, to, tpingToAnotherWorld, rule) : 0;
 
         // Teleports the subject player to the destination location.
-        subject.teleport(dest, PlayerTeleportEvent.TeleportCause.COMMAND);
+        teleportAsync(event, subject, from, to, foodLost, reason);
     }
 
     /**
@@ -0,0 +1,243 @@
+package dev.matkeg.tpask.utilities;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.entity.Entity;
+import org.bukkit.Location;
+import org.bukkit.Bukkit;
+
+import dev.matkeg.tpask.PluginMain;
+
+import java.util.function.Consumer;
+
+/* ---------------------- MAIN CLASS ---------------------- */
+/**
+ * Schedules the plugin's tasks on whichever scheduler the server provides.
+ * On Paper everything runs through the BukkitScheduler, as before. On Folia,
+ * tasks bound to a player run on that player's EntityScheduler, the rest run
+ * on the GlobalRegionScheduler and background work on the AsyncScheduler.
+ */
+public final class SchedulerUtils {
+    // Modules
+    private final PluginMain plugin;
+
+    // Whether the server runs Folia's regionized ticking
+    private static final boolean FOLIA = detectFolia();
+
+    // Class Constructor
+    public SchedulerUtils(PluginMain plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * A scheduled task, which can be cancelled regardless of which
+     * scheduler it ended up on.
+     */
+    public static final class Task {
+        private volatile BukkitTask bukkit;
+        private volatile ScheduledTask region;
+        private volatile boolean cancelled;
+
+        private Task() {}
+
+        /** Stops the task. Tasks which already ran are not affected. */
+        public void cancel() {
+            cancelled = true;
+            BukkitTask b = bukkit;
+            ScheduledTask r = region;
+            if (b != null) b.cancel();
+            if (r != null) r.cancel();
+        }
+
+        /** @return <b>True</b> if the task has been cancelled. */
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    /* -------------------- FUNCTIONS --------------------- */
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    // Folia rejects delays below one tick
+    private static long atLeastOne(long ticks) {
+        return Math.max(1L, ticks);
+    }
+
+    private Task bukkit(Task task, BukkitTask scheduled) {
+        task.bukkit = scheduled;
+        if (task.cancelled) scheduled.cancel();
+        return task;
+    }
+
+    // Runs the body unless the task was cancelled before the region picked it up
+    private Consumer<ScheduledTask> body(Task task, Consumer<Task> body) {
+        return scheduled -> {
+            task.region = scheduled;
+            if (task.cancelled) { scheduled.cancel(); return; }
+            body.accept(task);
+        };
+    }
+
+    /* ----------------------- APIs ----------------------- */
+
+    /** @return <b>True</b> if the server is running Folia. */
+    public boolean isFolia() { return FOLIA; }
+
+    /**
+     * Returns the current tick, used for per-tick budgets. Folia has no single
+     * server tick, so there it counts 50 ms windows of wall-clock time instead.
+     */
+    public int currentTick() {
+        if (FOLIA) return (int) (System.nanoTime() / 50_000_000L);
+        return Bukkit.getCurrentTick();
+    }
+
+    /**
+     * Runs the task on the next tick, on the main thread (Paper)
+     * or the global region (Folia).
+     *
+     * @param task The task to run.
+     */
+    public Task run(Runnable task) {
+        Task handle = new Task();
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().run(plugin, body(handle, t -> task.run()));
+            return handle;
+        }
+        return bukkit(handle, Bukkit.getScheduler().runTask(plugin, task));
+    }
+
+    /**
+     * Runs the task after the given delay, on the main thread (Paper)
+     * or the global region (Folia).
+     *
+     * @param task The task to run.
+     * @param delayTicks The delay in ticks.
+     */
+    public Task runLater(Runnable task, long delayTicks) {
+        Task handle = new Task();
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().runDelayed(plugin, body(handle, t -> task.run()), atLeastOne(delayTicks));
+            return handle;
+        }
+        return bukkit(handle, Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks));
+    }
+
+    /**
+     * Repeats the task until it is cancelled, on the main thread (Paper)
+     * or the global region (Folia).
+     *
+     * @param task The task to run, given its own handle so it can cancel itself.
+     * @param delayTicks The delay before the first run, in ticks.
+     * @param periodTicks The delay between runs, in ticks.
+     */
+    public Task runTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+        Task handle = new Task();
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, body(handle, task),
+                    atLeastOne(delayTicks), atLeastOne(periodTicks));
+            return handle;
+        }
+        return bukkit(handle, Bukkit.getScheduler().runTaskTimer(plugin, () -> task.accept(handle), delayTicks, periodTicks));
+    }
+
+    /**
+     * Runs the task off the server's threads.
+     * @param task The task to run.
+     */
+    public Task runAsync(Runnable task) {
+        Task handle = new Task();
+        if (FOLIA) {
+            Bukkit.getAsyncScheduler().runNow(plugin, body(handle, t -> task.run()));
+            return handle;
+        }
+        return bukkit(handle, Bukkit.getScheduler().runTaskAsynchronously(plugin, task));
+    }
+
+    /**
+     * Runs the task on the thread which owns the given entity: right away
+     * if that is the current thread, otherwise as soon as possible. If the
+     * entity is gone (or null), the task runs on the global region instead,
+     * so it has to do its own validity checks.
+     *
+     * @param entity The entity, usually a player, the task acts on.
+     * @param task The task to run.
+     */
+    public void run(Entity entity, Runnable task) {
+        if (!FOLIA) {
+            if (Bukkit.isPrimaryThread()) task.run();
+            else Bukkit.getScheduler().runTask(plugin, task);
+            return;
+        }
+
+        if (entity != null && Bukkit.isOwnedByCurrentRegion(entity)) {
+            task.run();
+            return;
+        }
+        if (entity == null || !entity.getScheduler().execute(plugin, task, () -> run(task), 1L)) run(task);
+    }
+
+    /**
+     * Runs the task on the thread which owns the given location: right away
+     * if that is the current thread, otherwise as soon as possible. Without
+     * a world the task runs on the global region instead.
+     *
+     * @param location The location, e.g. a teleport's destination, the task reads.
+     * @param task The task to run.
+     */
+    public void run(Location location, Runnable task) {
+        if (!FOLIA) {
+            if (Bukkit.isPrimaryThread()) task.run();
+            else Bukkit.getScheduler().runTask(plugin, task);
+            return;
+        }
+
+        if (location == null || location.getWorld() == null) run(task);
+        else if (Bukkit.isOwnedByCurrentRegion(location)) task.run();
+        else Bukkit.getRegionScheduler().execute(plugin, location, task);
+    }
+
+    /**
+     * Runs the task after the given delay, on the thread which owns the given
+     * entity. If the entity is gone (or null) by then, the task runs on the
+     * global region instead, so it has to do its own validity checks.
+     *
+     * @param entity The entity, usually a player, the task acts on.
+     * @param task The task to run.
+     * @param delayTicks The delay in ticks.
+     */
+    public Task runLater(Entity entity, Runnable task, long delayTicks) {
+        if (!FOLIA || entity == null) return runLater(task, delayTicks);
+
+        Task handle = new Task();
+        ScheduledTask scheduled = entity.getScheduler().runDelayed(plugin, body(handle, t -> task.run()),
+                () -> { if (!handle.cancelled) run(task); }, atLeastOne(delayTicks));
+        return scheduled != null ? handle : runLater(task, delayTicks);
+    }
+
+    /**
+     * Repeats the task on the thread which owns the given entity, until it is
+     * cancelled or the entity is gone.
+     *
+     * @param entity The entity, usually a player, the task acts on.
+     * @param task The task to run, given its own handle so it can cancel itself.
+     * @param delayTicks The delay before the first run, in ticks.
+     * @param periodTicks The delay between runs, in ticks.
+     */
+    public Task runTimer(Entity entity, Consumer<Task> task, long delayTicks, long periodTicks) {
+        if (!FOLIA) return runTimer(task, delayTicks, periodTicks);
+
+        Task handle = new Task();
+        ScheduledTask scheduled = entity.getScheduler().runAtFixedRate(plugin, body(handle, task),
+                () -> handle.cancelled = true, atLeastOne(delayTicks), atLeastOne(periodTicks));
+        if (scheduled == null) handle.cancelled = true;
+        return handle;
+    }
+}